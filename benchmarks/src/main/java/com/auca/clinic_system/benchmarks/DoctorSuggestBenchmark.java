@@ -0,0 +1,42 @@
+package com.auca.clinic_system.benchmarks;
+
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.service.DoctorSuggestIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One typeahead query against the suggestion index of {@code doctors} doctors. {@code c} matches a
+ * fifth of them by specialization, {@code igiz} a single name and {@code igizenza} the same name with
+ * a typo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DoctorSuggestBenchmark {
+
+    @Param({"3000", "30000"})
+    public int doctors;
+
+    @Param({"c", "cardi", "igiz", "igizenza", "name123"})
+    public String query;
+
+    private DoctorSuggestIndex index;
+
+    @Setup
+    public void setUp() {
+        index = Fixtures.doctorSuggestIndex(doctors);
+        // Build the index outside the measurement
+        index.suggest(query, DoctorSuggestIndex.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<DoctorMinimalRow> suggest() {
+        return index.suggest(query, DoctorSuggestIndex.DEFAULT_LIMIT);
+    }
+}
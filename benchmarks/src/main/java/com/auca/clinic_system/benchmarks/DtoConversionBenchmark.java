@@ -0,0 +1,75 @@
+package com.auca.clinic_system.benchmarks;
+
+import com.auca.clinic_system.dto.DoctorDTO;
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.dto.PatientDTO;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.entity.Village;
+import com.auca.clinic_system.service.DoctorService;
+import com.auca.clinic_system.service.LocationResolver;
+import com.auca.clinic_system.service.PatientService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO conversion, per call. {@code appointments} is the size of the embedded summary list.
+ *
+ * <p>{@code resolveIndexedVillage} is the normal location path, a lookup in the in-memory index;
+ * {@code resolveUnindexedVillage} is the fallback that walks the entity's parent chain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoConversionBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int appointments;
+
+    private PatientService patientService;
+    private DoctorService doctorService;
+    private LocationResolver locationResolver;
+    private Patient patient;
+    private Doctor doctor;
+    private Village indexedVillage;
+    private Village unindexedVillage;
+
+    @Setup
+    public void setUp() {
+        locationResolver = Fixtures.locationResolver();
+        patientService = Fixtures.patientService(locationResolver);
+        doctorService = Fixtures.doctorService(locationResolver);
+
+        indexedVillage = Fixtures.village(Fixtures.VILLAGES / 2);
+        unindexedVillage = Fixtures.village(Fixtures.VILLAGES + 1);
+        patient = Fixtures.patient(appointments, indexedVillage);
+        doctor = Fixtures.doctor(appointments, indexedVillage);
+
+        // Load the index outside the measurement
+        locationResolver.resolve(indexedVillage);
+    }
+
+    @Benchmark
+    public PatientDTO patientToDto() {
+        return patientService.convertToDTO(patient);
+    }
+
+    @Benchmark
+    public DoctorDTO doctorToDto() {
+        return doctorService.convertToDTO(doctor);
+    }
+
+    @Benchmark
+    public LocationDTO resolveIndexedVillage() {
+        return locationResolver.resolve(indexedVillage);
+    }
+
+    @Benchmark
+    public LocationDTO resolveUnindexedVillage() {
+        return locationResolver.resolve(unindexedVillage);
+    }
+}
@@ -0,0 +1,193 @@
+package com.auca.clinic_system.benchmarks;
+
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.repository.DoctorRepository;
+import com.auca.clinic_system.repository.VillageRepository;
+import com.auca.clinic_system.service.DoctorService;
+import com.auca.clinic_system.service.DoctorSuggestIndex;
+import com.auca.clinic_system.service.LocationResolver;
+import com.auca.clinic_system.service.PatientService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detached entity graphs and services wired by hand, so the benchmarks measure the mapping code
+ * without a Spring context or a database. The location index holds {@link #VILLAGES} villages.
+ */
+final class Fixtures {
+
+    static final int VILLAGES = 15_000;
+
+    private Fixtures() {
+    }
+
+    static LocationResolver locationResolver() {
+        List<LocationDTO> rows = new ArrayList<>(VILLAGES);
+        for (long v = 1; v <= VILLAGES; v++) {
+            long cell = (v + 9) / 10;
+            long sector = (cell + 9) / 10;
+            long district = (sector + 9) / 10;
+            long province = (district + 9) / 10;
+            rows.add(new LocationDTO(province, "Province " + province, district, "District " + district,
+                    sector, "Sector " + sector, cell, "Cell " + cell, v, "Village " + v));
+        }
+        // Only findAllLocations is called; any other repository method is a fixture bug
+        VillageRepository villages = (VillageRepository) Proxy.newProxyInstance(VillageRepository.class.getClassLoader(),
+                new Class<?>[]{VillageRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAllLocations")) {
+                        return rows;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        LocationResolver resolver = new LocationResolver();
+        inject(resolver, "villageRepository", villages);
+        return resolver;
+    }
+
+    /**
+     * An index over {@code doctors} doctors named {@code "Dr. Name" + id} across five specializations,
+     * plus {@code Dr. Igizeneza}, loaded on the first query.
+     */
+    static DoctorSuggestIndex doctorSuggestIndex(int doctors) {
+        String[] specializations = {"Cardiology", "Pediatrics", "Dermatology", "Neurology", "Oncology"};
+        List<DoctorMinimalRow> rows = new ArrayList<>(doctors + 1);
+        for (long id = 1; id <= doctors; id++) {
+            rows.add(new DoctorMinimalRow(id, "Dr. Name" + id, specializations[(int) (id % specializations.length)], null));
+        }
+        rows.add(new DoctorMinimalRow(doctors + 1L, "Dr. Igizeneza", "Cardiology", null));
+        // Only findAllMinimal is called; any other repository method is a fixture bug
+        DoctorRepository repository = (DoctorRepository) Proxy.newProxyInstance(DoctorRepository.class.getClassLoader(),
+                new Class<?>[]{DoctorRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAllMinimal")) {
+                        return rows;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        DoctorSuggestIndex index = new DoctorSuggestIndex();
+        inject(index, "doctorRepository", repository);
+        return index;
+    }
+
+    static PatientService patientService(LocationResolver resolver) {
+        PatientService service = new PatientService();
+        inject(service, "locationResolver", resolver);
+        return service;
+    }
+
+    static DoctorService doctorService(LocationResolver resolver) {
+        DoctorService service = new DoctorService();
+        inject(service, "locationResolver", resolver);
+        return service;
+    }
+
+    /**
+     * Configured like the application's mapper: Java time module, ISO dates.
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * A full hierarchy ending in {@code villageId}, with every parent loaded as it would be after a
+     * cache-missing walk.
+     */
+    static Village village(long villageId) {
+        Province province = new Province();
+        province.setId(1L);
+        province.setCode("KGL");
+        province.setName("Kigali");
+
+        District district = new District();
+        district.setId(2L);
+        district.setCode("GAS");
+        district.setName("Gasabo");
+        district.setProvince(province);
+
+        Sector sector = new Sector();
+        sector.setId(3L);
+        sector.setCode("GIS");
+        sector.setName("Gisozi");
+        sector.setDistrict(district);
+
+        Cell cell = new Cell();
+        cell.setId(4L);
+        cell.setCode("KAC");
+        cell.setName("Kacyiru");
+        cell.setSector(sector);
+
+        Village village = new Village();
+        village.setId(villageId);
+        village.setCode("V" + villageId);
+        village.setName("Village " + villageId);
+        village.setCell(cell);
+        return village;
+    }
+
+    static Patient patient(int appointments, Village village) {
+        Patient patient = new Patient();
+        patient.setId(7L);
+        patient.setName("Uwase Aline");
+        patient.setDob(LocalDate.of(1991, 4, 12));
+        patient.setGender("Female");
+        patient.setPhone("+250788123456");
+        patient.setEmail("aline@example.com");
+        patient.setVillage(village);
+
+        Doctor doctor = doctor(0, village);
+        for (int i = 0; i < appointments; i++) {
+            patient.getAppointments().add(appointment(i, doctor, patient));
+        }
+        return patient;
+    }
+
+    static Doctor doctor(int appointments, Village village) {
+        Person person = new Person();
+        person.setId(3L);
+        person.setName("Dr. Igizeneza");
+        person.setVillage(village);
+
+        Doctor doctor = new Doctor();
+        doctor.setId(3L);
+        doctor.setName("Dr. Igizeneza");
+        doctor.setSpecialization("Cardiology");
+        doctor.setPhone("+250788000001");
+        doctor.setEmail("igizeneza@clinic.rw");
+        doctor.setPerson(person);
+
+        Patient patient = new Patient();
+        patient.setId(7L);
+        patient.setName("Uwase Aline");
+        for (int i = 0; i < appointments; i++) {
+            doctor.getAppointments().add(appointment(i, doctor, patient));
+        }
+        return doctor;
+    }
+
+    private static Appointment appointment(int i, Doctor doctor, Patient patient) {
+        Appointment appointment = new Appointment();
+        appointment.setId(1_000L + i);
+        appointment.setAppointmentDate(LocalDateTime.of(2025, 11, 10, 8, 0).plusMinutes(30L * i));
+        appointment.setStatus(AppointmentStatus.SCHEDULED);
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        return appointment;
+    }
+
+    private static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,50 @@
+package com.auca.clinic_system.benchmarks;
+
+import com.auca.clinic_system.dto.DoctorDTO;
+import com.auca.clinic_system.dto.PatientDTO;
+import com.auca.clinic_system.service.LocationResolver;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of ready-made DTOs to bytes, per call, with {@code appointments} embedded
+ * summaries. Conversion is done once in setup, so this isolates the JSON cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int appointments;
+
+    private ObjectMapper objectMapper;
+    private PatientDTO patient;
+    private DoctorDTO doctor;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        LocationResolver locationResolver = Fixtures.locationResolver();
+        patient = Fixtures.patientService(locationResolver)
+                .convertToDTO(Fixtures.patient(appointments, Fixtures.village(1)));
+        doctor = Fixtures.doctorService(locationResolver)
+                .convertToDTO(Fixtures.doctor(appointments, Fixtures.village(1)));
+    }
+
+    @Benchmark
+    public byte[] serializePatient() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(patient);
+    }
+
+    @Benchmark
+    public byte[] serializeDoctor() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(doctor);
+    }
+}
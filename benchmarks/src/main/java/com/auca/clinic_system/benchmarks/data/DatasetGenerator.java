@@ -0,0 +1,382 @@
+package com.auca.clinic_system.benchmarks.data;
+
+import com.auca.clinic_system.benchmarks.Args;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Fills a local PostgreSQL database with a Rwanda-shaped location hierarchy and skewed clinic data,
+ * loaded through COPY in batches of {@value #COPY_BATCH} rows.
+ *
+ * <p>The hierarchy has the 5 provinces and 30 districts by name, plus about 416 sectors, 2,150 cells
+ * and 14,800 villages spread unevenly under them. Persons, doctors, patients and appointments are
+ * then drawn with Zipf skew: a few villages hold many residents, a few specializations hold most
+ * doctors, and a few doctors and patients account for most appointments. Appointment times are
+ * unique per doctor, within 08:00-17:00, from a year back to two months ahead.
+ *
+ * <p>The schema must exist: start the application once against the database first. The database
+ * must be empty unless {@code --reset=true}, which truncates every clinic table. The same
+ * {@code --seed} always produces the same data.
+ */
+public final class DatasetGenerator {
+
+    static final int COPY_BATCH = 50_000;
+
+    static final String[][] PROVINCES = {
+            {"KGL", "Kigali City"}, {"STH", "Southern Province"}, {"WST", "Western Province"},
+            {"NTH", "Northern Province"}, {"EST", "Eastern Province"}
+    };
+    static final String[][] DISTRICTS = {
+            {"Gasabo", "Kicukiro", "Nyarugenge"},
+            {"Gisagara", "Huye", "Kamonyi", "Muhanga", "Nyamagabe", "Nyanza", "Nyaruguru", "Ruhango"},
+            {"Karongi", "Ngororero", "Nyabihu", "Nyamasheke", "Rubavu", "Rusizi", "Rutsiro"},
+            {"Burera", "Gakenke", "Gicumbi", "Musanze", "Rulindo"},
+            {"Bugesera", "Gatsibo", "Kayonza", "Kirehe", "Ngoma", "Nyagatare", "Rwamagana"}
+    };
+    static final int SECTORS = 416;
+    static final int CELLS = 2_150;
+    static final int VILLAGES = 14_800;
+
+    // Most common first; doctors are drawn with Zipf skew over this order
+    static final String[] SPECIALIZATIONS = {
+            "General Practice", "Pediatrics", "Gynecology", "Internal Medicine", "Dentistry", "Ophthalmology",
+            "Cardiology", "Orthopedics", "Dermatology", "Psychiatry", "Neurology", "Oncology"
+    };
+    static final String[] FIRST_NAMES = {
+            "Aline", "Jean", "Claudine", "Eric", "Diane", "Patrick", "Grace", "Emmanuel", "Josiane", "Olivier",
+            "Chantal", "Innocent", "Divine", "Fabrice", "Solange", "Thierry", "Esperance", "Didier", "Clarisse", "Yves"
+    };
+    static final String[] LAST_NAMES = {
+            "Uwase", "Mugisha", "Niyonzima", "Habimana", "Uwimana", "Nshimiyimana", "Mukamana", "Hakizimana",
+            "Ingabire", "Bizimana", "Uwineza", "Ndayisaba", "Mutoni", "Tuyisenge", "Igizeneza", "Kamanzi"
+    };
+
+    static final int DAYS_BACK = 365;
+    static final int DAYS_AHEAD = 60;
+    static final int SLOTS_PER_DAY = 18;
+
+    private final Random random;
+
+    DatasetGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        String url = args.get("url", "jdbc:postgresql://localhost:5000/clinicDb");
+        int persons = args.getInt("persons", 20_000);
+        int doctors = args.getInt("doctors", 2_000);
+        int patients = args.getInt("patients", 200_000);
+        int appointments = args.getInt("appointments", 1_000_000);
+        boolean reset = Boolean.parseBoolean(args.get("reset", "false"));
+
+        try (Connection connection = DriverManager.getConnection(url, args.get("user", "postgres"), args.get("password", "1243"))) {
+            connection.setAutoCommit(false);
+            DatasetGenerator generator = new DatasetGenerator(args.getLong("seed", 42));
+            generator.prepare(connection, reset);
+            generator.generate(connection, persons, doctors, patients, appointments);
+            connection.commit();
+
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE");
+            }
+        }
+    }
+
+    private void prepare(Connection connection, boolean reset) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT to_regclass('public.appointments') IS NOT NULL")) {
+                rs.next();
+                if (!rs.getBoolean(1)) {
+                    throw new IllegalStateException("No clinic schema in this database; start the application against it once first");
+                }
+            }
+            if (reset) {
+                statement.execute("TRUNCATE appointments, patient_doctor, patients, doctors, persons, "
+                        + "villages, cells, sectors, districts, provinces RESTART IDENTITY CASCADE");
+                return;
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM provinces)")) {
+                rs.next();
+                if (rs.getBoolean(1)) {
+                    throw new IllegalStateException("Database already has data; pass --reset=true to replace it");
+                }
+            }
+        }
+    }
+
+    private void generate(Connection connection, int persons, int doctors, int patients, int appointments)
+            throws SQLException, IOException {
+        CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+
+        int villages = generateLocations(copy);
+        // Residents cluster in a few villages, in no geographic order
+        Zipf villageOfResident = new Zipf(villages, 0.7, random);
+
+        long started = System.nanoTime();
+        int totalPersons = persons + doctors;
+        try (CopyBatch rows = new CopyBatch(copy, "persons", "id, name, email, phone, village_id")) {
+            for (int id = 1; id <= totalPersons; id++) {
+                rows.add(id, name(), "person" + id + "@example.rw", phone(), villageOfResident.next() + 1);
+            }
+        }
+        report("persons", totalPersons, started);
+
+        started = System.nanoTime();
+        Zipf specialization = new Zipf(SPECIALIZATIONS.length, 1.0, random, false);
+        try (CopyBatch rows = new CopyBatch(copy, "doctors", "id, name, specialization, phone, email, person_id")) {
+            for (int id = 1; id <= doctors; id++) {
+                rows.add(id, "Dr. " + name(), SPECIALIZATIONS[specialization.next()], phone(),
+                        "doctor" + id + "@clinic.rw", persons + id);
+            }
+        }
+        report("doctors", doctors, started);
+
+        started = System.nanoTime();
+        try (CopyBatch rows = new CopyBatch(copy, "patients", "id, name, dob, gender, phone, email, village_id")) {
+            LocalDate today = LocalDate.now();
+            for (int id = 1; id <= patients; id++) {
+                // Skewed young, as in the population
+                int age = (int) Math.min(95, Math.abs(random.nextGaussian() * 22 + 18));
+                rows.add(id, name(), today.minusYears(age).minusDays(random.nextInt(365)),
+                        random.nextInt(100) < 52 ? "Female" : "Male", phone(), "patient" + id + "@example.rw",
+                        villageOfResident.next() + 1);
+            }
+        }
+        report("patients", patients, started);
+
+        started = System.nanoTime();
+        generateAppointments(copy, doctors, patients, appointments);
+        report("appointments", appointments, started);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[]{"provinces", "districts", "sectors", "cells", "villages", "persons", "doctors"}) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), "
+                        + "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + "), false)");
+            }
+            // Pooled sequences: move past the loaded ids, as in the README migration note
+            statement.execute("SELECT setval('patients_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM patients))");
+            statement.execute("SELECT setval('appointments_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM appointments))");
+        }
+    }
+
+    private int generateLocations(CopyManager copy) throws SQLException, IOException {
+        long started = System.nanoTime();
+        int districtCount = Arrays.stream(DISTRICTS).mapToInt(names -> names.length).sum();
+        int[] sectorsPerDistrict = spread(SECTORS, districtCount);
+        int[] cellsPerSector = spread(CELLS, SECTORS);
+        int[] villagesPerCell = spread(VILLAGES, CELLS);
+
+        CopyBatch provinces = new CopyBatch(copy, "provinces", "id, code, name");
+        CopyBatch districts = new CopyBatch(copy, "districts", "id, code, name, province_id");
+        CopyBatch sectors = new CopyBatch(copy, "sectors", "id, code, name, district_id");
+        CopyBatch cells = new CopyBatch(copy, "cells", "id, code, name, sector_id");
+        CopyBatch villages = new CopyBatch(copy, "villages", "id, code, name, cell_id");
+        int district = 0;
+        int sector = 0;
+        int cell = 0;
+        int village = 0;
+        for (int p = 0; p < PROVINCES.length; p++) {
+            provinces.add(p + 1, PROVINCES[p][0], PROVINCES[p][1]);
+            for (String districtName : DISTRICTS[p]) {
+                districts.add(++district, districtName.substring(0, 3).toUpperCase(Locale.ROOT) + district,
+                        districtName, p + 1);
+                for (int s = 1; s <= sectorsPerDistrict[district - 1]; s++) {
+                    sectors.add(++sector, "S" + sector, districtName + " Sector " + s, district);
+                    for (int c = 1; c <= cellsPerSector[sector - 1]; c++) {
+                        cells.add(++cell, "C" + cell, districtName + " Sector " + s + " Cell " + c, sector);
+                        for (int v = 1; v <= villagesPerCell[cell - 1]; v++) {
+                            villages.add(++village, "V" + village, "Village " + village, cell);
+                        }
+                    }
+                }
+            }
+        }
+        // Every level fits in one batch; sending them parent first satisfies the foreign keys
+        provinces.close();
+        districts.close();
+        sectors.close();
+        cells.close();
+        villages.close();
+        report("location rows", PROVINCES.length + districtCount + SECTORS + CELLS + VILLAGES, started);
+        return VILLAGES;
+    }
+
+    private void generateAppointments(CopyManager copy, int doctors, int patients, int appointments)
+            throws SQLException, IOException {
+        int days = DAYS_BACK + DAYS_AHEAD;
+        if (appointments > (long) doctors * days * SLOTS_PER_DAY / 2) {
+            throw new IllegalArgumentException("Too many appointments for " + doctors + " doctors; keep calendars under half full");
+        }
+        Zipf doctor = new Zipf(doctors, 0.9, random);
+        Zipf patient = new Zipf(patients, 1.1, random);
+        Set<Long> booked = new HashSet<>(appointments * 2);
+        LocalDateTime firstDay = LocalDate.now().minusDays(DAYS_BACK).atTime(8, 0);
+        LocalDateTime now = LocalDateTime.now();
+
+        try (CopyBatch rows = new CopyBatch(copy, "appointments",
+                "id, appointment_date, status, notes, doctor_id, patient_id")) {
+            for (int id = 1; id <= appointments; id++) {
+                long doctorId = doctor.next() + 1;
+                long slot;
+                int attempts = 0;
+                while (true) {
+                    slot = (long) random.nextInt(days) * SLOTS_PER_DAY + random.nextInt(SLOTS_PER_DAY);
+                    if (booked.add(doctorId * days * SLOTS_PER_DAY + slot)) {
+                        break;
+                    }
+                    // A doctor whose calendar keeps clashing hands the visit to someone else
+                    if (++attempts % 8 == 0) {
+                        doctorId = doctor.next() + 1;
+                    }
+                }
+
+                LocalDateTime start = firstDay.plusDays(slot / SLOTS_PER_DAY).plusMinutes(30 * (slot % SLOTS_PER_DAY));
+                AppointmentStatus status;
+                int roll = random.nextInt(100);
+                if (start.isBefore(now)) {
+                    status = roll < 85 ? AppointmentStatus.COMPLETED : AppointmentStatus.CANCELLED;
+                } else {
+                    status = roll < 95 ? AppointmentStatus.SCHEDULED : AppointmentStatus.CANCELLED;
+                }
+                // The column holds the status code, see AppointmentStatusConverter
+                rows.add(id, start, status.getCode(), roll % 10 == 0 ? "Follow-up visit" : null, doctorId, patient.next() + 1);
+            }
+        }
+    }
+
+    private String name() {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private String phone() {
+        return "+2507" + (8 + random.nextInt(2)) + String.format("%07d", random.nextInt(10_000_000));
+    }
+
+    /**
+     * Splits {@code total} children over {@code parents}, at least one each, unevenly.
+     */
+    private int[] spread(int total, int parents) {
+        double[] weights = new double[parents];
+        double sum = 0;
+        for (int i = 0; i < parents; i++) {
+            weights[i] = 0.4 + random.nextDouble() * 1.2;
+            sum += weights[i];
+        }
+        int[] counts = new int[parents];
+        int assigned = 0;
+        for (int i = 0; i < parents; i++) {
+            counts[i] = 1 + (int) ((total - parents) * weights[i] / sum);
+            assigned += counts[i];
+        }
+        for (int i = 0; assigned < total; i = (i + 1) % parents) {
+            counts[i]++;
+            assigned++;
+        }
+        return counts;
+    }
+
+    private static void report(String what, int rows, long startedNanos) {
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        System.out.printf("%,d %s in %.1fs (%,.0f rows/s)%n", rows, what, seconds, rows / seconds);
+    }
+
+    /**
+     * Zipf-distributed ranks over {@code n} items. With {@code shuffled}, ranks map to items in a
+     * random order, so the heavy items are not simply the lowest ids.
+     */
+    static final class Zipf {
+        private final double[] cumulative;
+        private final int[] items;
+        private final Random random;
+
+        Zipf(int n, double exponent, Random random) {
+            this(n, exponent, random, true);
+        }
+
+        Zipf(int n, double exponent, Random random, boolean shuffled) {
+            this.random = random;
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            items = new int[n];
+            for (int i = 0; i < n; i++) {
+                items[i] = i;
+            }
+            if (shuffled) {
+                for (int i = n - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = items[i];
+                    items[i] = items[j];
+                    items[j] = swap;
+                }
+            }
+        }
+
+        int next() {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int rank = Arrays.binarySearch(cumulative, target);
+            return items[rank >= 0 ? rank : -rank - 1];
+        }
+    }
+
+    /**
+     * Rows for one table, sent as a {@code COPY ... FROM STDIN} every {@value #COPY_BATCH} rows.
+     */
+    private static final class CopyBatch implements AutoCloseable {
+        private final CopyManager copy;
+        private final String sql;
+        private final StringBuilder buffer = new StringBuilder(1 << 20);
+        private int rows;
+
+        CopyBatch(CopyManager copy, String table, String columns) {
+            this.copy = copy;
+            this.sql = "COPY " + table + " (" + columns + ") FROM STDIN WITH (FORMAT csv)";
+        }
+
+        void add(Object... values) throws SQLException, IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                // Unquoted empty is NULL in CSV COPY; generated text never contains commas or quotes
+                if (values[i] != null) {
+                    buffer.append(values[i]);
+                }
+            }
+            buffer.append('\n');
+            if (++rows == COPY_BATCH) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException, IOException {
+            if (rows > 0) {
+                copy.copyIn(sql, new StringReader(buffer.toString()));
+                buffer.setLength(0);
+                rows = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException, IOException {
+            flush();
+        }
+    }
+}
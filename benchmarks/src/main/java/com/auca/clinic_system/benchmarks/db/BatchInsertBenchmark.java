@@ -0,0 +1,142 @@
+package com.auca.clinic_system.benchmarks.db;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.BatchItemResultDTO;
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.dto.PatientDTO;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import com.auca.clinic_system.service.AppointmentService;
+import com.auca.clinic_system.service.PatientService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code POST /api/patients/batch} or {@code /api/appointments/batch} of {@code rows} records
+ * against PostgreSQL, as a data migration would send them. The {@code rows} counter is the insert
+ * rate in rows per second. Patients get unique e-mail addresses per run and appointments go to free
+ * slots after the latest one in the database, so every row is created; the rows are left in place.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchInsertBenchmark {
+
+    private static final int DOCTORS = 50;
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private PatientService patientService;
+    private AppointmentService appointmentService;
+    private long villageId;
+    private List<Long> doctorIds;
+    private long patientId;
+    private LocalDateTime[] nextSlots;
+    private final String run = Long.toString(System.currentTimeMillis(), 36);
+    private long sequence;
+
+    private List<PatientDTO> patients;
+    private List<AppointmentDTO> appointments;
+
+    /**
+     * Reported by JMH next to the batch rate, as rows per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Inserted {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        context = ClinicContext.start();
+        patientService = context.getBean(PatientService.class);
+        appointmentService = context.getBean(AppointmentService.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Long village = jdbc.queryForObject("SELECT min(id) FROM villages", Long.class);
+        Long patient = jdbc.queryForObject("SELECT min(id) FROM patients", Long.class);
+        doctorIds = jdbc.queryForList("SELECT id FROM doctors ORDER BY id LIMIT " + DOCTORS, Long.class);
+        if (village == null || patient == null || doctorIds.size() < DOCTORS) {
+            throw new IllegalStateException("Needs villages, patients and " + DOCTORS + " doctors; run DatasetGenerator first");
+        }
+        villageId = village;
+        patientId = patient;
+
+        Timestamp latest = jdbc.queryForObject("SELECT max(appointment_date) FROM appointments", Timestamp.class);
+        LocalDate lastDay = latest != null ? latest.toLocalDateTime().toLocalDate() : LocalDate.now();
+        nextSlots = new LocalDateTime[DOCTORS];
+        Arrays.fill(nextSlots, lastDay.plusDays(1).atStartOfDay());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // Built outside the measurement: new patients and free slots for whichever of the two runs
+    @Setup(Level.Invocation)
+    public void nextBatch() {
+        patients = new ArrayList<>(rows);
+        appointments = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long n = sequence++;
+            PatientDTO patient = new PatientDTO();
+            patient.setName("Bench Patient " + n);
+            patient.setDob(LocalDate.of(1950, 1, 1).plusDays(n % 20_000));
+            patient.setGender(n % 2 == 0 ? "Female" : "Male");
+            patient.setPhone("+250780" + n);
+            patient.setEmail("bench-" + run + "-" + n + "@example.com");
+            LocationDTO location = new LocationDTO();
+            location.setVillageId(villageId);
+            patient.setLocation(location);
+            patients.add(patient);
+
+            int doctor = i % DOCTORS;
+            AppointmentDTO appointment = new AppointmentDTO();
+            appointment.setDate(nextSlots[doctor]);
+            appointment.setDoctorId(doctorIds.get(doctor));
+            appointment.setPatientId(patientId);
+            appointment.setStatus(AppointmentStatus.SCHEDULED);
+            appointments.add(appointment);
+            nextSlots[doctor] = nextSlots[doctor].plusMinutes(30);
+        }
+    }
+
+    @Benchmark
+    public List<BatchItemResultDTO> patients(Inserted inserted) {
+        return created(patientService.createPatients(patients), inserted);
+    }
+
+    @Benchmark
+    public List<BatchItemResultDTO> appointments(Inserted inserted) {
+        return created(appointmentService.createAppointments(appointments), inserted);
+    }
+
+    private static List<BatchItemResultDTO> created(List<BatchItemResultDTO> results, Inserted inserted) {
+        for (BatchItemResultDTO result : results) {
+            if (!BatchItemResultDTO.CREATED.equals(result.getStatus())) {
+                throw new IllegalStateException("Row " + result.getIndex() + " failed: " + result.getError());
+            }
+        }
+        inserted.rows += results.size();
+        return results;
+    }
+}
@@ -0,0 +1,28 @@
+package com.auca.clinic_system.benchmarks.db;
+
+import com.auca.clinic_system.ClinicSystemApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+
+/**
+ * The application without its web server, for benchmarks that go through the real repositories and
+ * transactions. It connects with the datasource settings of {@code application.properties}; pass
+ * {@code -jvmArgsAppend "-Dspring.datasource.url=..."} to JMH to point the forks at another PostgreSQL.
+ * {@code properties} are {@code name=value} pairs that take precedence over the packaged ones. Startup
+ * backfills and index loads run before the context is returned, outside any measurement.
+ */
+final class ClinicContext {
+
+    private ClinicContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(ClinicSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN")
+                .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,91 @@
+package com.auca.clinic_system.benchmarks.db;
+
+import com.auca.clinic_system.dto.DoctorMinimalDTO;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.repository.DoctorRepository;
+import com.auca.clinic_system.service.DoctorService;
+import com.auca.clinic_system.service.LocationResolver;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code /api/doctors/search} by name against PostgreSQL, loaded with {@code DatasetGenerator}.
+ * {@code entities} is the path the endpoint used to take: load the matching {@code Doctor}s, then
+ * walk to each one's person and village to build the address. {@code projection} is the current one,
+ * a single {@code findMinimalByNameContaining} query with the address resolved from memory.
+ *
+ * <p>{@code mugisha} matches about one generated doctor in 16 and {@code aline mugisha} one in 320.
+ * With {@code secondLevelCache=false} every person and village of the entity path comes from the
+ * database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DoctorSearchBenchmark {
+
+    @Param({"mugisha", "aline mugisha"})
+    public String name;
+
+    @Param({"false", "true"})
+    public boolean secondLevelCache;
+
+    private ConfigurableApplicationContext context;
+    private DoctorRepository doctorRepository;
+    private DoctorService doctorService;
+    private LocationResolver locationResolver;
+    private TransactionTemplate readOnly;
+
+    @Setup
+    public void setUp() {
+        context = ClinicContext.start(
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache,
+                "spring.jpa.properties.hibernate.cache.use_query_cache=" + secondLevelCache);
+        doctorRepository = context.getBean(DoctorRepository.class);
+        doctorService = context.getBean(DoctorService.class);
+        locationResolver = context.getBean(LocationResolver.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        if (doctorRepository.findMinimalByNameContaining(name).isEmpty()) {
+            throw new IllegalStateException("No doctor matches '" + name + "'; run DatasetGenerator first");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<DoctorMinimalDTO> entities() {
+        return readOnly.execute(status -> doctorRepository.findByNameContainingIgnoreCase(name).stream()
+                .map(this::fromEntity)
+                .toList());
+    }
+
+    @Benchmark
+    public List<DoctorMinimalDTO> projection() {
+        return readOnly.execute(status -> doctorRepository.findMinimalByNameContaining(name).stream()
+                .map(doctorService::convertRowToMinimalDTO)
+                .toList());
+    }
+
+    // The conversion the search endpoints did before they read DoctorMinimalRow
+    private DoctorMinimalDTO fromEntity(Doctor doctor) {
+        DoctorMinimalDTO dto = new DoctorMinimalDTO();
+        dto.setId(doctor.getId());
+        dto.setName(doctor.getName());
+        dto.setSpecialization(doctor.getSpecialization());
+        if (doctor.getPerson() != null && doctor.getPerson().getVillage() != null) {
+            dto.setAddress(locationResolver.resolve(doctor.getPerson().getVillage()));
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,97 @@
+package com.auca.clinic_system.benchmarks.db;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import com.auca.clinic_system.service.AppointmentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code POST /api/appointments} throughput under {@value #CLIENTS} concurrent clients against PostgreSQL,
+ * one transaction per appointment ({@code groupCommit=false}) against the group-commit path. Each
+ * client books consecutive slots of a doctor of its own, starting the day after the latest appointment
+ * in the database, so every create succeeds. The booked appointments are left in place.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(GroupCommitBenchmark.CLIENTS)
+public class GroupCommitBenchmark {
+
+    static final int CLIENTS = 64;
+
+    @State(Scope.Benchmark)
+    public static class Clinic {
+
+        @Param({"false", "true"})
+        public boolean groupCommit;
+
+        private ConfigurableApplicationContext context;
+        private AppointmentService appointmentService;
+        private List<Long> doctorIds;
+        private long patientId;
+        private LocalDateTime firstSlot;
+        private final AtomicInteger clients = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            context = ClinicContext.start("clinic.booking.group-commit.enabled=" + groupCommit);
+            appointmentService = context.getBean(AppointmentService.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            doctorIds = jdbc.queryForList("SELECT id FROM doctors ORDER BY id LIMIT " + CLIENTS, Long.class);
+            Long patient = jdbc.queryForObject("SELECT min(id) FROM patients", Long.class);
+            if (doctorIds.size() < CLIENTS || patient == null) {
+                throw new IllegalStateException("Needs " + CLIENTS + " doctors and a patient; run DatasetGenerator first");
+            }
+            patientId = patient;
+            Timestamp latest = jdbc.queryForObject("SELECT max(appointment_date) FROM appointments", Timestamp.class);
+            LocalDate lastDay = latest != null ? latest.toLocalDateTime().toLocalDate() : LocalDate.now();
+            firstSlot = lastDay.plusDays(1).atStartOfDay();
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private long doctorId;
+        private long patientId;
+        private LocalDateTime nextSlot;
+
+        @Setup
+        public void setUp(Clinic clinic) {
+            doctorId = clinic.doctorIds.get(clinic.clients.getAndIncrement());
+            patientId = clinic.patientId;
+            nextSlot = clinic.firstSlot;
+        }
+
+        AppointmentDTO next() {
+            AppointmentDTO appointment = new AppointmentDTO();
+            appointment.setDate(nextSlot);
+            appointment.setDoctorId(doctorId);
+            appointment.setPatientId(patientId);
+            appointment.setStatus(AppointmentStatus.SCHEDULED);
+            nextSlot = nextSlot.plusMinutes(30);
+            return appointment;
+        }
+    }
+
+    @Benchmark
+    public AppointmentDTO create(Clinic clinic, Client client) {
+        return clinic.appointmentService.createAppointment(client.next());
+    }
+}
@@ -0,0 +1,299 @@
+package com.auca.clinic_system.benchmarks.load;
+
+import com.auca.clinic_system.benchmarks.Args;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop load test over the {@code /api/*} endpoints of a running application. Each virtual
+ * user picks a weighted scenario, sends it, waits for the answer and repeats. Results are per
+ * scenario: requests per second, error count, p50/p90/p99/max latency. Requests during the warm-up
+ * are sent but not recorded.
+ *
+ * <p>Doctor and patient ids are discovered from the API, so any dataset works; the generated one
+ * from {@code DatasetGenerator} is the reference. Bookings go to dates 100 to 400 days ahead;
+ * a 409 for an already taken slot counts as a success.
+ *
+ * <p>{@code --mix=spike} replaces the weighted scenarios with a booking spike: half bookings, half
+ * cursor pages. Run it once against the application on platform threads and once with
+ * {@code CLINIC_VIRTUAL_THREADS=true} to compare the two execution modes; the header line says which
+ * one the application is in.
+ *
+ * <p>The process exits with status 1 when the error rate is above {@code --max-error-rate}, so a
+ * release script can gate on it.
+ */
+public final class LoadTest {
+
+    private static final String[] NAME_PREFIXES = {"uw", "mug", "niyo", "habi", "ingab", "igiz", "kama", "mutoni"};
+
+    private final String base;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private final int totalWeight;
+
+    private final List<Long> doctorIds = new ArrayList<>();
+    private final List<Long> patientIds = new ArrayList<>();
+    private final List<String> specializations = new ArrayList<>();
+    private volatile String villagesEtag;
+
+    private LoadTest(String base, String mix) {
+        this.base = base;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        switch (mix) {
+            case "default" -> addDefaultScenarios();
+            case "spike" -> {
+                scenarios.add(new Scenario("book appointment", 1, this::book, 409));
+                scenarios.add(new Scenario("patients cursor page", 1, random -> get("/api/patients?limit=20")));
+            }
+            default -> throw new IllegalArgumentException("Unknown --mix=" + mix + "; expected default or spike");
+        }
+        totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+    }
+
+    private void addDefaultScenarios() {
+        scenarios.add(new Scenario("patients cursor page", 15, random -> get("/api/patients?limit=20")));
+        scenarios.add(new Scenario("patient by id", 20, random -> get("/api/patients/" + pick(patientIds, random))));
+        scenarios.add(new Scenario("doctor by id", 10, random -> get("/api/doctors/" + pick(doctorIds, random))));
+        scenarios.add(new Scenario("doctor suggest", 10, random -> get("/api/doctors/suggest?q="
+                + NAME_PREFIXES[random.nextInt(NAME_PREFIXES.length)])));
+        scenarios.add(new Scenario("specialization roster", 10, random -> get("/api/doctors/specialization/"
+                + encode(pick(specializations, random)))));
+        scenarios.add(new Scenario("availability", 5, random -> get("/api/availability?specialization="
+                + encode(pick(specializations, random)) + "&duration=30")));
+        scenarios.add(new Scenario("villages (gzip, etag)", 5, this::villages));
+        scenarios.add(new Scenario("appointments cursor page", 10, random -> get("/api/appointments?limit=20")));
+        scenarios.add(new Scenario("book appointment", 15, this::book, 409));
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        LoadTest test = new LoadTest(args.get("base", "http://localhost:8080"), args.get("mix", "default"));
+        int users = args.getInt("users", 64);
+        Duration warmup = args.getDuration("warmup", Duration.ofSeconds(10));
+        Duration duration = args.getDuration("duration", Duration.ofSeconds(60));
+        double maxErrorRate = args.getDouble("max-error-rate", 0.01);
+
+        test.discover();
+        System.out.printf("%d users, %ds warm-up, %ds measured against %s on %s threads%n",
+                users, warmup.toSeconds(), duration.toSeconds(), test.base, test.executionMode());
+        double errorRate = test.run(users, warmup, duration);
+        if (errorRate > maxErrorRate) {
+            System.out.printf("FAILED: error rate %.2f%% is above %.2f%%%n", errorRate * 100, maxErrorRate * 100);
+            System.exit(1);
+        }
+    }
+
+    private void discover() throws Exception {
+        for (JsonNode doctor : getJson("/api/doctors?limit=200").path("items")) {
+            doctorIds.add(doctor.path("id").asLong());
+        }
+        for (JsonNode patient : getJson("/api/patients?limit=200").path("items")) {
+            patientIds.add(patient.path("id").asLong());
+        }
+        for (JsonNode specialization : getJson("/api/doctors/specializations")) {
+            specializations.add(specialization.path("specialization").asText());
+        }
+        if (doctorIds.isEmpty() || patientIds.isEmpty() || specializations.isEmpty()) {
+            throw new IllegalStateException("No doctors or patients to test with; run DatasetGenerator first");
+        }
+    }
+
+    // The concurrency cap's meters only exist when the application runs on virtual threads
+    private String executionMode() throws Exception {
+        return get("/actuator/metrics/clinic.db.concurrency.active") == 200 ? "virtual" : "platform";
+    }
+
+    private double run(int users, Duration warmup, Duration duration) throws Exception {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+
+        List<Recorder> recorders = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int u = 0; u < users; u++) {
+                Recorder recorder = new Recorder(scenarios.size());
+                recorders.add(recorder);
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < stopAt) {
+                        int index = pickScenario(random);
+                        Scenario scenario = scenarios.get(index);
+                        long sent = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = scenario.accepts(scenario.request().send(random));
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        if (sent >= measureFrom) {
+                            recorder.record(index, System.nanoTime() - sent, ok);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return report(recorders, duration);
+    }
+
+    private double report(List<Recorder> recorders, Duration duration) {
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%-26s %9s %8s %7s %8s %8s %8s %8s%n", "scenario", "req/s", "requests", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "max ms");
+        long allRequests = 0;
+        long allErrors = 0;
+        List<long[]> everything = new ArrayList<>();
+        for (int s = 0; s < scenarios.size(); s++) {
+            int scenario = s;
+            long[] latencies = Recorder.merge(recorders, scenario);
+            long errors = recorders.stream().mapToLong(r -> r.errors[scenario]).sum();
+            printRow(scenarios.get(scenario).name(), latencies, errors, seconds);
+            allRequests += latencies.length;
+            allErrors += errors;
+            everything.add(latencies);
+        }
+        long[] all = everything.stream().flatMapToLong(Arrays::stream).toArray();
+        printRow("total", all, allErrors, seconds);
+        return allRequests == 0 ? 1.0 : (double) allErrors / allRequests;
+    }
+
+    private static void printRow(String name, long[] latencies, long errors, double seconds) {
+        Arrays.sort(latencies);
+        System.out.printf("%-26s %9.1f %8d %7d %8.1f %8.1f %8.1f %8.1f%n", name, latencies.length / seconds,
+                latencies.length, errors, percentile(latencies, 0.50), percentile(latencies, 0.90),
+                percentile(latencies, 0.99), percentile(latencies, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sorted.length * fraction) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private int pickScenario(Random random) {
+        int roll = random.nextInt(totalWeight);
+        for (int i = 0; i < scenarios.size(); i++) {
+            roll -= scenarios.get(i).weight();
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return scenarios.size() - 1;
+    }
+
+    private int villages(Random random) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + "/api/locations/villages"))
+                .header("Accept-Encoding", "gzip");
+        String etag = villagesEtag;
+        // Half the clients revalidate, the other half download in full
+        if (etag != null && random.nextBoolean()) {
+            request.header("If-None-Match", etag);
+        }
+        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        response.headers().firstValue("ETag").ifPresent(value -> villagesEtag = value);
+        return response.statusCode() == 304 ? 200 : response.statusCode();
+    }
+
+    private int book(Random random) throws Exception {
+        String date = LocalDate.now().plusDays(100 + random.nextInt(300))
+                .atTime(8 + random.nextInt(9), random.nextBoolean() ? 0 : 30).toString();
+        String body = "{\"date\":\"" + date + "\",\"doctorId\":" + pick(doctorIds, random)
+                + ",\"patientId\":" + pick(patientIds, random) + ",\"status\":\"SCHEDULED\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/appointments"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private JsonNode getJson(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path)).build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static <T> T pick(List<T> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        int send(Random random) throws Exception;
+    }
+
+    /**
+     * A named request with a relative weight. Any 2xx is a success, plus the listed extra statuses.
+     */
+    private record Scenario(String name, int weight, Request request, int... alsoAccepted) {
+        boolean accepts(int status) {
+            return status / 100 == 2 || Arrays.stream(alsoAccepted).anyMatch(accepted -> accepted == status);
+        }
+    }
+
+    /**
+     * One virtual user's latencies, kept per scenario without sharing between threads.
+     */
+    private static final class Recorder {
+        private final long[][] latencies;
+        private final int[] counts;
+        private final long[] errors;
+
+        Recorder(int scenarios) {
+            latencies = new long[scenarios][1024];
+            counts = new int[scenarios];
+            errors = new long[scenarios];
+        }
+
+        void record(int scenario, long nanos, boolean ok) {
+            if (counts[scenario] == latencies[scenario].length) {
+                latencies[scenario] = Arrays.copyOf(latencies[scenario], counts[scenario] * 2);
+            }
+            latencies[scenario][counts[scenario]++] = nanos;
+            if (!ok) {
+                errors[scenario]++;
+            }
+        }
+
+        static long[] merge(List<Recorder> recorders, int scenario) {
+            return recorders.stream()
+                    .flatMapToLong(r -> Arrays.stream(r.latencies[scenario], 0, r.counts[scenario]))
+                    .toArray();
+        }
+    }
+}
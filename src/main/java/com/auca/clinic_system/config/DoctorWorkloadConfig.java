@@ -0,0 +1,51 @@
+package com.auca.clinic_system.config;
+
+import com.auca.clinic_system.service.DoctorWorkloadBackfill;
+import com.auca.clinic_system.service.DoctorWorkloadListener;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Maintains the per-doctor daily workload aggregate behind {@code GET /api/doctors/{id}/workload}:
+ * registers {@link DoctorWorkloadListener} for appointment writes and, unless
+ * {@code clinic.workload.backfill-on-startup=false}, fills the table on startup when it is empty but
+ * appointments already exist.
+ */
+@Configuration(proxyBeanMethods = false)
+public class DoctorWorkloadConfig {
+
+    @Bean
+    DoctorWorkloadListener doctorWorkloadListener() {
+        return new DoctorWorkloadListener();
+    }
+
+    @Bean
+    SmartInitializingSingleton doctorWorkloadTracking(EntityManagerFactory entityManagerFactory,
+                                                      DoctorWorkloadListener listener) {
+        return () -> {
+            EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry()
+                    .getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.POST_INSERT, listener);
+            registry.appendListeners(EventType.POST_UPDATE, listener);
+            registry.appendListeners(EventType.POST_DELETE, listener);
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "clinic.workload.backfill-on-startup", havingValue = "true", matchIfMissing = true)
+    ApplicationRunner doctorWorkloadBackfillOnStartup(DoctorWorkloadBackfill backfill) {
+        return arguments -> {
+            if (backfill.isNeeded()) {
+                backfill.rebuild();
+            }
+        };
+    }
+}
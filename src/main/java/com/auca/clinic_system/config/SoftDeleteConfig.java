@@ -0,0 +1,23 @@
+package com.auca.clinic_system.config;
+
+import com.auca.clinic_system.service.SoftDeletePurger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * With {@code clinic.delete.soft.enabled=true}, deleting a patient or doctor only marks its row, which
+ * hides it from every query at once, and {@link SoftDeletePurger} removes marked rows and their
+ * appointments in the background.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "clinic.delete.soft.enabled", havingValue = "true")
+@EnableScheduling
+public class SoftDeleteConfig {
+
+    @Bean
+    SoftDeletePurger softDeletePurger() {
+        return new SoftDeletePurger();
+    }
+}
@@ -0,0 +1,77 @@
+package com.auca.clinic_system.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Active when {@code spring.threads.virtual.enabled=true}. Spring Boot then runs Tomcat requests,
+ * and with them the {@code @Transactional} services they call, on virtual threads. This adds the
+ * database concurrency cap those threads need: see {@link ConcurrencyLimitedDataSource}.
+ *
+ * <p>{@code clinic.db.max-concurrency} defaults to the Hikari pool size and
+ * {@code clinic.db.acquire-timeout} to two seconds. The cap is published as
+ * {@code clinic.db.concurrency.active} and {@code clinic.db.concurrency.waiting}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    static BeanPostProcessor databaseConcurrencyLimit(Environment environment) {
+        return new ConcurrencyLimitPostProcessor(environment);
+    }
+
+    @Bean
+    MeterBinder databaseConcurrencyMetrics(DataSource dataSource) throws SQLException {
+        if (!dataSource.isWrapperFor(ConcurrencyLimitedDataSource.class)) {
+            return registry -> { };
+        }
+        ConcurrencyLimitedDataSource limited = dataSource.unwrap(ConcurrencyLimitedDataSource.class);
+        return registry -> {
+            Gauge.builder("clinic.db.concurrency.active", limited, ConcurrencyLimitedDataSource::getActive)
+                    .description("Connections checked out under the concurrency cap").register(registry);
+            Gauge.builder("clinic.db.concurrency.waiting", limited, ConcurrencyLimitedDataSource::getWaiting)
+                    .description("Threads waiting for a database permit").register(registry);
+        };
+    }
+
+    /**
+     * Runs before the other DataSource wrappers, so the cap sits directly on the pool and anything
+     * timing {@code getConnection} from outside sees the wait for a permit.
+     */
+    static class ConcurrencyLimitPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final Environment environment;
+
+        ConcurrencyLimitPostProcessor(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+                return bean;
+            }
+            int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+            int maxConcurrency = environment.getProperty("clinic.db.max-concurrency", Integer.class, poolSize);
+            Duration acquireTimeout = environment.getProperty("clinic.db.acquire-timeout", Duration.class, Duration.ofSeconds(2));
+            return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
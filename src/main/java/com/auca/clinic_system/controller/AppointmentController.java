@@ -1,15 +1,28 @@
 package com.auca.clinic_system.controller;
 
+import com.auca.clinic_system.dto.BatchItemResultDTO;
+import com.auca.clinic_system.dto.CursorPageDTO;
 import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.AppointmentPatchDTO;
+import com.auca.clinic_system.dto.AppointmentStatsDTO;
+import com.auca.clinic_system.dto.PatchResultDTO;
+import com.auca.clinic_system.metrics.QueryBudget;
+import com.auca.clinic_system.service.AppointmentChangeStream;
 import com.auca.clinic_system.service.AppointmentService;
+import com.auca.clinic_system.service.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,6 +32,10 @@ public class AppointmentController {
     @Autowired
     private AppointmentService appointmentService;
     
+    @Autowired
+    private AppointmentChangeStream changeStream;
+    
+    @QueryBudget(8)
     @GetMapping
     public ResponseEntity<List<AppointmentDTO>> getAllAppointments(
             @RequestParam(required = false) Integer page,
@@ -34,6 +51,28 @@ public class AppointmentController {
         return ResponseEntity.ok(appointmentService.getAllAppointments());
     }
     
+    @QueryBudget(8)
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPageDTO<AppointmentDTO>> getAppointmentsByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam Integer limit) {
+        return ResponseEntity.ok(appointmentService.getAppointmentsAfter(after, KeysetCursor.limit(limit)));
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAppointments() {
+        StreamingResponseBody body = appointmentService::exportAppointments;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    // Changes after commit, for one doctor or all of them, instead of polling the lists
+    @QueryBudget(0)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAppointments(@RequestParam(required = false) Long doctorId) {
+        return changeStream.subscribe(doctorId);
+    }
+    
+    @QueryBudget(6)
     @GetMapping("/{id}")
     public ResponseEntity<AppointmentDTO> getAppointmentById(@PathVariable Long id) {
         return appointmentService.getAppointmentById(id)
@@ -41,27 +80,49 @@ public class AppointmentController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @QueryBudget(8)
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<AppointmentDTO>> getAppointmentsByStatus(@PathVariable String status) {
-        return ResponseEntity.ok(appointmentService.getAppointmentsByStatus(status));
+    public ResponseEntity<List<AppointmentDTO>> getAppointmentsByStatus(
+            @PathVariable String status,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(appointmentService.getAppointmentsByStatus(status, Math.max(page, 0), KeysetCursor.limit(size))
+                .getContent());
     }
     
+    @QueryBudget(1)
+    @GetMapping("/stats")
+    public ResponseEntity<AppointmentStatsDTO> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Long doctorId) {
+        return ResponseEntity.ok(appointmentService.getStats(date != null ? date : LocalDate.now(), doctorId));
+    }
+    
+    @QueryBudget(8)
     @GetMapping("/doctor/{doctorId}")
     public ResponseEntity<List<AppointmentDTO>> getAppointmentsByDoctorId(@PathVariable Long doctorId) {
         return ResponseEntity.ok(appointmentService.getAppointmentsByDoctorId(doctorId));
     }
     
+    @QueryBudget(8)
     @GetMapping("/patient/{patientId}")
     public ResponseEntity<List<AppointmentDTO>> getAppointmentsByPatientId(@PathVariable Long patientId) {
         return ResponseEntity.ok(appointmentService.getAppointmentsByPatientId(patientId));
     }
     
+    @QueryBudget(10)
     @PostMapping
     public ResponseEntity<AppointmentDTO> createAppointment(@RequestBody AppointmentDTO appointmentDTO) {
         AppointmentDTO savedAppointment = appointmentService.createAppointment(appointmentDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedAppointment);
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResultDTO>> createAppointments(@RequestBody List<AppointmentDTO> appointmentDTOs) {
+        return ResponseEntity.ok(appointmentService.createAppointments(appointmentDTOs));
+    }
+    
+    @QueryBudget(10)
     @PutMapping("/{id}")
     public ResponseEntity<AppointmentDTO> updateAppointment(@PathVariable Long id, @RequestBody AppointmentDTO appointmentDTO) {
         return appointmentService.updateAppointment(id, appointmentDTO)
@@ -69,6 +130,15 @@ public class AppointmentController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @QueryBudget(10)
+    @PatchMapping("/{id}")
+    public ResponseEntity<PatchResultDTO> patchAppointment(@PathVariable Long id, @RequestBody AppointmentPatchDTO patch) {
+        return appointmentService.patchAppointment(id, patch)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @QueryBudget(10)
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAppointment(@PathVariable Long id) {
         if (appointmentService.deleteAppointment(id)) {
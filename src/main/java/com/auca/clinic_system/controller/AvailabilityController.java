@@ -0,0 +1,31 @@
+package com.auca.clinic_system.controller;
+
+import com.auca.clinic_system.dto.AvailableSlotDTO;
+import com.auca.clinic_system.metrics.QueryBudget;
+import com.auca.clinic_system.service.AvailabilityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/availability")
+public class AvailabilityController {
+    
+    @Autowired
+    private AvailabilityService availabilityService;
+    
+    @QueryBudget(3)
+    @GetMapping
+    public ResponseEntity<List<AvailableSlotDTO>> getAvailableSlots(
+            @RequestParam String specialization,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer duration,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(availabilityService.findAvailableSlots(specialization, from, to, duration, limit));
+    }
+}
@@ -1,16 +1,27 @@
 package com.auca.clinic_system.controller;
 
+import com.auca.clinic_system.dto.CursorPageDTO;
 import com.auca.clinic_system.dto.DoctorDTO;
 import com.auca.clinic_system.dto.DoctorMinimalDTO;
+import com.auca.clinic_system.dto.DoctorPatchDTO;
+import com.auca.clinic_system.dto.DoctorWorkloadDTO;
+import com.auca.clinic_system.dto.PatchResultDTO;
+import com.auca.clinic_system.dto.SpecializationCountDTO;
+import com.auca.clinic_system.metrics.QueryBudget;
 import com.auca.clinic_system.service.DoctorService;
+import com.auca.clinic_system.service.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -20,6 +31,7 @@ public class DoctorController {
     @Autowired
     private DoctorService doctorService;
     
+    @QueryBudget(10)
     @GetMapping
     public ResponseEntity<List<DoctorDTO>> getAllDoctors(
             @RequestParam(required = false) Integer page,
@@ -35,6 +47,21 @@ public class DoctorController {
         return ResponseEntity.ok(doctorService.getAllDoctors());
     }
     
+    @QueryBudget(10)
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPageDTO<DoctorDTO>> getDoctorsByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam Integer limit) {
+        return ResponseEntity.ok(doctorService.getDoctorsAfter(after, KeysetCursor.limit(limit)));
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDoctors() {
+        StreamingResponseBody body = doctorService::exportDoctors;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    @QueryBudget(8)
     @GetMapping("/{id}")
     public ResponseEntity<DoctorDTO> getDoctorById(@PathVariable Long id) {
         return doctorService.getDoctorById(id)
@@ -42,27 +69,57 @@ public class DoctorController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @QueryBudget(2)
+    @GetMapping("/{id}/workload")
+    public ResponseEntity<DoctorWorkloadDTO> getDoctorWorkload(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return doctorService.getWorkload(id, from, to)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @QueryBudget(3)
+    @GetMapping("/suggest")
+    public ResponseEntity<List<DoctorMinimalDTO>> suggestDoctors(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(doctorService.suggestDoctors(q, limit));
+    }
+    
+    @QueryBudget(3)
     @GetMapping("/search/name")
     public ResponseEntity<List<DoctorMinimalDTO>> searchDoctorsByName(@RequestParam String name) {
         return ResponseEntity.ok(doctorService.searchDoctorsByName(name));
     }
     
+    @QueryBudget(4)
     @GetMapping("/search/specialization")
     public ResponseEntity<List<DoctorMinimalDTO>> searchDoctorsBySpecialization(@RequestParam String specialization) {
         return ResponseEntity.ok(doctorService.searchDoctorsBySpecialization(specialization));
     }
     
+    @QueryBudget(3)
+    @GetMapping("/specializations")
+    public ResponseEntity<List<SpecializationCountDTO>> getSpecializations() {
+        return ResponseEntity.ok(doctorService.getSpecializations());
+    }
+    
+    @QueryBudget(4)
     @GetMapping("/specialization/{specialization}")
     public ResponseEntity<List<DoctorMinimalDTO>> getDoctorsBySpecialization(@PathVariable String specialization) {
         return ResponseEntity.ok(doctorService.getDoctorsBySpecialization(specialization));
     }
     
+    @QueryBudget(10)
     @PostMapping
     public ResponseEntity<DoctorDTO> createDoctor(@RequestBody DoctorDTO doctorDTO) {
         DoctorDTO savedDoctor = doctorService.createDoctor(doctorDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedDoctor);
     }
     
+    @QueryBudget(10)
     @PutMapping("/{id}")
     public ResponseEntity<DoctorDTO> updateDoctor(@PathVariable Long id, @RequestBody DoctorDTO doctorDTO) {
         return doctorService.updateDoctor(id, doctorDTO)
@@ -70,6 +127,15 @@ public class DoctorController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @QueryBudget(3)
+    @PatchMapping("/{id}")
+    public ResponseEntity<PatchResultDTO> patchDoctor(@PathVariable Long id, @RequestBody DoctorPatchDTO patch) {
+        return doctorService.patchDoctor(id, patch)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @QueryBudget(10)
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteDoctor(@PathVariable Long id) {
         if (doctorService.deleteDoctor(id)) {
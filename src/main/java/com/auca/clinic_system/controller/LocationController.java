@@ -1,9 +1,16 @@
 package com.auca.clinic_system.controller;
 
 import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.metrics.QueryBudget;
 import com.auca.clinic_system.repository.*;
+import com.auca.clinic_system.service.LocationJsonCache;
+import com.auca.clinic_system.service.LocationJsonCache.Level;
+import com.auca.clinic_system.service.LocationResolver;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,10 +35,17 @@ public class LocationController {
     @Autowired
     private VillageRepository villageRepository;
     
+    @Autowired
+    private LocationResolver locationResolver;
+    
+    @Autowired
+    private LocationJsonCache locationJsonCache;
+    
     // Province endpoints
+    @QueryBudget(1)
     @GetMapping("/provinces")
-    public ResponseEntity<List<Province>> getAllProvinces() {
-        return ResponseEntity.ok(provinceRepository.findAll());
+    public ResponseEntity<byte[]> getAllProvinces(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return cachedList(Level.PROVINCES, acceptEncoding);
     }
     
     @GetMapping("/provinces/{id}")
@@ -44,13 +58,16 @@ public class LocationController {
     @PostMapping("/provinces")
     public ResponseEntity<Province> createProvince(@RequestBody Province province) {
         Province savedProvince = provinceRepository.save(province);
+        locationResolver.refresh();
+        locationJsonCache.invalidate(Level.PROVINCES);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedProvince);
     }
     
     // District endpoints
+    @QueryBudget(1)
     @GetMapping("/districts")
-    public ResponseEntity<List<District>> getAllDistricts() {
-        return ResponseEntity.ok(districtRepository.findAll());
+    public ResponseEntity<byte[]> getAllDistricts(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return cachedList(Level.DISTRICTS, acceptEncoding);
     }
     
     @GetMapping("/districts/{id}")
@@ -68,13 +85,16 @@ public class LocationController {
     @PostMapping("/districts")
     public ResponseEntity<District> createDistrict(@RequestBody District district) {
         District savedDistrict = districtRepository.save(district);
+        locationResolver.refresh();
+        locationJsonCache.invalidate(Level.DISTRICTS);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedDistrict);
     }
     
     // Sector endpoints
+    @QueryBudget(1)
     @GetMapping("/sectors")
-    public ResponseEntity<List<Sector>> getAllSectors() {
-        return ResponseEntity.ok(sectorRepository.findAll());
+    public ResponseEntity<byte[]> getAllSectors(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return cachedList(Level.SECTORS, acceptEncoding);
     }
     
     @GetMapping("/sectors/{id}")
@@ -92,13 +112,16 @@ public class LocationController {
     @PostMapping("/sectors")
     public ResponseEntity<Sector> createSector(@RequestBody Sector sector) {
         Sector savedSector = sectorRepository.save(sector);
+        locationResolver.refresh();
+        locationJsonCache.invalidate(Level.SECTORS);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedSector);
     }
     
     // Cell endpoints
+    @QueryBudget(1)
     @GetMapping("/cells")
-    public ResponseEntity<List<Cell>> getAllCells() {
-        return ResponseEntity.ok(cellRepository.findAll());
+    public ResponseEntity<byte[]> getAllCells(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return cachedList(Level.CELLS, acceptEncoding);
     }
     
     @GetMapping("/cells/{id}")
@@ -116,13 +139,16 @@ public class LocationController {
     @PostMapping("/cells")
     public ResponseEntity<Cell> createCell(@RequestBody Cell cell) {
         Cell savedCell = cellRepository.save(cell);
+        locationResolver.refresh();
+        locationJsonCache.invalidate(Level.CELLS);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedCell);
     }
     
     // Village endpoints
+    @QueryBudget(1)
     @GetMapping("/villages")
-    public ResponseEntity<List<Village>> getAllVillages() {
-        return ResponseEntity.ok(villageRepository.findAll());
+    public ResponseEntity<byte[]> getAllVillages(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return cachedList(Level.VILLAGES, acceptEncoding);
     }
     
     @GetMapping("/villages/{id}")
@@ -140,6 +166,29 @@ public class LocationController {
     @PostMapping("/villages")
     public ResponseEntity<Village> createVillage(@RequestBody Village village) {
         Village savedVillage = villageRepository.save(village);
+        locationResolver.refresh();
+        locationJsonCache.invalidate(Level.VILLAGES);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedVillage);
     }
+    
+    /**
+     * Sends a cached list as-is, gzipped when the client accepts it. Spring answers a matching
+     * {@code If-None-Match} with 304 and no body.
+     */
+    private ResponseEntity<byte[]> cachedList(Level level, String acceptEncoding) {
+        LocationJsonCache.Snapshot snapshot = locationJsonCache.get(level);
+        boolean gzip = LocationJsonCache.acceptsGzip(acceptEncoding);
+        byte[] body = gzip ? snapshot.getGzip() : snapshot.getJson();
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .eTag(gzip ? snapshot.getGzipEtag() : snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
 }
@@ -1,14 +1,24 @@
 package com.auca.clinic_system.controller;
 
+import com.auca.clinic_system.dto.AgeBucketDTO;
+import com.auca.clinic_system.dto.BatchItemResultDTO;
+import com.auca.clinic_system.dto.CursorPageDTO;
+import com.auca.clinic_system.dto.LocationPatientCountDTO;
+import com.auca.clinic_system.dto.PatchResultDTO;
 import com.auca.clinic_system.dto.PatientDTO;
+import com.auca.clinic_system.dto.PatientPatchDTO;
+import com.auca.clinic_system.metrics.QueryBudget;
 import com.auca.clinic_system.service.PatientService;
+import com.auca.clinic_system.service.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -19,21 +29,48 @@ public class PatientController {
     @Autowired
     private PatientService patientService;
     
+    @QueryBudget(10)
     @GetMapping
     public ResponseEntity<List<PatientDTO>> getAllPatients(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
-            @RequestParam(required = false) String sortBy) {
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge) {
         
+        boolean byAge = minAge != null || maxAge != null;
         if (page != null && size != null) {
             Sort sort = sortBy != null ? Sort.by(sortBy) : Sort.by("id");
-            Page<PatientDTO> patients = patientService.getAllPatients(PageRequest.of(page, size, sort));
+            PageRequest pageRequest = PageRequest.of(page, size, sort);
+            Page<PatientDTO> patients = byAge
+                    ? patientService.getPatientsByAge(minAge, maxAge, pageRequest)
+                    : patientService.getAllPatients(pageRequest);
             return ResponseEntity.ok(patients.getContent());
         }
         
+        if (byAge) {
+            return ResponseEntity.ok(patientService.getPatientsByAge(minAge, maxAge));
+        }
         return ResponseEntity.ok(patientService.getAllPatients());
     }
     
+    @QueryBudget(10)
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPageDTO<PatientDTO>> getPatientsByCursor(
+            @RequestParam(required = false) String after,
+            @RequestParam Integer limit,
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge) {
+        return ResponseEntity.ok(patientService.getPatientsAfter(after, KeysetCursor.limit(limit), minAge, maxAge));
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportPatients() {
+        StreamingResponseBody body = patientService::exportPatients;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    @QueryBudget(8)
     @GetMapping("/{id}")
     public ResponseEntity<PatientDTO> getPatientById(@PathVariable Long id) {
         return patientService.getPatientById(id)
@@ -41,32 +78,60 @@ public class PatientController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @QueryBudget(10)
     @GetMapping("/gender/{gender}")
     public ResponseEntity<List<PatientDTO>> getPatientsByGender(@PathVariable String gender) {
         return ResponseEntity.ok(patientService.getPatientsByGender(gender));
     }
     
+    @QueryBudget(10)
     @GetMapping("/location/province/{provinceId}")
     public ResponseEntity<List<PatientDTO>> getPatientsByProvince(@PathVariable Long provinceId) {
         return ResponseEntity.ok(patientService.getPatientsByProvince(provinceId));
     }
     
+    @QueryBudget(10)
     @GetMapping("/location/district/{districtId}")
     public ResponseEntity<List<PatientDTO>> getPatientsByDistrict(@PathVariable Long districtId) {
         return ResponseEntity.ok(patientService.getPatientsByDistrict(districtId));
     }
     
+    @QueryBudget(10)
     @GetMapping("/location/sector/{sectorId}")
     public ResponseEntity<List<PatientDTO>> getPatientsBySector(@PathVariable Long sectorId) {
         return ResponseEntity.ok(patientService.getPatientsBySector(sectorId));
     }
     
+    @QueryBudget(2)
+    @GetMapping("/stats/location")
+    public ResponseEntity<List<LocationPatientCountDTO>> getLocationStats(@RequestParam String level) {
+        return ResponseEntity.ok(patientService.getLocationStats(level));
+    }
+    
+    @QueryBudget(1)
+    @GetMapping("/stats/age")
+    public ResponseEntity<List<AgeBucketDTO>> getAgeHistogram(
+            @RequestParam(defaultValue = "10") int width,
+            @RequestParam(required = false) Long provinceId,
+            @RequestParam(required = false) Long districtId,
+            @RequestParam(required = false) Long sectorId,
+            @RequestParam(required = false) String gender) {
+        return ResponseEntity.ok(patientService.getAgeHistogram(width, provinceId, districtId, sectorId, gender));
+    }
+    
+    @QueryBudget(10)
     @PostMapping
     public ResponseEntity<PatientDTO> createPatient(@RequestBody PatientDTO patientDTO) {
         PatientDTO savedPatient = patientService.createPatient(patientDTO);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedPatient);
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResultDTO>> createPatients(@RequestBody List<PatientDTO> patientDTOs) {
+        return ResponseEntity.ok(patientService.createPatients(patientDTOs));
+    }
+    
+    @QueryBudget(10)
     @PutMapping("/{id}")
     public ResponseEntity<PatientDTO> updatePatient(@PathVariable Long id, @RequestBody PatientDTO patientDTO) {
         return patientService.updatePatient(id, patientDTO)
@@ -74,6 +139,15 @@ public class PatientController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @QueryBudget(2)
+    @PatchMapping("/{id}")
+    public ResponseEntity<PatchResultDTO> patchPatient(@PathVariable Long id, @RequestBody PatientPatchDTO patch) {
+        return patientService.patchPatient(id, patch)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @QueryBudget(10)
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePatient(@PathVariable Long id) {
         if (patientService.deletePatient(id)) {
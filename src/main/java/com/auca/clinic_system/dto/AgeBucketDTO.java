@@ -0,0 +1,17 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Patients aged {@code fromAge} to {@code toAge}, both inclusive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgeBucketDTO {
+    private int fromAge;
+    private int toAge;
+    private long patients;
+}
@@ -0,0 +1,16 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Patients in one age bucket, numbered from 0, as grouped by {@code PatientRepository.countByAgeBucket}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgeBucketRow {
+    private Integer bucket;
+    private Long count;
+}
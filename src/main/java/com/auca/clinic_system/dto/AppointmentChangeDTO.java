@@ -0,0 +1,21 @@
+package com.auca.clinic_system.dto;
+
+import com.auca.clinic_system.event.ChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One event of {@code GET /api/appointments/stream}; {@code appointment} is {@code null} for deletions.
+ * A deletion without an {@code id} removed all of the doctor's appointments, or those of {@code patientId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentChangeDTO {
+    private ChangeType type;
+    private Long id;
+    private Long doctorId;
+    private Long patientId;
+    private AppointmentDTO appointment;
+}
@@ -1,5 +1,6 @@
 package com.auca.clinic_system.dto;
 
+import com.auca.clinic_system.entity.AppointmentStatus;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,8 +13,11 @@ import java.time.LocalDateTime;
 public class AppointmentDTO {
     private Long id;
     private LocalDateTime date;
+    private Long doctorId;
     private String doctorName;
+    private Long patientId;
     private String patientName;
-    private String status;
+    private AppointmentStatus status;
     private String notes;
+    private Long version;
 }
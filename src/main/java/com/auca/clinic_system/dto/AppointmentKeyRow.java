@@ -0,0 +1,16 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Id and doctor of an appointment locked for a set-based delete, enough to announce its removal.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentKeyRow {
+    private Long id;
+    private Long doctorId;
+}
@@ -0,0 +1,22 @@
+package com.auca.clinic_system.dto;
+
+import com.auca.clinic_system.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Body of {@code PATCH /api/appointments/{id}}: {@code version} as last read, plus the fields to change.
+ * Fields left {@code null} keep their value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentPatchDTO {
+    private Long version;
+    private LocalDateTime date;
+    private AppointmentStatus status;
+    private String notes;
+}
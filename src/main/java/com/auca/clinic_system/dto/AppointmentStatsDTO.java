@@ -0,0 +1,23 @@
+package com.auca.clinic_system.dto;
+
+import com.auca.clinic_system.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appointments per status on one day, in total and per doctor. Every status is present in
+ * {@code totals}; doctors without appointments that day are left out of {@code doctors}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentStatsDTO {
+    private LocalDate date;
+    private Map<AppointmentStatus, Long> totals;
+    private List<DoctorStatusCountsDTO> doctors;
+}
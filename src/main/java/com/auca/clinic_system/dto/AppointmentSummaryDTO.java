@@ -1,5 +1,6 @@
 package com.auca.clinic_system.dto;
 
+import com.auca.clinic_system.entity.AppointmentStatus;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,5 +15,5 @@ public class AppointmentSummaryDTO {
     private LocalDateTime date;
     private String patientName;
     private String doctorName;
-    private String status;
+    private AppointmentStatus status;
 }
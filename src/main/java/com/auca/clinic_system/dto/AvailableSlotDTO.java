@@ -0,0 +1,18 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableSlotDTO {
+    private Long doctorId;
+    private String doctorName;
+    private String specialization;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
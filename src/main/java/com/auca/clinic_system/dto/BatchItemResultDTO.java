@@ -0,0 +1,29 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one record of a batch request, matched to the request by its position.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDTO {
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+    
+    private int index;
+    private String status;
+    private Long id;
+    private String error;
+    
+    public static BatchItemResultDTO created(int index, Long id) {
+        return new BatchItemResultDTO(index, CREATED, id, null);
+    }
+    
+    public static BatchItemResultDTO failed(int index, String error) {
+        return new BatchItemResultDTO(index, FAILED, null, error);
+    }
+}
@@ -0,0 +1,18 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Start of one blocking appointment of a doctor, used to build availability calendars.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookedSlotRow {
+    private Long doctorId;
+    private LocalDateTime start;
+}
@@ -16,6 +16,7 @@ public class DoctorDTO {
     private String specialization;
     private String phone;
     private String email;
+    private Long version;
     private LocationDTO address;
     private List<AppointmentSummaryDTO> appointments = new ArrayList<>();
 }
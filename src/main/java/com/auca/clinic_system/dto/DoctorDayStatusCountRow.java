@@ -0,0 +1,21 @@
+package com.auca.clinic_system.dto;
+
+import com.auca.clinic_system.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Number of appointments of one doctor on one day in one status, read before a bulk delete removes them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorDayStatusCountRow {
+    private Long doctorId;
+    private LocalDate day;
+    private AppointmentStatus status;
+    private Long count;
+}
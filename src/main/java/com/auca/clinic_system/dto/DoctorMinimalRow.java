@@ -0,0 +1,18 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Flat projection row behind {@link DoctorMinimalDTO}; the address is filled in from the village id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorMinimalRow {
+    private Long id;
+    private String name;
+    private String specialization;
+    private Long villageId;
+}
@@ -0,0 +1,20 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of {@code PATCH /api/doctors/{id}}: {@code version} as last read, plus the fields to change.
+ * Fields left {@code null} keep their value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorPatchDTO {
+    private Long version;
+    private String name;
+    private String specialization;
+    private String phone;
+    private String email;
+}
@@ -0,0 +1,18 @@
+package com.auca.clinic_system.dto;
+
+import com.auca.clinic_system.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of appointments of one doctor in one status, used to seed the per-day status counters.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorStatusCountRow {
+    private Long doctorId;
+    private AppointmentStatus status;
+    private Long count;
+}
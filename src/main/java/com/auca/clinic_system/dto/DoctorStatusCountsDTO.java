@@ -0,0 +1,16 @@
+package com.auca.clinic_system.dto;
+
+import com.auca.clinic_system.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorStatusCountsDTO {
+    private Long doctorId;
+    private Map<AppointmentStatus, Long> counts;
+}
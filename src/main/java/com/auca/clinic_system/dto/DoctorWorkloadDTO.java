@@ -0,0 +1,25 @@
+package com.auca.clinic_system.dto;
+
+import com.auca.clinic_system.entity.AppointmentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appointments of one doctor per day and status between {@code from} and {@code to}, inclusive.
+ * Every status is present in {@code totals}; days without appointments are left out of {@code days}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorWorkloadDTO {
+    private Long doctorId;
+    private LocalDate from;
+    private LocalDate to;
+    private Map<AppointmentStatus, Long> totals;
+    private List<WorkloadDayDTO> days;
+}
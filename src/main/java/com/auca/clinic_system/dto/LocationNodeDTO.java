@@ -0,0 +1,23 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One province, district, sector, cell or village in a location list. {@code parentId} is the id of
+ * the enclosing level and is null for provinces.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationNodeDTO {
+    private Long id;
+    private String code;
+    private String name;
+    private Long parentId;
+
+    public LocationNodeDTO(Long id, String code, String name) {
+        this(id, code, name, null);
+    }
+}
@@ -0,0 +1,22 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Patients living in one province, district or sector, in total and per gender as recorded on the
+ * patient. {@code parentId} is the id of the enclosing level and is null for provinces.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationPatientCountDTO {
+    private Long id;
+    private String name;
+    private Long parentId;
+    private long patients;
+    private Map<String, Long> genders;
+}
@@ -0,0 +1,16 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Answer to a {@code PATCH}: the record's new version, to send with its next update.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatchResultDTO {
+    private Long id;
+    private Long version;
+}
@@ -19,6 +19,7 @@ public class PatientDTO {
     private String gender;
     private String phone;
     private String email;
+    private Long version;
     private LocationDTO location;
     private List<AppointmentSummaryDTO> appointments = new ArrayList<>();
 }
@@ -0,0 +1,23 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Body of {@code PATCH /api/patients/{id}}: {@code version} as last read, plus the fields to change.
+ * Fields left {@code null} keep their value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientPatchDTO {
+    private Long version;
+    private String name;
+    private LocalDate dob;
+    private String gender;
+    private String phone;
+    private String email;
+}
@@ -0,0 +1,13 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpecializationCountDTO {
+    private String specialization;
+    private Long doctorCount;
+}
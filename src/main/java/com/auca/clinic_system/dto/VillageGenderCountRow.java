@@ -0,0 +1,17 @@
+package com.auca.clinic_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Patients of one village and gender, as grouped by {@code PatientRepository.countByVillageAndGender}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VillageGenderCountRow {
+    private Long villageId;
+    private String gender;
+    private Long count;
+}
@@ -4,29 +4,56 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+    @Index(name = "idx_appointments_date_id", columnList = "appointmentDate, id"),
+    @Index(name = "idx_appointments_doctor_date", columnList = "doctor_id, appointmentDate"),
+    @Index(name = "idx_appointments_patient", columnList = "patient_id"),
+    @Index(name = "idx_appointments_status_date_id", columnList = "status, appointmentDate, id")
+})
+@NamedEntityGraph(
+    name = "Appointment.participants",
+    attributeNodes = {
+        @NamedAttributeNode(value = "doctor", subgraph = "doctor"),
+        @NamedAttributeNode(value = "patient", subgraph = "patient")
+    },
+    subgraphs = {
+        @NamedSubgraph(name = "doctor", attributeNodes = @NamedAttributeNode(value = "person", subgraph = "person")),
+        @NamedSubgraph(name = "person", attributeNodes = @NamedAttributeNode("village")),
+        @NamedSubgraph(name = "patient", attributeNodes = @NamedAttributeNode("village"))
+    }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Appointment {
     
+    // Pooled sequence so inserts can be sent as JDBC batches; IDENTITY disables batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+    @SequenceGenerator(name = "appointment_seq", sequenceName = "appointments_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
     private LocalDateTime appointmentDate;
     
+    @Convert(converter = AppointmentStatusConverter.class)
     @Column(nullable = false)
-    private String status;
+    private AppointmentStatus status;
     
     @Column(columnDefinition = "TEXT")
     private String notes;
     
+    // Incremented by every update; an update carrying an older value is rejected instead of overwriting
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "doctor_id", nullable = false)
     private Doctor doctor;
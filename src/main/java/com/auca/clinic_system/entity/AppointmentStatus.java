@@ -0,0 +1,55 @@
+package com.auca.clinic_system.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Lifecycle of an appointment. Stored as the {@code smallint} {@link #getCode() code} by
+ * {@link AppointmentStatusConverter}, so the codes of existing constants must never change.
+ */
+public enum AppointmentStatus {
+    SCHEDULED((short) 1),
+    COMPLETED((short) 2),
+    CANCELLED((short) 3);
+
+    private final short code;
+
+    AppointmentStatus(short code) {
+        this.code = code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Whether the appointment holds its doctor's time slot.
+     */
+    public boolean isBlocking() {
+        return this != CANCELLED;
+    }
+
+    public static AppointmentStatus fromCode(short code) {
+        for (AppointmentStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown appointment status code " + code);
+    }
+
+    /**
+     * Reads a status name, ignoring case, as sent in request bodies and paths.
+     */
+    @JsonCreator
+    public static AppointmentStatus parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unknown appointment status '" + value + "', expected one of "
+                    + Arrays.toString(values()));
+        }
+    }
+}
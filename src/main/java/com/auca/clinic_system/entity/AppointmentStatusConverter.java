@@ -0,0 +1,18 @@
+package com.auca.clinic_system.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class AppointmentStatusConverter implements AttributeConverter<AppointmentStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(AppointmentStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public AppointmentStatus convertToEntityAttribute(Short code) {
+        return code != null ? AppointmentStatus.fromCode(code) : null;
+    }
+}
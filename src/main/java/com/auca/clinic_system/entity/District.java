@@ -5,12 +5,15 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "districts")
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "location.district")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
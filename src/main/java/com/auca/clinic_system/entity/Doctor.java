@@ -5,14 +5,35 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "doctors")
+@Table(name = "doctors", indexes = {
+    @Index(name = "idx_doctors_deleted_at", columnList = "deletedAt")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctor")
+@SQLRestriction("deleted_at IS NULL")
+@NamedEntityGraph(
+    name = "Doctor.appointmentSummaries",
+    attributeNodes = {
+        @NamedAttributeNode(value = "person", subgraph = "person"),
+        @NamedAttributeNode(value = "appointments", subgraph = "appointment")
+    },
+    subgraphs = {
+        @NamedSubgraph(name = "person", attributeNodes = @NamedAttributeNode("village")),
+        @NamedSubgraph(name = "appointment", attributeNodes = @NamedAttributeNode(value = "patient", subgraph = "patient")),
+        @NamedSubgraph(name = "patient", attributeNodes = @NamedAttributeNode("village"))
+    }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,6 +55,13 @@ public class Doctor {
     @Column(nullable = false, unique = true)
     private String email;
     
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
+    private LocalDateTime deletedAt;
+    
     @OneToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "person_id", unique = true)
     private Person person;
@@ -0,0 +1,29 @@
+package com.auca.clinic_system.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of appointments a doctor has on one day in one status. Maintained inside the transaction of
+ * every appointment write by {@link com.auca.clinic_system.service.DoctorWorkloadListener}; never
+ * written through JPA. Rows are not removed when their count drops to zero.
+ *
+ * <p>There is deliberately no foreign key to {@code doctors}: deleting a doctor cascades to the
+ * appointments, which brings the doctor's rows to zero in the same transaction.
+ */
+@Entity
+@Table(name = "doctor_daily_workload")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorDailyWorkload {
+    
+    // Primary key (doctor_id, work_date, status) doubles as the index for a doctor's date range
+    @EmbeddedId
+    private DoctorDailyWorkloadId id;
+    
+    @Column(nullable = false)
+    private long appointmentCount;
+}
@@ -0,0 +1,30 @@
+package com.auca.clinic_system.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Key of {@link DoctorDailyWorkload}. {@code status} holds the {@link AppointmentStatus#getCode() code}
+ * directly, since attribute converters do not apply to id attributes.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorDailyWorkloadId implements Serializable {
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Column(nullable = false)
+    private LocalDate workDate;
+    
+    @Column(nullable = false)
+    private short status;
+}
@@ -5,22 +5,43 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", indexes = {
+    @Index(name = "idx_patients_dob_id", columnList = "dob, id"),
+    @Index(name = "idx_patients_deleted_at", columnList = "deletedAt")
+})
+// Soft-deleted patients stay hidden until SoftDeletePurger removes them
+@SQLRestriction("deleted_at IS NULL")
+@NamedEntityGraph(
+    name = "Patient.appointmentSummaries",
+    attributeNodes = {
+        @NamedAttributeNode("village"),
+        @NamedAttributeNode(value = "appointments", subgraph = "appointment")
+    },
+    subgraphs = {
+        @NamedSubgraph(name = "appointment", attributeNodes = @NamedAttributeNode(value = "doctor", subgraph = "doctor")),
+        @NamedSubgraph(name = "doctor", attributeNodes = @NamedAttributeNode(value = "person", subgraph = "person")),
+        @NamedSubgraph(name = "person", attributeNodes = @NamedAttributeNode("village"))
+    }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Patient {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_seq")
+    @SequenceGenerator(name = "patient_seq", sequenceName = "patients_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -38,6 +59,13 @@ public class Patient {
     @Column(nullable = false, unique = true)
     private String email;
     
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
+    private LocalDateTime deletedAt;
+    
     @OneToMany(mappedBy = "patient", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Appointment> appointments = new ArrayList<>();
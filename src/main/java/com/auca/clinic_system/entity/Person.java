@@ -5,9 +5,12 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "persons")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "person")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
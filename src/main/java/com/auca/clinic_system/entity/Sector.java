@@ -5,12 +5,15 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "sectors")
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "location.sector")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,29 @@
+package com.auca.clinic_system.event;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code AppointmentService} once an appointment write has committed.
+ *
+ * <p>{@code appointment} is the appointment after the change when the service already had it at hand;
+ * it is {@code null} for deletions and for writes that never read the row, such as batch creates and
+ * status or notes patches.
+ *
+ * <p>A {@link ChangeType#DELETED} change without an {@code appointmentId} stands for every appointment
+ * of {@code doctorId} removed at once with its doctor or, when {@code patientId} is set, with that patient.
+ */
+@Getter
+@AllArgsConstructor
+public class AppointmentChangedEvent {
+    private final ChangeType type;
+    private final Long appointmentId;
+    private final Long doctorId;
+    private final Long patientId;
+    private final AppointmentDTO appointment;
+
+    public AppointmentChangedEvent(ChangeType type, Long appointmentId, Long doctorId, AppointmentDTO appointment) {
+        this(type, appointmentId, doctorId, null, appointment);
+    }
+}
@@ -0,0 +1,7 @@
+package com.auca.clinic_system.event;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
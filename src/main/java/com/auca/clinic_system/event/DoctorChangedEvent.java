@@ -0,0 +1,23 @@
+package com.auca.clinic_system.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code DoctorService} when a doctor is created, updated or deleted. In-memory views
+ * listen for it after the surrounding transaction commits.
+ *
+ * <p>{@code name}, {@code specialization} and {@code villageId} describe the doctor after the change
+ * and are {@code null} for deletions; {@code previousSpecialization} is the value before an update
+ * or delete.
+ */
+@Getter
+@AllArgsConstructor
+public class DoctorChangedEvent {
+    private final ChangeType type;
+    private final Long doctorId;
+    private final String name;
+    private final String specialization;
+    private final Long villageId;
+    private final String previousSpecialization;
+}
@@ -0,0 +1,12 @@
+package com.auca.clinic_system.exception;
+
+/**
+ * Thrown when an appointment would overlap another booking of the same doctor.
+ * Mapped to 409 Conflict.
+ */
+public class BookingConflictException extends RuntimeException {
+
+    public BookingConflictException(String message) {
+        super(message);
+    }
+}
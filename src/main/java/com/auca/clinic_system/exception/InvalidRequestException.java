@@ -0,0 +1,16 @@
+package com.auca.clinic_system.exception;
+
+/**
+ * Thrown when a request parameter is well-formed for Spring but invalid for the API,
+ * e.g. a tampered pagination cursor. Mapped to 400 Bad Request.
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
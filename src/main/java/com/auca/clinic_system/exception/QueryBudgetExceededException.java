@@ -0,0 +1,12 @@
+package com.auca.clinic_system.exception;
+
+/**
+ * Thrown when a method annotated with {@code @QueryBudget} runs more SQL statements than it
+ * declares and the budget mode is {@code fail}. Mapped to 500 Internal Server Error.
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,43 @@
+package com.auca.clinic_system.metrics;
+
+/**
+ * Statements prepared by the current thread while a {@link QueryBudget} method runs on it. Nested
+ * budgeted calls share the counter and each compares its value before and after.
+ */
+final class BudgetStatementCounter {
+
+    private static final ThreadLocal<BudgetStatementCounter> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private int depth;
+
+    private BudgetStatementCounter() {
+    }
+
+    static BudgetStatementCounter enter() {
+        BudgetStatementCounter counter = CURRENT.get();
+        if (counter == null) {
+            counter = new BudgetStatementCounter();
+            CURRENT.set(counter);
+        }
+        counter.depth++;
+        return counter;
+    }
+
+    void exit() {
+        if (--depth == 0) {
+            CURRENT.remove();
+        }
+    }
+
+    static void statementPrepared() {
+        BudgetStatementCounter counter = CURRENT.get();
+        if (counter != null) {
+            counter.statements++;
+        }
+    }
+
+    long getStatements() {
+        return statements;
+    }
+}
@@ -0,0 +1,38 @@
+package com.auca.clinic_system.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Adds the time each {@code getConnection} call blocks to the current request. Wraps whatever
+ * DataSource is in place, so in virtual-thread mode the concurrency cap's wait is included.
+ */
+public class ConnectionWaitRecordingDataSource extends DelegatingDataSource {
+
+    public ConnectionWaitRecordingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long started = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            RequestStats.connectionWaited(System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            return super.getConnection(username, password);
+        } finally {
+            RequestStats.connectionWaited(System.nanoTime() - started);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.auca.clinic_system.metrics;
+
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+
+/**
+ * Counts every entity Hibernate loads, from the database or the second-level cache, against the
+ * current request.
+ */
+public class EntityLoadCountingListener implements PostLoadEventListener {
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        RequestStats.entityLoaded();
+    }
+}
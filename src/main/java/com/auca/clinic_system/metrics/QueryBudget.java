@@ -0,0 +1,30 @@
+package com.auca.clinic_system.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most SQL statements a controller or service method may run, counting everything it calls on
+ * the same thread, including the flush at commit when the method owns the transaction. On a class
+ * it applies to every public method; an annotation on the method wins.
+ *
+ * <p>Going over the budget is logged as a warning and counted in {@code clinic.query.budget.exceeded};
+ * with {@code clinic.query-budget.mode=fail} it throws {@link
+ * com.auca.clinic_system.exception.QueryBudgetExceededException} instead, which is how the tests
+ * run.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryBudget {
+
+    /**
+     * Maximum number of statements.
+     */
+    int value();
+
+    enum Mode { WARN, FAIL }
+}
@@ -0,0 +1,72 @@
+package com.auca.clinic_system.metrics;
+
+import com.auca.clinic_system.exception.QueryBudgetExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Enforces {@link QueryBudget}. Runs outside the transaction advice, so a method that owns its
+ * transaction is charged for the statements flushed at commit; in fail mode that means the work is
+ * already committed when the exception is thrown.
+ */
+@Aspect
+public class QueryBudgetAspect implements Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetAspect.class);
+
+    private final MeterRegistry registry;
+    private final QueryBudget.Mode mode;
+
+    public QueryBudgetAspect(MeterRegistry registry, QueryBudget.Mode mode) {
+        this.registry = registry;
+        this.mode = mode;
+    }
+
+    @Around("execution(public * *(..)) && (@annotation(com.auca.clinic_system.metrics.QueryBudget)"
+            + " || @within(com.auca.clinic_system.metrics.QueryBudget))")
+    public Object enforce(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) joinPoint.getSignature()).getMethod(), targetClass);
+        QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(method, QueryBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(targetClass, QueryBudget.class);
+        }
+
+        BudgetStatementCounter counter = BudgetStatementCounter.enter();
+        Object result;
+        long used;
+        try {
+            long before = counter.getStatements();
+            result = joinPoint.proceed();
+            used = counter.getStatements() - before;
+        } finally {
+            counter.exit();
+        }
+
+        if (used > budget.value()) {
+            String name = targetClass.getSimpleName() + "." + method.getName();
+            registry.counter("clinic.query.budget.exceeded", "method", name).increment();
+            String message = name + " ran " + used + " SQL statements, its budget is " + budget.value();
+            if (mode == QueryBudget.Mode.FAIL) {
+                throw new QueryBudgetExceededException(message);
+            }
+            log.warn(message);
+        }
+        return result;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,81 @@
+package com.auca.clinic_system.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.Locale;
+
+/**
+ * Wires the per-request database metrics: the Hibernate hooks that count statements and loaded
+ * entities, the DataSource wrapper that times connection waits, the MVC interceptor that records
+ * them, and the {@link QueryBudget} check. See {@link RequestMetricsInterceptor} for the meters.
+ */
+@Configuration(proxyBeanMethods = false)
+public class RequestMetricsConfig {
+
+    @Bean
+    HibernatePropertiesCustomizer statementCounting() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+
+    @Bean
+    SmartInitializingSingleton entityLoadCounting(EntityManagerFactory entityManagerFactory) {
+        return () -> entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, new EntityLoadCountingListener());
+    }
+
+    @Bean
+    static BeanPostProcessor connectionWaitRecording() {
+        return new ConnectionWaitPostProcessor();
+    }
+
+    @Bean
+    WebMvcConfigurer requestMetricsInterceptor(MeterRegistry registry) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry interceptors) {
+                interceptors.addInterceptor(new RequestMetricsInterceptor(registry)).addPathPatterns("/api/**");
+            }
+        };
+    }
+
+    @Bean
+    QueryBudgetAspect queryBudgetAspect(MeterRegistry registry, @Value("${clinic.query-budget.mode:warn}") String mode) {
+        return new QueryBudgetAspect(registry, QueryBudget.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Runs after every other DataSource wrapper, so the recorded wait covers all of them.
+     */
+    static class ConnectionWaitPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionWaitRecordingDataSource) {
+                return bean;
+            }
+            return new ConnectionWaitRecordingDataSource(dataSource);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.auca.clinic_system.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the database work of each request to an application controller, tagged with the HTTP
+ * method and the endpoint's URI pattern:
+ * <ul>
+ *     <li>{@code clinic.request.sql.statements}: statements prepared</li>
+ *     <li>{@code clinic.request.entities.loaded}: entities loaded</li>
+ *     <li>{@code clinic.request.connection.wait}: time blocked obtaining connections</li>
+ * </ul>
+ * All three publish histograms. Latency per endpoint is Spring's {@code http.server.requests}.
+ *
+ * <p>Streaming responses write their body on another thread after the handler returns; only the
+ * work done inside the handler is counted for them, once: the async redispatch that completes
+ * them is not counted again.
+ */
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String CONTROLLER_PACKAGE = "com.auca.clinic_system.controller";
+
+    private final MeterRegistry registry;
+
+    public RequestMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        if (handler instanceof HandlerMethod method
+                && method.getBeanType().getPackageName().equals(CONTROLLER_PACKAGE)) {
+            RequestStats.begin();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        record(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // Already recorded by afterConcurrentHandlingStarted on the initial dispatch
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return;
+        }
+        record(request);
+    }
+
+    private void record(HttpServletRequest request) {
+        RequestStats stats = RequestStats.end();
+        if (stats == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+
+        DistributionSummary.builder("clinic.request.sql.statements")
+                .description("SQL statements prepared per request")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(2_000.0)
+                .register(registry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("clinic.request.entities.loaded")
+                .description("Entities loaded per request")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(50_000.0)
+                .register(registry)
+                .record(stats.getEntitiesLoaded());
+        Timer.builder("clinic.request.connection.wait")
+                .description("Time per request spent waiting for database connections")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stats.getConnectionWaitNanos(), TimeUnit.NANOSECONDS);
+    }
+}
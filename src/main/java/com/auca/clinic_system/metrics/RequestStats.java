@@ -0,0 +1,63 @@
+package com.auca.clinic_system.metrics;
+
+/**
+ * Database work done by the current request thread: SQL statements prepared, entities loaded and
+ * time spent waiting for a connection. Counting is off outside a request, so background work and
+ * startup are not attributed to anything.
+ */
+public final class RequestStats {
+
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private int entitiesLoaded;
+    private long connectionWaitNanos;
+
+    private RequestStats() {
+    }
+
+    static RequestStats begin() {
+        RequestStats stats = new RequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static RequestStats end() {
+        RequestStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    static void statementPrepared() {
+        RequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statements++;
+        }
+    }
+
+    static void entityLoaded() {
+        RequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.entitiesLoaded++;
+        }
+    }
+
+    static void connectionWaited(long nanos) {
+        RequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.connectionWaitNanos += nanos;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public long getConnectionWaitNanos() {
+        return connectionWaitNanos;
+    }
+}
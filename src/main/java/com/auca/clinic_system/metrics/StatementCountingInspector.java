@@ -0,0 +1,17 @@
+package com.auca.clinic_system.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every statement Hibernate prepares against the current request and any running
+ * {@link QueryBudget}. The SQL is not changed.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestStats.statementPrepared();
+        BudgetStatementCounter.statementPrepared();
+        return sql;
+    }
+}
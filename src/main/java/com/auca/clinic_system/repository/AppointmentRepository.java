@@ -1,24 +1,50 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.AppointmentKeyRow;
+import com.auca.clinic_system.dto.BookedSlotRow;
+import com.auca.clinic_system.dto.DoctorDayStatusCountRow;
+import com.auca.clinic_system.dto.DoctorStatusCountRow;
 import com.auca.clinic_system.entity.Appointment;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    @EntityGraph("Appointment.participants")
     List<Appointment> findByDoctorId(Long doctorId);
     
+    @EntityGraph("Appointment.participants")
     List<Appointment> findByPatientId(Long patientId);
     
-    List<Appointment> findByStatus(String status);
+    // Walks idx_appointments_status_date_id when sorted by appointmentDate and id; a Slice skips the count query
+    @EntityGraph("Appointment.participants")
+    Slice<Appointment> findByStatus(AppointmentStatus status, Pageable pageable);
     
+    @EntityGraph("Appointment.participants")
+    List<Appointment> findByIdIn(Collection<Long> ids);
+    
+    @Override
+    @EntityGraph("Appointment.participants")
+    List<Appointment> findAll();
+    
+    @EntityGraph("Appointment.participants")
     Page<Appointment> findAll(Pageable pageable);
     
     @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentDate >= :startDate AND a.appointmentDate <= :endDate")
@@ -28,6 +54,72 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
         @Param("endDate") LocalDateTime endDate
     );
     
+    // Availability calendars for a whole specialization in one round trip; only the doctor id and
+    // start are selected, so no appointment, doctor or patient entities are loaded
+    @Query("SELECT new com.auca.clinic_system.dto.BookedSlotRow(a.doctor.id, a.appointmentDate) FROM Appointment a " +
+           "WHERE a.doctor.id IN :doctorIds AND a.appointmentDate >= :startDate AND a.appointmentDate <= :endDate " +
+           "AND a.status <> com.auca.clinic_system.entity.AppointmentStatus.CANCELLED")
+    List<BookedSlotRow> findDoctorsAppointmentsBetweenDates(
+        @Param("doctorIds") Collection<Long> doctorIds,
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+    
+    @Query("SELECT new com.auca.clinic_system.dto.DoctorStatusCountRow(a.doctor.id, a.status, count(a)) FROM Appointment a " +
+           "WHERE a.appointmentDate >= :startDate AND a.appointmentDate < :endDate GROUP BY a.doctor.id, a.status")
+    List<DoctorStatusCountRow> countByDoctorAndStatusBetween(
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+    
+    @Query("SELECT DISTINCT a.doctor.id FROM Appointment a WHERE a.patient.id = :patientId")
+    List<Long> findDoctorIdsByPatientId(@Param("patientId") Long patientId);
+    
+    // Set-based deletes of a patient's or doctor's appointments; they bypass Hibernate's events, so callers
+    // lock the rows first, in id order, then count and delete exactly those ids
+    @Query(value = "SELECT id, doctor_id FROM appointments WHERE patient_id = :patientId ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<AppointmentKeyRow> lockKeysByPatientId(@Param("patientId") Long patientId);
+    
+    @Query(value = "SELECT id, doctor_id FROM appointments WHERE patient_id = :patientId ORDER BY id LIMIT :limit FOR UPDATE",
+           nativeQuery = true)
+    List<AppointmentKeyRow> lockKeysByPatientId(@Param("patientId") Long patientId, @Param("limit") int limit);
+    
+    @Query(value = "SELECT id, doctor_id FROM appointments WHERE doctor_id = :doctorId ORDER BY id FOR UPDATE",
+           nativeQuery = true)
+    List<AppointmentKeyRow> lockKeysByDoctorId(@Param("doctorId") Long doctorId);
+    
+    @Query(value = "SELECT id, doctor_id FROM appointments WHERE doctor_id = :doctorId ORDER BY id LIMIT :limit FOR UPDATE",
+           nativeQuery = true)
+    List<AppointmentKeyRow> lockKeysByDoctorId(@Param("doctorId") Long doctorId, @Param("limit") int limit);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.DoctorDayStatusCountRow(a.doctor.id, cast(a.appointmentDate as LocalDate), " +
+           "a.status, count(a)) FROM Appointment a WHERE a.id IN :ids " +
+           "GROUP BY a.doctor.id, cast(a.appointmentDate as LocalDate), a.status")
+    List<DoctorDayStatusCountRow> countByDoctorDayAndStatusForIds(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("DELETE FROM Appointment a WHERE a.id IN :ids")
+    int bulkDeleteByIdIn(@Param("ids") Collection<Long> ids);
+    
     @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId ORDER BY a.appointmentDate DESC")
     List<Appointment> findPatientAppointmentsOrderByDateDesc(@Param("patientId") Long patientId);
+    
+    // Keyset pages on (appointmentDate, id) descending; a List return type skips the count query
+    @EntityGraph("Appointment.participants")
+    @Query("SELECT a FROM Appointment a ORDER BY a.appointmentDate DESC, a.id DESC")
+    List<Appointment> findKeysetFirstPage(Pageable window);
+    
+    @EntityGraph("Appointment.participants")
+    @Query("SELECT a FROM Appointment a " +
+           "WHERE a.appointmentDate <= :date AND (a.appointmentDate < :date OR a.id < :id) " +
+           "ORDER BY a.appointmentDate DESC, a.id DESC")
+    List<Appointment> findKeysetPageAfter(@Param("date") LocalDateTime date, @Param("id") Long id, Pageable window);
+    
+    // Server-side cursor for NDJSON export, projected straight to DTOs so no entities are managed;
+    // callers must consume it inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.auca.clinic_system.dto.AppointmentDTO(a.id, a.appointmentDate, d.id, d.name, p.id, p.name, a.status, a.notes, a.version) " +
+           "FROM Appointment a JOIN a.doctor d JOIN a.patient p ORDER BY a.id")
+    Stream<AppointmentDTO> streamAllAsDTO();
 }
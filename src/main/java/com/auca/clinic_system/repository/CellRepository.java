@@ -1,12 +1,31 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.LocationNodeDTO;
 import com.auca.clinic_system.entity.Cell;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface CellRepository extends JpaRepository<Cell, Long> {
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
+    List<Cell> findAll();
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
     List<Cell> findBySectorId(Long sectorId);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.LocationNodeDTO(c.id, c.code, c.name, c.sector.id) FROM Cell c ORDER BY c.id")
+    List<LocationNodeDTO> findAllNodes();
 }
@@ -1,13 +1,37 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.LocationNodeDTO;
 import com.auca.clinic_system.entity.District;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface DistrictRepository extends JpaRepository<District, Long> {
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
+    List<District> findAll();
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
     List<District> findByProvinceId(Long provinceId);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
     List<District> findByProvinceName(String provinceName);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.LocationNodeDTO(d.id, d.code, d.name, d.province.id) FROM District d ORDER BY d.id")
+    List<LocationNodeDTO> findAllNodes();
 }
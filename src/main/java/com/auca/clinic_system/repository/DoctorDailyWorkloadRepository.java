@@ -0,0 +1,45 @@
+package com.auca.clinic_system.repository;
+
+import com.auca.clinic_system.entity.DoctorDailyWorkload;
+import com.auca.clinic_system.entity.DoctorDailyWorkloadId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DoctorDailyWorkloadRepository extends JpaRepository<DoctorDailyWorkload, DoctorDailyWorkloadId> {
+    
+    // A range scan of the primary key: at most one row per day and status
+    @Query("SELECT w FROM DoctorDailyWorkload w WHERE w.id.doctorId = :doctorId " +
+           "AND w.id.workDate >= :from AND w.id.workDate <= :to AND w.appointmentCount > 0 " +
+           "ORDER BY w.id.workDate, w.id.status")
+    List<DoctorDailyWorkload> findByDoctorBetween(
+        @Param("doctorId") Long doctorId,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to
+    );
+    
+    // Waits for in-flight appointment writes and holds off new ones until the backfill commits
+    @Modifying
+    @Query(value = "LOCK TABLE appointments IN SHARE MODE", nativeQuery = true)
+    void lockAppointmentsAgainstWrites();
+    
+    @Modifying
+    @Query("DELETE FROM DoctorDailyWorkload w WHERE w.id.doctorId = :doctorId")
+    int deleteByDoctorId(@Param("doctorId") Long doctorId);
+    
+    @Modifying
+    @Query(value = "DELETE FROM doctor_daily_workload", nativeQuery = true)
+    int deleteAllRows();
+    
+    @Modifying
+    @Query(value = "INSERT INTO doctor_daily_workload (doctor_id, work_date, status, appointment_count) " +
+                   "SELECT doctor_id, CAST(appointment_date AS date), status, count(*) FROM appointments " +
+                   "GROUP BY doctor_id, CAST(appointment_date AS date), status", nativeQuery = true)
+    int insertFromAppointments();
+}
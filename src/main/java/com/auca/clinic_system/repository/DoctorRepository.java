@@ -1,13 +1,23 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.dto.SpecializationCountDTO;
 import com.auca.clinic_system.entity.Doctor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
@@ -28,4 +38,49 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     Page<Doctor> findByNameContainingIgnoreCase(String name, Pageable pageable);
     
     Page<Doctor> findBySpecializationContainingIgnoreCase(String specialization, Pageable pageable);
+    
+    // Projections for DoctorMinimalDTO endpoints: no managed entities, no person/village loading
+    @Query("SELECT new com.auca.clinic_system.dto.DoctorMinimalRow(d.id, d.name, d.specialization, p.village.id) " +
+           "FROM Doctor d LEFT JOIN d.person p WHERE d.id = :id")
+    Optional<DoctorMinimalRow> findMinimalById(@Param("id") Long id);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.DoctorMinimalRow(d.id, d.name, d.specialization, p.village.id) " +
+           "FROM Doctor d LEFT JOIN d.person p WHERE lower(d.name) LIKE lower(concat('%', :name, '%'))")
+    List<DoctorMinimalRow> findMinimalByNameContaining(@Param("name") String name);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.DoctorMinimalRow(d.id, d.name, d.specialization, p.village.id) " +
+           "FROM Doctor d LEFT JOIN d.person p WHERE d.specialization = :specialization")
+    List<DoctorMinimalRow> findMinimalBySpecialization(@Param("specialization") String specialization);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.DoctorMinimalRow(d.id, d.name, d.specialization, p.village.id) " +
+           "FROM Doctor d LEFT JOIN d.person p")
+    List<DoctorMinimalRow> findAllMinimal();
+    
+    @Query("SELECT new com.auca.clinic_system.dto.SpecializationCountDTO(d.specialization, count(d)) " +
+           "FROM Doctor d GROUP BY d.specialization ORDER BY d.specialization")
+    List<SpecializationCountDTO> countBySpecialization();
+    
+    // Fetch plan for list endpoints: page the ids first, then load that page with its
+    // appointment summaries in one query (a collection fetch cannot be paged in SQL)
+    @Query(value = "SELECT d.id FROM Doctor d", countQuery = "SELECT count(d) FROM Doctor d")
+    Page<Long> findPageOfIds(Pageable pageable);
+    
+    @EntityGraph("Doctor.appointmentSummaries")
+    List<Doctor> findWithAppointmentSummariesByIdIn(Collection<Long> ids);
+    
+    @EntityGraph("Doctor.appointmentSummaries")
+    @Query("SELECT d FROM Doctor d")
+    List<Doctor> findAllWithAppointmentSummaries();
+    
+    // Keyset page of ids; a List return type skips the count query
+    @Query("SELECT d.id FROM Doctor d WHERE d.id > :afterId ORDER BY d.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable window);
+    
+    // Server-side cursor for NDJSON export; callers must consume it inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT d FROM Doctor d LEFT JOIN FETCH d.person p LEFT JOIN FETCH p.village ORDER BY d.id")
+    Stream<Doctor> streamAll();
 }
@@ -1,13 +1,24 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.AgeBucketRow;
+import com.auca.clinic_system.dto.VillageGenderCountRow;
 import com.auca.clinic_system.entity.Patient;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
@@ -15,12 +26,16 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     
     Optional<Patient> findByEmail(String email);
     
+    @EntityGraph("Patient.appointmentSummaries")
     List<Patient> findByGender(String gender);
     
+    @EntityGraph("Patient.appointmentSummaries")
     List<Patient> findByVillage_Cell_Sector_District_Province_Id(Long provinceId);
     
+    @EntityGraph("Patient.appointmentSummaries")
     List<Patient> findByVillage_Cell_Sector_District_Id(Long districtId);
     
+    @EntityGraph("Patient.appointmentSummaries")
     List<Patient> findByVillage_Cell_Sector_Id(Long sectorId);
     
     List<Patient> findByVillage_Cell_Id(Long cellId);
@@ -29,5 +44,77 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     
     Page<Patient> findAll(Pageable pageable);
     
+    // Age filters arrive here as dob ranges, which idx_patients_dob_id serves
+    @EntityGraph("Patient.appointmentSummaries")
+    List<Patient> findByDobBetween(LocalDate earliest, LocalDate latest);
+    
+    @Query(value = "SELECT p.id FROM Patient p WHERE p.dob BETWEEN :earliest AND :latest",
+           countQuery = "SELECT count(p) FROM Patient p WHERE p.dob BETWEEN :earliest AND :latest")
+    Page<Long> findPageOfIdsByDobBetween(
+        @Param("earliest") LocalDate earliest,
+        @Param("latest") LocalDate latest,
+        Pageable pageable
+    );
+    
+    @Query("SELECT p.id FROM Patient p WHERE p.dob BETWEEN :earliest AND :latest AND p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsByDobBetweenAfter(
+        @Param("earliest") LocalDate earliest,
+        @Param("latest") LocalDate latest,
+        @Param("afterId") Long afterId,
+        Pageable window
+    );
+    
+    // Age on the reference day is worked out in SQL (a year difference, less one if the birthday is still
+    // to come) and divided by the bucket width, so the database returns one row per bucket
+    @Query("SELECT new com.auca.clinic_system.dto.AgeBucketRow(a.bucket, count(*)) FROM (" +
+           "SELECT cast(:year - extract(year from p.dob) - CASE WHEN extract(month from p.dob) * 100 + extract(day from p.dob) > :monthDay " +
+           "THEN 1 ELSE 0 END as Integer) / :width AS bucket " +
+           "FROM Patient p LEFT JOIN p.village v LEFT JOIN v.cell c LEFT JOIN c.sector s LEFT JOIN s.district d " +
+           "WHERE (:gender IS NULL OR p.gender = :gender) AND (:provinceId IS NULL OR d.province.id = :provinceId) " +
+           "AND (:districtId IS NULL OR d.id = :districtId) AND (:sectorId IS NULL OR s.id = :sectorId)" +
+           ") a GROUP BY a.bucket ORDER BY a.bucket")
+    List<AgeBucketRow> countByAgeBucket(
+        @Param("year") int year,
+        @Param("monthDay") int monthDay,
+        @Param("width") int width,
+        @Param("gender") String gender,
+        @Param("provinceId") Long provinceId,
+        @Param("districtId") Long districtId,
+        @Param("sectorId") Long sectorId
+    );
+    
     Page<Patient> findByGender(String gender, Pageable pageable);
+    
+    // Fetch plan for list endpoints: page the ids first, then load that page with its
+    // appointment summaries in one query (a collection fetch cannot be paged in SQL)
+    @Query(value = "SELECT p.id FROM Patient p", countQuery = "SELECT count(p) FROM Patient p")
+    Page<Long> findPageOfIds(Pageable pageable);
+    
+    @EntityGraph("Patient.appointmentSummaries")
+    List<Patient> findWithAppointmentSummariesByIdIn(Collection<Long> ids);
+    
+    @EntityGraph("Patient.appointmentSummaries")
+    @Query("SELECT p FROM Patient p")
+    List<Patient> findAllWithAppointmentSummaries();
+    
+    // Keyset page of ids; a List return type skips the count query
+    @Query("SELECT p.id FROM Patient p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable window);
+    
+    // Ids among the given ones of patients that are not soft-deleted
+    @Query("SELECT p.id FROM Patient p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
+    // Groups on the patients table alone: village.id is the foreign key column, so no location table is joined
+    @Query("SELECT new com.auca.clinic_system.dto.VillageGenderCountRow(p.village.id, p.gender, count(p)) FROM Patient p " +
+           "WHERE p.village IS NOT NULL GROUP BY p.village.id, p.gender")
+    List<VillageGenderCountRow> countByVillageAndGender();
+    
+    // Server-side cursor for NDJSON export; callers must consume it inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Patient p LEFT JOIN FETCH p.village ORDER BY p.id")
+    Stream<Patient> streamAll();
 }
@@ -1,14 +1,18 @@
 package com.auca.clinic_system.repository;
 
 import com.auca.clinic_system.entity.Person;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PersonRepository extends JpaRepository<Person, Long> {
@@ -28,4 +32,12 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
     Page<Person> findAll(Pageable pageable);
     
     List<Person> findByVillageId(Long villageId);
+    
+    // Server-side cursor for NDJSON export; callers must consume it inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Person p JOIN FETCH p.village LEFT JOIN FETCH p.doctor ORDER BY p.id")
+    Stream<Person> streamAll();
 }
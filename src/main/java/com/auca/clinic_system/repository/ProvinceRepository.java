@@ -1,15 +1,41 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.LocationNodeDTO;
 import com.auca.clinic_system.entity.Province;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProvinceRepository extends JpaRepository<Province, Long> {
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
+    List<Province> findAll();
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
     Optional<Province> findByCode(String code);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
     Optional<Province> findByName(String name);
+    
     boolean existsByCode(String code);
     boolean existsByName(String name);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.LocationNodeDTO(p.id, p.code, p.name) FROM Province p ORDER BY p.id")
+    List<LocationNodeDTO> findAllNodes();
 }
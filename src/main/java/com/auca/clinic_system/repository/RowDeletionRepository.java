@@ -0,0 +1,65 @@
+package com.auca.clinic_system.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Single-row deletes and soft-delete marks for patients and doctors, as native statements: they have to
+ * reach rows that the entities' {@code deleted_at IS NULL} restriction hides. Each statement declares the
+ * entity it touches, so Hibernate evicts that entity's cache region only, instead of every region.
+ * Table and column names are trusted and must come from code.
+ */
+@Repository
+public class RowDeletionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Marks the row deleted now, unless it already is.
+     *
+     * @return whether this call marked it
+     */
+    public boolean markDeleted(Class<?> entityClass, String table, Long id) {
+        return entityManager.createNativeQuery("UPDATE " + table + " SET deleted_at = :now WHERE id = :id AND deleted_at IS NULL")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(entityClass)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", id)
+                .executeUpdate() == 1;
+    }
+
+    /**
+     * Ids of rows marked deleted, oldest mark first.
+     */
+    public List<Long> findDeletedIds(String table, int limit) {
+        return entityManager.createNativeQuery("SELECT id FROM " + table + " WHERE deleted_at IS NOT NULL "
+                        + "ORDER BY deleted_at, id LIMIT :limit", Long.class)
+                .setParameter("limit", limit)
+                .getResultList();
+    }
+
+    public boolean deleteRow(Class<?> entityClass, String table, Long id) {
+        return entityManager.createNativeQuery("DELETE FROM " + table + " WHERE id = :id")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(entityClass)
+                .setParameter("id", id)
+                .executeUpdate() == 1;
+    }
+
+    /**
+     * Deletes the rows of a join table that point at {@code id} through {@code column}.
+     */
+    public int deleteJoinRows(String joinTable, String column, Long id) {
+        return entityManager.createNativeQuery("DELETE FROM " + joinTable + " WHERE " + column + " = :id")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(joinTable)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+}
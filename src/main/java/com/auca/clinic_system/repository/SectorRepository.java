@@ -1,12 +1,31 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.LocationNodeDTO;
 import com.auca.clinic_system.entity.Sector;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface SectorRepository extends JpaRepository<Sector, Long> {
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
+    List<Sector> findAll();
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
     List<Sector> findByDistrictId(Long districtId);
+    
+    @Query("SELECT new com.auca.clinic_system.dto.LocationNodeDTO(s.id, s.code, s.name, s.district.id) FROM Sector s ORDER BY s.id")
+    List<LocationNodeDTO> findAllNodes();
 }
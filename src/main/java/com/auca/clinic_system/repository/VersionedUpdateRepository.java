@@ -0,0 +1,82 @@
+package com.auca.clinic_system.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * Partial updates of versioned rows in a single statement, without loading the entity first. The row
+ * must still have the version the client read; the update increments it, and the statement hands back
+ * the row's previous values so callers can adjust what they derive from them.
+ *
+ * <p>PostgreSQL joins the table to itself and returns the old row with {@code RETURNING}; other
+ * databases, e.g. H2 in tests, read it from {@code OLD TABLE (UPDATE ...)}. Either way it is one round
+ * trip. The statement bypasses the persistence context and the second-level cache, so callers evict
+ * cached entities themselves.
+ */
+@Repository
+public class VersionedUpdateRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Sets {@code assignments} on the row of {@code table} with {@code id} and {@code version} and increments
+     * its version. Each {@code guard} entry additionally requires its column to hold one of the given values,
+     * and each of {@code unset} requires its column to be null. Column names are trusted and must come from
+     * code, never from a request.
+     *
+     * @param previous columns of the old row to return, in iteration order, with their Java types
+     * @return the old row's {@code previous} columns in order, followed by its version, or empty if no row
+     *         matched
+     */
+    public Optional<Object[]> update(String table, Long id, long version, Map<String, Object> assignments,
+                                     Map<String, Collection<?>> guard, Collection<String> unset,
+                                     Map<String, Class<?>> previous) {
+        boolean postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        String target = postgres ? "t." : "";
+
+        StringJoiner set = new StringJoiner(", ");
+        assignments.keySet().forEach(column -> set.add(column + " = :" + column));
+        set.add("version = " + target + "version + 1");
+
+        StringBuilder where = new StringBuilder(target + "id = :id AND " + target + "version = :version");
+        guard.keySet().forEach(column -> where.append(" AND ").append(target).append(column)
+                .append(" IN (:guard_").append(column).append(")"));
+        unset.forEach(column -> where.append(" AND ").append(target).append(column).append(" IS NULL"));
+
+        StringJoiner returned = new StringJoiner(", ");
+        previous.keySet().forEach(column -> returned.add((postgres ? "prev." : "") + column));
+        returned.add((postgres ? "prev." : "") + "version");
+
+        String sql = postgres
+                ? "UPDATE " + table + " AS t SET " + set + " FROM " + table + " AS prev WHERE " + where
+                        + " AND prev.id = t.id RETURNING " + returned
+                : "SELECT " + returned + " FROM OLD TABLE (UPDATE " + table + " SET " + set + " WHERE " + where + ")";
+
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        previous.forEach((column, type) -> query.addScalar(column, type));
+        query.addScalar("version", Long.class);
+        assignments.forEach((column, value) -> query.setParameter(column, value));
+        guard.forEach((column, allowed) -> query.setParameterList("guard_" + column, allowed));
+        query.setParameter("id", id);
+        query.setParameter("version", version);
+
+        List<?> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        // A single column comes back bare rather than as an array
+        return Optional.of(rows.get(0) instanceof Object[] row ? row : new Object[] {rows.get(0)});
+    }
+}
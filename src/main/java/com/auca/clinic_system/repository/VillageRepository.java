@@ -1,12 +1,38 @@
 package com.auca.clinic_system.repository;
 
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.dto.LocationNodeDTO;
 import com.auca.clinic_system.entity.Village;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface VillageRepository extends JpaRepository<Village, Long> {
+    @Override
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
+    List<Village> findAll();
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "location.queries")
+    })
     List<Village> findByCellId(Long cellId);
+    
+    // One row per village with its full hierarchy, used to build the in-memory location index
+    @Query("SELECT new com.auca.clinic_system.dto.LocationDTO(p.id, p.name, d.id, d.name, s.id, s.name, c.id, c.name, v.id, v.name) " +
+           "FROM Village v JOIN v.cell c JOIN c.sector s JOIN s.district d JOIN d.province p")
+    List<LocationDTO> findAllLocations();
+    
+    // Flat rows for LocationJsonCache; the parent id comes from the foreign key column, without a join
+    @Query("SELECT new com.auca.clinic_system.dto.LocationNodeDTO(v.id, v.code, v.name, v.cell.id) FROM Village v ORDER BY v.id")
+    List<LocationNodeDTO> findAllNodes();
 }
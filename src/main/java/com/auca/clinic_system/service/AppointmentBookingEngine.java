@@ -0,0 +1,525 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.BookedSlotRow;
+import com.auca.clinic_system.entity.Appointment;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import com.auca.clinic_system.exception.BookingConflictException;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import com.auca.clinic_system.repository.DoctorRepository;
+import com.auca.clinic_system.repository.PatientRepository;
+import com.auca.clinic_system.repository.VersionedUpdateRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes appointments so that no two blocking appointments of the same doctor overlap.
+ *
+ * <p>Every appointment occupies one slot of {@code clinic.booking.slot-minutes} starting at its date.
+ * Each doctor's appointments from yesterday onwards are kept in an interval index, loaded lazily from
+ * {@link AppointmentRepository#findDoctorAppointmentsBetweenDates}, so the overlap check is a
+ * {@link TreeMap} range lookup. Only doctors that exist are indexed, and a schedule's window moves up
+ * to yesterday on its first use each day, dropping the appointments it leaves behind, so the index
+ * holds no more than the doctors and their recent and upcoming appointments. Doctors hash onto a fixed
+ * set of lock stripes; the check, the write and its commit all happen under the doctor's stripe, so
+ * bookings for different doctors rarely contend and bookings for the same doctor are serialised.
+ *
+ * <p>The index is local to this application instance. Callers must not hold a transaction of their
+ * own: the engine commits in a new transaction before releasing the lock.
+ */
+@Component
+public class AppointmentBookingEngine {
+
+    private static final int STRIPES = 64;
+    private static final LocalDateTime INDEX_END = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BatchPersister batchPersister;
+
+    @Autowired
+    private VersionedUpdateRepository versionedUpdateRepository;
+
+    // Absent when the workload aggregate is not maintained, e.g. in slices that leave out its configuration
+    @Autowired(required = false)
+    private DoctorWorkloadListener workloadListener;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${clinic.booking.slot-minutes:30}")
+    private long slotMinutes;
+
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final Map<Long, DoctorSchedule> schedules = new ConcurrentHashMap<>();
+
+    public AppointmentBookingEngine() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Duration getSlot() {
+        return Duration.ofMinutes(slotMinutes);
+    }
+
+    /**
+     * Persists a new or modified appointment, rejecting it with {@link BookingConflictException}
+     * if it would overlap another blocking appointment of the same doctor.
+     */
+    public Appointment book(Appointment appointment) {
+        Long doctorId = appointment.getDoctor().getId();
+        Lock lock = stripeFor(doctorId);
+        lock.lock();
+        try {
+            DoctorSchedule schedule = scheduleFor(doctorId);
+            if (schedule == null) {
+                throw new InvalidRequestException("Unknown doctor " + doctorId);
+            }
+            if (isBlocking(appointment)) {
+                ensureFree(doctorId, schedule, appointment.getAppointmentDate(), appointment.getId());
+            }
+
+            Appointment saved = newTransaction().execute(status -> appointmentRepository.save(appointment));
+
+            schedule.remove(saved.getId());
+            if (isBlocking(saved)) {
+                schedule.add(saved.getId(), saved.getAppointmentDate());
+            }
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the status and/or notes of an appointment that still has {@code version}, as one update
+     * statement that reads nothing first. A change that could create an overlap, i.e. making a cancelled
+     * appointment blocking again, is not made here: the update only matches if the appointment already
+     * blocks its slot or stays non-blocking. {@code null} leaves a field as it is.
+     *
+     * @return the appointment's doctor, date and previous status, or empty if no appointment matched, in
+     *         which case the caller tells a missing appointment, a stale version and a reactivation apart
+     */
+    public Optional<PatchedAppointment> patch(Long id, long version, AppointmentStatus status, String notes) {
+        Map<String, Object> assignments = new LinkedHashMap<>();
+        if (status != null) {
+            assignments.put("status", status.getCode());
+        }
+        if (notes != null) {
+            assignments.put("notes", notes);
+        }
+        Map<String, Collection<?>> guard = status != null && status.isBlocking()
+                ? Map.of("status", Arrays.stream(AppointmentStatus.values()).filter(AppointmentStatus::isBlocking)
+                        .map(AppointmentStatus::getCode).toList())
+                : Map.of();
+        Map<String, Class<?>> previous = new LinkedHashMap<>();
+        previous.put("doctor_id", Long.class);
+        previous.put("appointment_date", LocalDateTime.class);
+        previous.put("status", Short.class);
+
+        Optional<PatchedAppointment> patched = newTransaction().execute(tx -> versionedUpdateRepository
+                .update("appointments", id, version, assignments, guard, List.of(), previous)
+                .map(row -> {
+                    PatchedAppointment result = new PatchedAppointment((Long) row[0], (LocalDateTime) row[1],
+                            AppointmentStatus.fromCode((Short) row[2]), (Long) row[3] + 1);
+                    if (workloadListener != null && status != null && status != result.previousStatus()) {
+                        workloadListener.statusChanged(entityManager.unwrap(SessionImplementor.class),
+                                result.doctorId(), result.date(), result.previousStatus(), status);
+                    }
+                    return result;
+                }));
+
+        // Cancelling frees the slot; the guard rules out the other direction
+        patched.filter(result -> result.previousStatus().isBlocking() && status != null && !status.isBlocking())
+                .ifPresent(result -> {
+                    Lock lock = stripeFor(result.doctorId());
+                    lock.lock();
+                    try {
+                        DoctorSchedule schedule = schedules.get(result.doctorId());
+                        if (schedule != null) {
+                            schedule.remove(id);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                });
+        return patched;
+    }
+
+    /**
+     * Books many new appointments, {@link BatchPersister#CHUNK_SIZE} per transaction. Each chunk holds the
+     * stripes of all its doctors, taken in stripe order so concurrent batches cannot deadlock, while it is
+     * checked against the index and against earlier rows of the batch, written and committed.
+     *
+     * @return reason each row was not booked, keyed by its position in {@code appointments}
+     */
+    public Map<Integer, String> bookAll(List<Appointment> appointments) {
+        Map<Integer, String> failures = new HashMap<>();
+        for (int from = 0; from < appointments.size(); from += BatchPersister.CHUNK_SIZE) {
+            List<Appointment> chunk = appointments.subList(from, Math.min(from + BatchPersister.CHUNK_SIZE, appointments.size()));
+            int offset = from;
+            bookChunk(chunk).forEach((position, error) -> failures.put(offset + position, BatchPersister.describe(error)));
+        }
+        return failures;
+    }
+
+    /**
+     * Books new appointments from concurrent callers in one transaction, like one chunk of {@link #bookAll}.
+     * Overlaps fail their row with a {@link BookingConflictException}, and rows without a date, status or
+     * doctor, or for a doctor or patient that is unknown or soft-deleted, with an
+     * {@link InvalidRequestException}; if the transaction fails, rows are retried one by one so each fails
+     * only with its own exception.
+     *
+     * @return exception each row was not booked with, keyed by its position in {@code group}
+     */
+    public Map<Integer, RuntimeException> bookGroup(List<Appointment> group) {
+        if (group.size() > BatchPersister.CHUNK_SIZE) {
+            throw new IllegalArgumentException("A group holds at most " + BatchPersister.CHUNK_SIZE + " appointments");
+        }
+        return bookChunk(group);
+    }
+
+    private Map<Integer, RuntimeException> bookChunk(List<Appointment> chunk) {
+        // Rows the overlap check cannot read fail on their own instead of failing the whole chunk
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+        List<Appointment> checkable = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Appointment appointment = chunk.get(i);
+            if (appointment.getAppointmentDate() == null || appointment.getStatus() == null
+                    || appointment.getDoctor() == null || appointment.getDoctor().getId() == null) {
+                failures.put(i, new InvalidRequestException("date, status and doctorId are required"));
+            } else {
+                checkable.add(appointment);
+            }
+        }
+
+        List<Lock> locks = new TreeSet<>(checkable.stream().map(a -> stripeIndex(a.getDoctor().getId())).toList())
+                .stream().map(i -> stripes[i]).toList();
+        locks.forEach(Lock::lock);
+        try {
+            // Rows of unknown or soft-deleted doctors and patients fail here rather than failing the chunk's
+            // insert, or being booked for a record that is already hidden
+            Set<Long> patients = existingPatients(checkable);
+            List<Appointment> known = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (failures.containsKey(i)) {
+                    continue;
+                }
+                Long doctorId = chunk.get(i).getDoctor().getId();
+                Long patientId = patientId(chunk.get(i));
+                if (scheduleFor(doctorId) == null) {
+                    failures.put(i, new InvalidRequestException("Unknown doctor " + doctorId));
+                } else if (patientId != null && !patients.contains(patientId)) {
+                    failures.put(i, new InvalidRequestException("Unknown patient " + patientId));
+                } else {
+                    known.add(chunk.get(i));
+                }
+            }
+            Map<Long, DoctorSchedule> history = loadHistory(known);
+            Duration slot = getSlot();
+
+            // Accepted rows hold their slot under a negative placeholder key until they have an id
+            List<Appointment> accepted = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            List<DoctorSchedule> holders = new ArrayList<>();
+            List<Long> placeholders = new ArrayList<>();
+            long placeholder = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                if (failures.containsKey(i)) {
+                    continue;
+                }
+                Appointment appointment = chunk.get(i);
+                Long doctorId = appointment.getDoctor().getId();
+                DoctorSchedule schedule = scheduleFor(doctorId);
+                if (appointment.getAppointmentDate().isBefore(schedule.coversFrom)) {
+                    schedule = history.get(doctorId);
+                }
+                Long key = null;
+                if (isBlocking(appointment)) {
+                    if (schedule.findOverlap(appointment.getAppointmentDate(), slot, null) != null) {
+                        failures.put(i, new BookingConflictException("Doctor " + doctorId
+                                + " already has an appointment overlapping " + appointment.getAppointmentDate()));
+                        continue;
+                    }
+                    key = --placeholder;
+                    schedule.add(key, appointment.getAppointmentDate());
+                }
+                accepted.add(appointment);
+                positions.add(i);
+                holders.add(schedule);
+                placeholders.add(key);
+            }
+
+            Map<Integer, RuntimeException> writeFailures = batchPersister.persistChunk(accepted, a -> a.setId(null));
+            for (int j = 0; j < accepted.size(); j++) {
+                if (placeholders.get(j) == null) {
+                    continue;
+                }
+                holders.get(j).remove(placeholders.get(j));
+                if (!writeFailures.containsKey(j)) {
+                    holders.get(j).add(accepted.get(j).getId(), accepted.get(j).getAppointmentDate());
+                }
+            }
+            writeFailures.forEach((j, error) -> failures.put(positions.get(j), error));
+            return failures;
+        } finally {
+            locks.reversed().forEach(Lock::unlock);
+        }
+    }
+
+    // One query for the whole chunk
+    private Set<Long> existingPatients(List<Appointment> chunk) {
+        List<Long> ids = chunk.stream().map(AppointmentBookingEngine::patientId).filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(readTransaction().execute(status -> patientRepository.findExistingIds(ids)));
+    }
+
+    private static Long patientId(Appointment appointment) {
+        return appointment.getPatient() != null ? appointment.getPatient().getId() : null;
+    }
+
+    /**
+     * Blocking appointments before the indexed window for the doctors of a chunk that book into the
+     * past, e.g. when importing records. Read with one query and discarded after the chunk.
+     */
+    private Map<Long, DoctorSchedule> loadHistory(List<Appointment> chunk) {
+        Map<Long, DoctorSchedule> history = new HashMap<>();
+        LocalDateTime earliest = null;
+        LocalDateTime latest = null;
+        for (Appointment appointment : chunk) {
+            LocalDateTime start = appointment.getAppointmentDate();
+            if (start.isBefore(scheduleFor(appointment.getDoctor().getId()).coversFrom)) {
+                history.putIfAbsent(appointment.getDoctor().getId(), new DoctorSchedule(LocalDateTime.MIN));
+                earliest = earliest == null || start.isBefore(earliest) ? start : earliest;
+                latest = latest == null || start.isAfter(latest) ? start : latest;
+            }
+        }
+        if (history.isEmpty()) {
+            return history;
+        }
+
+        long key = Long.MIN_VALUE;
+        LocalDateTime from = earliest.minus(getSlot());
+        LocalDateTime to = latest.plus(getSlot());
+        for (BookedSlotRow row : readTransaction().execute(status -> appointmentRepository
+                .findDoctorsAppointmentsBetweenDates(history.keySet(), from, to))) {
+            history.get(row.getDoctorId()).add(key++, row.getStart());
+        }
+        return history;
+    }
+
+    /**
+     * Deletes an appointment and frees its slot once the deletion has committed.
+     */
+    public void cancel(Appointment appointment) {
+        Long doctorId = appointment.getDoctor().getId();
+        Lock lock = stripeFor(doctorId);
+        lock.lock();
+        try {
+            newTransaction().executeWithoutResult(status -> appointmentRepository.delete(appointment));
+
+            DoctorSchedule schedule = schedules.get(doctorId);
+            if (schedule != null) {
+                schedule.remove(appointment.getId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the cached schedules of doctors whose appointments were removed in bulk, e.g. by a
+     * cascading patient or doctor delete. Runs after the surrounding transaction commits.
+     */
+    public void evictAfterCommit(Collection<Long> doctorIds) {
+        afterCommit(() -> doctorIds.forEach(schedules::remove));
+    }
+
+    private void ensureFree(Long doctorId, DoctorSchedule schedule, LocalDateTime start, Long appointmentId) {
+        Duration slot = getSlot();
+        Long conflict;
+        if (start.isBefore(schedule.coversFrom)) {
+            // Outside the indexed window: ask the database for that range only
+            conflict = readTransaction().execute(status -> appointmentRepository.findDoctorAppointmentsBetweenDates(
+                            doctorId, start.minus(slot), start.plus(slot))).stream()
+                    .filter(this::isBlocking)
+                    .filter(existing -> !existing.getId().equals(appointmentId))
+                    .filter(existing -> overlaps(existing.getAppointmentDate(), start, slot))
+                    .map(Appointment::getId)
+                    .findFirst()
+                    .orElse(null);
+        } else {
+            conflict = schedule.findOverlap(start, slot, appointmentId);
+        }
+
+        if (conflict != null) {
+            throw new BookingConflictException("Doctor " + doctorId + " already has appointment " + conflict
+                    + " overlapping " + start);
+        }
+    }
+
+    /**
+     * The doctor's schedule, loaded on first use, or {@code null} if there is no such doctor.
+     */
+    private DoctorSchedule scheduleFor(Long doctorId) {
+        // Called under the doctor's stripe lock, so each schedule is loaded once
+        LocalDateTime from = LocalDate.now().minusDays(1).atStartOfDay();
+        DoctorSchedule cached = schedules.get(doctorId);
+        if (cached != null) {
+            cached.moveTo(from, getSlot());
+            return cached;
+        }
+        DoctorSchedule schedule = new DoctorSchedule(from);
+        boolean exists = Boolean.TRUE.equals(readTransaction().execute(status -> {
+            if (!doctorRepository.existsById(doctorId)) {
+                return false;
+            }
+            appointmentRepository.findDoctorAppointmentsBetweenDates(doctorId, from.minus(getSlot()), INDEX_END).stream()
+                    .filter(this::isBlocking)
+                    .forEach(existing -> schedule.add(existing.getId(), existing.getAppointmentDate()));
+            return true;
+        }));
+        if (!exists) {
+            return null;
+        }
+        schedules.put(doctorId, schedule);
+        return schedule;
+    }
+
+    private boolean isBlocking(Appointment appointment) {
+        return appointment.getStatus().isBlocking();
+    }
+
+    private static boolean overlaps(LocalDateTime existingStart, LocalDateTime start, Duration slot) {
+        return existingStart.isAfter(start.minus(slot)) && existingStart.isBefore(start.plus(slot));
+    }
+
+    private Lock stripeFor(Long doctorId) {
+        return stripes[stripeIndex(doctorId)];
+    }
+
+    private static int stripeIndex(Long doctorId) {
+        return Math.floorMod(doctorId.hashCode(), STRIPES);
+    }
+
+    // A query outside a transaction keeps its connection until the caller returns, so the write that
+    // follows in a new transaction would need a second connection
+    private TransactionTemplate readTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * What {@link #patch} changed: the appointment's doctor and date, its status before the update and its
+     * new version.
+     */
+    public record PatchedAppointment(Long doctorId, LocalDateTime date, AppointmentStatus previousStatus, long version) {
+    }
+
+    /**
+     * Blocking appointments of one doctor ordered by start. Only touched under the doctor's stripe lock.
+     */
+    private static final class DoctorSchedule {
+        private LocalDateTime coversFrom;
+        private final NavigableMap<LocalDateTime, Set<Long>> byStart = new TreeMap<>();
+        private final Map<Long, LocalDateTime> startById = new HashMap<>();
+
+        private DoctorSchedule(LocalDateTime coversFrom) {
+            this.coversFrom = coversFrom;
+        }
+
+        /**
+         * Moves the start of the window forward to {@code from}, dropping appointments that can no longer
+         * overlap a slot inside it. Bookings before the window are checked against the database.
+         */
+        void moveTo(LocalDateTime from, Duration slot) {
+            if (!from.isAfter(coversFrom)) {
+                return;
+            }
+            NavigableMap<LocalDateTime, Set<Long>> passed = byStart.headMap(from.minus(slot), true);
+            passed.values().forEach(ids -> ids.forEach(startById::remove));
+            passed.clear();
+            coversFrom = from;
+        }
+
+        void add(Long id, LocalDateTime start) {
+            byStart.computeIfAbsent(start, key -> new HashSet<>()).add(id);
+            startById.put(id, start);
+        }
+
+        void remove(Long id) {
+            LocalDateTime start = startById.remove(id);
+            if (start == null) {
+                return;
+            }
+            Set<Long> ids = byStart.get(start);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                byStart.remove(start);
+            }
+        }
+
+        Long findOverlap(LocalDateTime start, Duration slot, Long excludeId) {
+            // Equal-length slots overlap exactly when their starts are less than one slot apart
+            for (Set<Long> ids : byStart.subMap(start.minus(slot), false, start.plus(slot), false).values()) {
+                for (Long id : ids) {
+                    if (!id.equals(excludeId)) {
+                        return id;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentKeyRow;
+import com.auca.clinic_system.dto.DoctorDayStatusCountRow;
+import com.auca.clinic_system.event.AppointmentChangedEvent;
+import com.auca.clinic_system.event.ChangeType;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import com.auca.clinic_system.repository.DoctorDailyWorkloadRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Deletes the appointments of a patient or doctor with set-based statements instead of loading each one
+ * into the session, as a cascade from the owning entity would. Runs in the caller's transaction.
+ *
+ * <p>The statements bypass Hibernate's events, so the rows are locked first, and exactly those ids are
+ * then counted per doctor, day and status and deleted: a status change or a booking committed meanwhile
+ * can neither skew the counts nor be removed uncounted. The workload aggregate gets the counts as deltas
+ * in the same transaction. Once it commits, the booking index of the affected doctors is refreshed, the
+ * status counters take the same counts off their days, or the whole doctor for a doctor delete, and one
+ * {@link ChangeType#DELETED} change without an appointment id is published per affected doctor, scoped
+ * to the patient for a patient delete, so a large delete does not flood the change stream.
+ */
+@Component
+public class AppointmentCascadeDeleter {
+
+    // Bind parameters per IN list, well under PostgreSQL's limit of 65535 per statement
+    private static final int IDS_PER_STATEMENT = 1_000;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorDailyWorkloadRepository workloadRepository;
+
+    @Autowired
+    private AppointmentBookingEngine bookingEngine;
+
+    @Autowired
+    private AppointmentStatusCounters statusCounters;
+
+    // Absent when the workload aggregate is not maintained
+    @Autowired(required = false)
+    private DoctorWorkloadListener workloadListener;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Deletes every appointment of a patient, a thousand per statement.
+     */
+    public int deleteForPatient(Long patientId) {
+        List<AppointmentKeyRow> keys = appointmentRepository.lockKeysByPatientId(patientId);
+        int deleted = 0;
+        for (int from = 0; from < keys.size(); from += IDS_PER_STATEMENT) {
+            deleted += deleteKeys(keys.subList(from, Math.min(from + IDS_PER_STATEMENT, keys.size())));
+        }
+        announce(keys, patientId);
+        return deleted;
+    }
+
+    /**
+     * Deletes every appointment of a doctor, a thousand per statement, along with the doctor's workload rows.
+     */
+    public int deleteForDoctor(Long doctorId) {
+        List<AppointmentKeyRow> keys = appointmentRepository.lockKeysByDoctorId(doctorId);
+        workloadRepository.deleteByDoctorId(doctorId);
+        int deleted = 0;
+        for (int from = 0; from < keys.size(); from += IDS_PER_STATEMENT) {
+            List<Long> ids = ids(keys.subList(from, Math.min(from + IDS_PER_STATEMENT, keys.size())));
+            deleted += appointmentRepository.bulkDeleteByIdIn(ids);
+        }
+        if (deleted > 0) {
+            bookingEngine.evictAfterCommit(List.of(doctorId));
+            statusCounters.doctorRemovedAfterCommit(doctorId);
+            announce(keys, null);
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes at most {@code limit} appointments of a patient, lowest ids first.
+     *
+     * @return how many were deleted; fewer than {@code limit} means none are left
+     */
+    public int deleteChunkForPatient(Long patientId, int limit) {
+        List<AppointmentKeyRow> keys = appointmentRepository.lockKeysByPatientId(patientId, limit);
+        int deleted = deleteKeys(keys);
+        announce(keys, patientId);
+        return deleted;
+    }
+
+    /**
+     * Deletes at most {@code limit} appointments of a doctor, lowest ids first.
+     *
+     * @return how many were deleted; fewer than {@code limit} means none are left
+     */
+    public int deleteChunkForDoctor(Long doctorId, int limit) {
+        List<AppointmentKeyRow> keys = appointmentRepository.lockKeysByDoctorId(doctorId, limit);
+        int deleted = deleteKeys(keys);
+        announce(keys, null);
+        return deleted;
+    }
+
+    private int deleteKeys(List<AppointmentKeyRow> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = ids(keys);
+        List<DoctorDayStatusCountRow> removed = appointmentRepository.countByDoctorDayAndStatusForIds(ids);
+        int deleted = appointmentRepository.bulkDeleteByIdIn(ids);
+        adjust(removed);
+        return deleted;
+    }
+
+    private void adjust(List<DoctorDayStatusCountRow> removed) {
+        if (workloadListener != null) {
+            SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+            removed.forEach(row -> workloadListener.removed(session, row.getDoctorId(), row.getDay(), row.getStatus(),
+                    row.getCount()));
+        }
+        bookingEngine.evictAfterCommit(removed.stream().map(DoctorDayStatusCountRow::getDoctorId).distinct().toList());
+        statusCounters.removedAfterCommit(removed);
+    }
+
+    // Delivered to the change stream once the transaction commits, like single deletes
+    private void announce(List<AppointmentKeyRow> keys, Long patientId) {
+        keys.stream().map(AppointmentKeyRow::getDoctorId).distinct().forEach(doctorId -> eventPublisher.publishEvent(
+                new AppointmentChangedEvent(ChangeType.DELETED, null, doctorId, patientId, null)));
+    }
+
+    private static List<Long> ids(List<AppointmentKeyRow> keys) {
+        return keys.stream().map(AppointmentKeyRow::getId).toList();
+    }
+}
@@ -0,0 +1,314 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentChangeDTO;
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.event.AppointmentChangedEvent;
+import com.auca.clinic_system.event.ChangeType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Server-Sent Events feed of committed appointment changes, for screens that would otherwise poll the
+ * appointment list.
+ *
+ * <p>{@link AppointmentChangedEvent}s are only queued by the writing thread. A dispatcher thread takes
+ * them in bursts, loads the appointments they do not carry with one query per burst, serializes each
+ * change once and offers it to the buffer of every subscriber for that doctor, or for all doctors.
+ * Buffers hold {@code clinic.appointments.stream.buffer-size} events (default 256) and are written out
+ * by a virtual thread per subscriber while they are not empty, so a slow connection holds up nobody
+ * else. A subscriber whose buffer overflows has missed an event: its stream is closed, and the client
+ * reconnects and reloads what it shows. Streams also get a comment every
+ * {@code clinic.appointments.stream.heartbeat} (default 15s), which keeps proxies from dropping idle
+ * ones and finds clients that are gone.
+ *
+ * <p>Open streams are published as {@code clinic.appointments.stream.subscribers} and evictions as
+ * {@code clinic.appointments.stream.evicted}.
+ */
+@Component
+public class AppointmentChangeStream implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentChangeStream.class);
+
+    // Changes the dispatcher may fall behind by before every subscriber is evicted
+    private static final int DISPATCH_QUEUE_SIZE = 10_000;
+    private static final int DISPATCH_BURST = 500;
+
+    private static final Frame HEARTBEAT = new Frame(null, "heartbeat");
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${clinic.appointments.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${clinic.appointments.stream.heartbeat:15s}")
+    private Duration heartbeat;
+
+    private final Counter evicted;
+
+    private final Set<Subscriber> allDoctors = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> byDoctor = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final BlockingQueue<AppointmentChangedEvent> changes = new LinkedBlockingQueue<>(DISPATCH_QUEUE_SIZE);
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    @Autowired
+    public AppointmentChangeStream(MeterRegistry meterRegistry) {
+        Gauge.builder("clinic.appointments.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open appointment change streams")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("clinic.appointments.stream.evicted")
+                .description("Appointment change streams closed because the client fell behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the changes to {@code doctorId}'s appointments, or to everyone's when it is
+     * {@code null}.
+     */
+    public SseEmitter subscribe(Long doctorId) {
+        return subscribe(doctorId, new SseEmitter());
+    }
+
+    SseEmitter subscribe(Long doctorId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(doctorId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(ex -> remove(subscriber));
+        if (doctorId == null) {
+            allDoctors.add(subscriber);
+        } else {
+            // Inside compute, so a concurrent remove cannot drop the set between lookup and add
+            byDoctor.compute(doctorId, (id, doctorSubscribers) -> {
+                Set<Subscriber> joined = doctorSubscribers != null ? doctorSubscribers : ConcurrentHashMap.newKeySet();
+                joined.add(subscriber);
+                return joined;
+            });
+        }
+        subscribers.incrementAndGet();
+        // Sends the response headers at once, so the client sees the stream open before the first change
+        offer(subscriber, HEARTBEAT);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        if (!changes.offer(event)) {
+            log.warn("Appointment change stream is {} changes behind; closing every stream", DISPATCH_QUEUE_SIZE);
+            forEachSubscriber(this::evict);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        if (bufferSize < 1) {
+            throw new IllegalStateException("clinic.appointments.stream.buffer-size must be at least 1");
+        }
+        running = true;
+        dispatcher = Thread.ofPlatform().name("appointment-stream-dispatcher").daemon().start(this::dispatchLoop);
+    }
+
+    /**
+     * Stops dispatching and closes every open stream.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            try {
+                dispatcher.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            dispatcher = null;
+        }
+        forEachSubscriber(subscriber -> {
+            if (remove(subscriber)) {
+                writers.execute(subscriber.emitter()::complete);
+            }
+        });
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void dispatchLoop() {
+        List<AppointmentChangedEvent> burst = new ArrayList<>(DISPATCH_BURST);
+        long nextHeartbeat = System.nanoTime() + heartbeat.toNanos();
+        while (running) {
+            try {
+                AppointmentChangedEvent first = changes.poll(nextHeartbeat - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    burst.add(first);
+                    changes.drainTo(burst, DISPATCH_BURST - 1);
+                }
+            } catch (InterruptedException ex) {
+                // Only stop() interrupts, and it has cleared running
+                continue;
+            }
+            if (!burst.isEmpty()) {
+                try {
+                    dispatch(burst);
+                } catch (RuntimeException ex) {
+                    log.warn("Could not dispatch {} appointment changes; closing every stream", burst.size(), ex);
+                    forEachSubscriber(this::evict);
+                }
+                burst.clear();
+            }
+            if (System.nanoTime() - nextHeartbeat >= 0) {
+                forEachSubscriber(subscriber -> offer(subscriber, HEARTBEAT));
+                nextHeartbeat = System.nanoTime() + heartbeat.toNanos();
+            }
+        }
+    }
+
+    private void dispatch(List<AppointmentChangedEvent> burst) {
+        List<Long> unloaded = burst.stream()
+                .filter(event -> event.getType() != ChangeType.DELETED && event.getAppointment() == null)
+                .map(AppointmentChangedEvent::getAppointmentId)
+                .distinct()
+                .toList();
+        Map<Long, AppointmentDTO> loaded = unloaded.isEmpty() ? Map.of()
+                : appointmentService.getAppointmentsByIds(unloaded).stream()
+                        .collect(Collectors.toMap(AppointmentDTO::getId, Function.identity()));
+
+        for (AppointmentChangedEvent event : burst) {
+            AppointmentDTO appointment = event.getType() == ChangeType.DELETED ? null
+                    : event.getAppointment() != null ? event.getAppointment() : loaded.get(event.getAppointmentId());
+            // Deleted before it could be loaded; its own DELETED change follows
+            if (event.getType() != ChangeType.DELETED && appointment == null) {
+                continue;
+            }
+            Frame frame = new Frame(event.getType().name(), toJson(new AppointmentChangeDTO(event.getType(),
+                    event.getAppointmentId(), event.getDoctorId(), event.getPatientId(), appointment)));
+            allDoctors.forEach(subscriber -> offer(subscriber, frame));
+            Set<Subscriber> doctorSubscribers = byDoctor.get(event.getDoctorId());
+            if (doctorSubscribers != null) {
+                doctorSubscribers.forEach(subscriber -> offer(subscriber, frame));
+            }
+        }
+    }
+
+    private void offer(Subscriber subscriber, Frame frame) {
+        if (!subscriber.buffer().offer(frame)) {
+            evict(subscriber);
+            return;
+        }
+        if (subscriber.writing().compareAndSet(false, true)) {
+            writers.execute(() -> write(subscriber));
+        }
+    }
+
+    private void write(Subscriber subscriber) {
+        do {
+            Frame frame;
+            while ((frame = subscriber.buffer().poll()) != null) {
+                try {
+                    subscriber.emitter().send(frame.event() == null
+                            ? SseEmitter.event().comment(frame.data())
+                            : SseEmitter.event().name(frame.event()).data(frame.data(), MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException ex) {
+                    // The client went away, or the stream was closed; writing stays claimed so nothing is sent again
+                    remove(subscriber);
+                    return;
+                }
+            }
+            subscriber.writing().set(false);
+        } while (!subscriber.buffer().isEmpty() && subscriber.writing().compareAndSet(false, true));
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            evicted.increment();
+            // complete() waits for a send in progress, which may be stuck on this very client
+            writers.execute(subscriber.emitter()::complete);
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.closed().compareAndSet(false, true)) {
+            return false;
+        }
+        if (subscriber.doctorId() == null) {
+            allDoctors.remove(subscriber);
+        } else {
+            byDoctor.computeIfPresent(subscriber.doctorId(), (id, doctorSubscribers) -> {
+                doctorSubscribers.remove(subscriber);
+                return doctorSubscribers.isEmpty() ? null : doctorSubscribers;
+            });
+        }
+        subscriber.buffer().clear();
+        subscribers.decrementAndGet();
+        return true;
+    }
+
+    private void forEachSubscriber(Consumer<Subscriber> action) {
+        allDoctors.forEach(action);
+        byDoctor.values().forEach(doctorSubscribers -> doctorSubscribers.forEach(action));
+    }
+
+    private String toJson(AppointmentChangeDTO change) {
+        try {
+            return objectMapper.writeValueAsString(change);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize appointment change " + change.getId(), ex);
+        }
+    }
+
+    // A null event is a comment
+    private record Frame(String event, String data) {
+    }
+
+    private record Subscriber(Long doctorId, SseEmitter emitter, BlockingQueue<Frame> buffer,
+                              AtomicBoolean writing, AtomicBoolean closed) {
+
+        Subscriber(Long doctorId, SseEmitter emitter, BlockingQueue<Frame> buffer) {
+            this(doctorId, emitter, buffer, new AtomicBoolean(), new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.entity.Appointment;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single appointment creates, off unless {@code clinic.booking.group-commit.enabled=true}.
+ *
+ * <p>{@link #book} queues the appointment instead of committing it on its own. Flusher threads
+ * ({@code clinic.booking.group-commit.flushers}, default 2) each take up to
+ * {@code clinic.booking.group-commit.max-size} queued appointments, waiting at most
+ * {@code clinic.booking.group-commit.max-wait} after the first, and book them with
+ * {@link AppointmentBookingEngine#bookGroup} as one batched insert in one transaction, so a burst of
+ * requests pays for one commit instead of one each. Every caller blocks until its group has committed and
+ * then gets its own saved appointment or exception, as from {@link AppointmentBookingEngine#book}.
+ *
+ * <p>Group sizes are published as {@code clinic.appointments.group.size} and the time each appointment
+ * waited in the queue as {@code clinic.appointments.group.wait}. When the mode is off, or the queue is
+ * full, appointments are booked directly.
+ */
+@Component
+public class AppointmentGroupCommitter implements SmartLifecycle {
+
+    // Queue room, in groups per flusher, before callers fall back to booking directly
+    private static final int QUEUED_GROUPS = 8;
+
+    @Autowired
+    private AppointmentBookingEngine bookingEngine;
+
+    @Value("${clinic.booking.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${clinic.booking.group-commit.max-size:50}")
+    private int maxSize;
+
+    @Value("${clinic.booking.group-commit.max-wait:5ms}")
+    private Duration maxWait;
+
+    @Value("${clinic.booking.group-commit.flushers:2}")
+    private int flushers;
+
+    private final DistributionSummary groupSize;
+    private final Timer queueWait;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private BlockingQueue<Pending> queue;
+    private volatile boolean running;
+
+    @Autowired
+    public AppointmentGroupCommitter(MeterRegistry meterRegistry) {
+        this.groupSize = DistributionSummary.builder("clinic.appointments.group.size")
+                .description("Appointments committed per group")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("clinic.appointments.group.wait")
+                .description("Time an appointment waited for its group to be flushed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Books a new appointment, as part of a group when group commit is on.
+     */
+    public Appointment book(Appointment appointment) {
+        // Fails here rather than in the group it would have been flushed with
+        if (appointment.getAppointmentDate() == null) {
+            throw new InvalidRequestException("date is required");
+        }
+        if (!running) {
+            return bookingEngine.book(appointment);
+        }
+        Pending pending = new Pending(appointment, System.nanoTime(), new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            return bookingEngine.book(appointment);
+        }
+        // Stopped after the check above and no flusher is left to take it
+        if (!running && queue.remove(pending)) {
+            return bookingEngine.book(appointment);
+        }
+
+        try {
+            return pending.result().join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        if (maxSize < 1 || maxSize > BatchPersister.CHUNK_SIZE) {
+            throw new IllegalStateException("clinic.booking.group-commit.max-size must be between 1 and "
+                    + BatchPersister.CHUNK_SIZE);
+        }
+        if (flushers < 1) {
+            throw new IllegalStateException("clinic.booking.group-commit.flushers must be at least 1");
+        }
+        queue = new LinkedBlockingQueue<>(maxSize * flushers * QUEUED_GROUPS);
+        running = true;
+        for (int i = 0; i < flushers; i++) {
+            threads.add(Thread.ofPlatform().name("appointment-group-commit-" + i).daemon().start(this::flushLoop));
+        }
+    }
+
+    /**
+     * Stops taking new appointments and waits for the flushers to commit everything already queued.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void flushLoop() {
+        List<Pending> group = new ArrayList<>(maxSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                // A backlog fills the group at once; otherwise wait out the rest of the first one's window
+                queue.drainTo(group, maxSize - group.size());
+                long deadline = first.queuedAt() + maxWait.toNanos();
+                while (group.size() < maxSize) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException ex) {
+                // Only stop() ends the loop, so nothing already queued is left without a result
+            }
+            if (!group.isEmpty()) {
+                flush(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> group) {
+        long flushedAt = System.nanoTime();
+        for (Pending pending : group) {
+            queueWait.record(flushedAt - pending.queuedAt(), TimeUnit.NANOSECONDS);
+        }
+        groupSize.record(group.size());
+
+        Map<Integer, RuntimeException> failures;
+        try {
+            failures = bookingEngine.bookGroup(group.stream().map(Pending::appointment).toList());
+        } catch (RuntimeException ex) {
+            group.forEach(pending -> pending.result().completeExceptionally(ex));
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            Pending pending = group.get(i);
+            RuntimeException failure = failures.get(i);
+            if (failure != null) {
+                pending.result().completeExceptionally(failure);
+            } else {
+                pending.result().complete(pending.appointment());
+            }
+        }
+    }
+
+    private record Pending(Appointment appointment, long queuedAt, CompletableFuture<Appointment> result) {
+    }
+}
@@ -1,21 +1,46 @@
 package com.auca.clinic_system.service;
 
 import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.AppointmentPatchDTO;
+import com.auca.clinic_system.dto.AppointmentStatsDTO;
+import com.auca.clinic_system.dto.BatchItemResultDTO;
+import com.auca.clinic_system.dto.CursorPageDTO;
+import com.auca.clinic_system.dto.PatchResultDTO;
 import com.auca.clinic_system.entity.Appointment;
+import com.auca.clinic_system.entity.AppointmentStatus;
 import com.auca.clinic_system.entity.Doctor;
 import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.event.AppointmentChangedEvent;
+import com.auca.clinic_system.event.ChangeType;
+import com.auca.clinic_system.exception.InvalidRequestException;
 import com.auca.clinic_system.repository.AppointmentRepository;
 import com.auca.clinic_system.repository.DoctorRepository;
 import com.auca.clinic_system.repository.PatientRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -30,6 +55,21 @@ public class AppointmentService {
     @Autowired
     private PatientRepository patientRepository;
     
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+    
+    @Autowired
+    private AppointmentBookingEngine bookingEngine;
+    
+    @Autowired
+    private AppointmentStatusCounters statusCounters;
+    
+    @Autowired
+    private AppointmentGroupCommitter groupCommitter;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     public List<AppointmentDTO> getAllAppointments() {
         return appointmentRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -41,17 +81,57 @@ public class AppointmentService {
                 .map(this::convertToDTO);
     }
     
+    public CursorPageDTO<AppointmentDTO> getAppointmentsAfter(String after, int limit) {
+        Pageable window = PageRequest.ofSize(limit + 1);
+        List<Appointment> rows;
+        if (after == null) {
+            rows = appointmentRepository.findKeysetFirstPage(window);
+        } else {
+            KeysetCursor cursor = KeysetCursor.decode(after).requireDate();
+            rows = appointmentRepository.findKeysetPageAfter(cursor.getDate(), cursor.getId(), window);
+        }
+        
+        boolean hasMore = rows.size() > limit;
+        List<Appointment> page = hasMore ? rows.subList(0, limit) : rows;
+        List<AppointmentDTO> items = page.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (hasMore) {
+            Appointment last = page.get(page.size() - 1);
+            nextCursor = KeysetCursor.of(last.getAppointmentDate(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(items, nextCursor);
+    }
+    
+    @Transactional(readOnly = true)
+    public void exportAppointments(OutputStream out) throws IOException {
+        try (Stream<AppointmentDTO> appointments = appointmentRepository.streamAllAsDTO()) {
+            ndjsonExporter.export(appointments, Function.identity(), out);
+        }
+    }
+    
     public Optional<AppointmentDTO> getAppointmentById(Long id) {
         return appointmentRepository.findById(id)
                 .map(this::convertToDTO);
     }
     
-    public List<AppointmentDTO> getAppointmentsByStatus(String status) {
-        return appointmentRepository.findByStatus(status).stream()
+    public List<AppointmentDTO> getAppointmentsByIds(Collection<Long> ids) {
+        return appointmentRepository.findByIdIn(ids).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
+    public Slice<AppointmentDTO> getAppointmentsByStatus(String status, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "appointmentDate", "id"));
+        return appointmentRepository.findByStatus(parseStatus(status), pageable)
+                .map(this::convertToDTO);
+    }
+    
+    public AppointmentStatsDTO getStats(LocalDate date, Long doctorId) {
+        return statusCounters.getStats(date, doctorId);
+    }
+    
     public List<AppointmentDTO> getAppointmentsByDoctorId(Long doctorId) {
         return appointmentRepository.findByDoctorId(doctorId).stream()
                 .map(this::convertToDTO)
@@ -64,30 +144,150 @@ public class AppointmentService {
                 .collect(Collectors.toList());
     }
     
+    // Writes go through the booking engine, which commits under the doctor's lock,
+    // so they must not run inside a transaction of their own
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AppointmentDTO createAppointment(AppointmentDTO appointmentDTO) {
         Appointment appointment = convertToEntity(appointmentDTO);
-        Appointment savedAppointment = appointmentRepository.save(appointment);
-        return convertToDTO(savedAppointment);
+        statusCounters.writeStarted();
+        try {
+            Appointment savedAppointment = groupCommitter.book(appointment);
+            statusCounters.changed(savedAppointment.getDoctor().getId(), null, null,
+                    savedAppointment.getAppointmentDate(), savedAppointment.getStatus());
+            AppointmentDTO created = convertToDTO(savedAppointment);
+            eventPublisher.publishEvent(new AppointmentChangedEvent(ChangeType.CREATED, created.getId(),
+                    created.getDoctorId(), created));
+            return created;
+        } finally {
+            statusCounters.writeFinished();
+        }
+    }
+    
+    // Doctors and patients are attached as reference proxies: an unknown id fails its row at insert
+    // time instead of costing a SELECT per row
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchItemResultDTO> createAppointments(List<AppointmentDTO> appointmentDTOs) {
+        BatchPersister.checkBatchSize(appointmentDTOs.size());
+        BatchItemResultDTO[] results = new BatchItemResultDTO[appointmentDTOs.size()];
+        List<Appointment> pending = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < appointmentDTOs.size(); i++) {
+            try {
+                pending.add(convertToReferencingEntity(appointmentDTOs.get(i)));
+                positions.add(i);
+            } catch (InvalidRequestException ex) {
+                results[i] = BatchItemResultDTO.failed(i, ex.getMessage());
+            }
+        }
+        
+        statusCounters.writeStarted();
+        try {
+            Map<Integer, String> failures = bookingEngine.bookAll(pending);
+            for (int j = 0; j < pending.size(); j++) {
+                int i = positions.get(j);
+                if (failures.containsKey(j)) {
+                    results[i] = BatchItemResultDTO.failed(i, failures.get(j));
+                } else {
+                    Appointment created = pending.get(j);
+                    statusCounters.changed(created.getDoctor().getId(), null, null,
+                            created.getAppointmentDate(), created.getStatus());
+                    // The doctor and patient are unloaded proxies here, so listeners load the row if they need it
+                    eventPublisher.publishEvent(new AppointmentChangedEvent(ChangeType.CREATED, created.getId(),
+                            created.getDoctor().getId(), null));
+                    results[i] = BatchItemResultDTO.created(i, created.getId());
+                }
+            }
+        } finally {
+            statusCounters.writeFinished();
+        }
+        return Arrays.asList(results);
     }
     
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Optional<AppointmentDTO> updateAppointment(Long id, AppointmentDTO appointmentDTO) {
+        if (appointmentDTO.getDate() == null) {
+            throw new InvalidRequestException("date is required");
+        }
         return appointmentRepository.findById(id)
                 .map(existingAppointment -> {
+                    checkVersion(existingAppointment, appointmentDTO.getVersion());
+                    LocalDateTime previousDate = existingAppointment.getAppointmentDate();
+                    AppointmentStatus previousStatus = existingAppointment.getStatus();
                     existingAppointment.setAppointmentDate(appointmentDTO.getDate());
-                    existingAppointment.setStatus(appointmentDTO.getStatus());
+                    if (appointmentDTO.getStatus() != null) {
+                        existingAppointment.setStatus(appointmentDTO.getStatus());
+                    }
                     existingAppointment.setNotes(appointmentDTO.getNotes());
-                    
-                    Appointment updatedAppointment = appointmentRepository.save(existingAppointment);
-                    return convertToDTO(updatedAppointment);
+                    return rebook(existingAppointment, previousDate, previousStatus);
                 });
     }
     
-    public boolean deleteAppointment(Long id) {
-        if (appointmentRepository.existsById(id)) {
-            appointmentRepository.deleteById(id);
-            return true;
+    // A status or notes change is one versioned UPDATE without a read; moving the appointment, or making a
+    // cancelled one blocking again, needs the overlap check and goes through the booking engine instead
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<PatchResultDTO> patchAppointment(Long id, AppointmentPatchDTO patch) {
+        if (patch.getVersion() == null) {
+            throw new InvalidRequestException("version is required");
+        }
+        if (patch.getDate() == null && patch.getStatus() == null && patch.getNotes() == null) {
+            throw new InvalidRequestException("Nothing to update: send date, status or notes");
+        }
+        
+        if (patch.getDate() == null) {
+            statusCounters.writeStarted();
+            try {
+                Optional<AppointmentBookingEngine.PatchedAppointment> patched =
+                        bookingEngine.patch(id, patch.getVersion(), patch.getStatus(), patch.getNotes());
+                if (patched.isPresent()) {
+                    AppointmentBookingEngine.PatchedAppointment result = patched.get();
+                    if (patch.getStatus() != null) {
+                        statusCounters.changed(result.doctorId(), result.date(), result.previousStatus(),
+                                result.date(), patch.getStatus());
+                    }
+                    eventPublisher.publishEvent(new AppointmentChangedEvent(ChangeType.UPDATED, id, result.doctorId(), null));
+                    return Optional.of(new PatchResultDTO(id, result.version()));
+                }
+            } finally {
+                statusCounters.writeFinished();
+            }
         }
-        return false;
+        
+        return appointmentRepository.findById(id)
+                .map(existingAppointment -> {
+                    checkVersion(existingAppointment, patch.getVersion());
+                    LocalDateTime previousDate = existingAppointment.getAppointmentDate();
+                    AppointmentStatus previousStatus = existingAppointment.getStatus();
+                    if (patch.getDate() != null) {
+                        existingAppointment.setAppointmentDate(patch.getDate());
+                    }
+                    if (patch.getStatus() != null) {
+                        existingAppointment.setStatus(patch.getStatus());
+                    }
+                    if (patch.getNotes() != null) {
+                        existingAppointment.setNotes(patch.getNotes());
+                    }
+                    AppointmentDTO updatedAppointment = rebook(existingAppointment, previousDate, previousStatus);
+                    return new PatchResultDTO(id, updatedAppointment.getVersion());
+                });
+    }
+    
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean deleteAppointment(Long id) {
+        return appointmentRepository.findById(id)
+                .map(existingAppointment -> {
+                    statusCounters.writeStarted();
+                    try {
+                        bookingEngine.cancel(existingAppointment);
+                        statusCounters.changed(existingAppointment.getDoctor().getId(), existingAppointment.getAppointmentDate(),
+                                existingAppointment.getStatus(), null, null);
+                    } finally {
+                        statusCounters.writeFinished();
+                    }
+                    eventPublisher.publishEvent(new AppointmentChangedEvent(ChangeType.DELETED, id,
+                            existingAppointment.getDoctor().getId(), null));
+                    return true;
+                })
+                .orElse(false);
     }
     
     public AppointmentDTO convertToDTO(Appointment appointment) {
@@ -96,12 +296,15 @@ public class AppointmentService {
         dto.setDate(appointment.getAppointmentDate());
         dto.setStatus(appointment.getStatus());
         dto.setNotes(appointment.getNotes());
+        dto.setVersion(appointment.getVersion());
         
         if (appointment.getDoctor() != null) {
+            dto.setDoctorId(appointment.getDoctor().getId());
             dto.setDoctorName(appointment.getDoctor().getName());
         }
         
         if (appointment.getPatient() != null) {
+            dto.setPatientId(appointment.getPatient().getId());
             dto.setPatientName(appointment.getPatient().getName());
         }
         
@@ -109,10 +312,61 @@ public class AppointmentService {
     }
     
     public Appointment convertToEntity(AppointmentDTO dto) {
+        if (dto.getDate() == null || dto.getDoctorId() == null || dto.getPatientId() == null) {
+            throw new InvalidRequestException("date, doctorId and patientId are required");
+        }
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentDate(dto.getDate());
+        appointment.setStatus(dto.getStatus() != null ? dto.getStatus() : AppointmentStatus.SCHEDULED);
+        appointment.setNotes(dto.getNotes());
+        
+        appointment.setDoctor(doctorRepository.findById(dto.getDoctorId())
+                .orElseThrow(() -> new InvalidRequestException("Unknown doctor " + dto.getDoctorId())));
+        appointment.setPatient(patientRepository.findById(dto.getPatientId())
+                .orElseThrow(() -> new InvalidRequestException("Unknown patient " + dto.getPatientId())));
+        
+        return appointment;
+    }
+    
+    private Appointment convertToReferencingEntity(AppointmentDTO dto) {
+        if (dto.getDate() == null || dto.getDoctorId() == null || dto.getPatientId() == null) {
+            throw new InvalidRequestException("date, doctorId and patientId are required");
+        }
         Appointment appointment = new Appointment();
         appointment.setAppointmentDate(dto.getDate());
-        appointment.setStatus(dto.getStatus());
+        appointment.setStatus(dto.getStatus() != null ? dto.getStatus() : AppointmentStatus.SCHEDULED);
         appointment.setNotes(dto.getNotes());
+        appointment.setDoctor(doctorRepository.getReferenceById(dto.getDoctorId()));
+        appointment.setPatient(patientRepository.getReferenceById(dto.getPatientId()));
         return appointment;
     }
+    
+    private AppointmentDTO rebook(Appointment appointment, LocalDateTime previousDate, AppointmentStatus previousStatus) {
+        statusCounters.writeStarted();
+        try {
+            Appointment updatedAppointment = bookingEngine.book(appointment);
+            statusCounters.changed(updatedAppointment.getDoctor().getId(), previousDate, previousStatus,
+                    updatedAppointment.getAppointmentDate(), updatedAppointment.getStatus());
+            AppointmentDTO updated = convertToDTO(updatedAppointment);
+            eventPublisher.publishEvent(new AppointmentChangedEvent(ChangeType.UPDATED, updated.getId(),
+                    updated.getDoctorId(), updated));
+            return updated;
+        } finally {
+            statusCounters.writeFinished();
+        }
+    }
+    
+    private static void checkVersion(Appointment appointment, Long version) {
+        if (version != null && !version.equals(appointment.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Appointment.class, appointment.getId());
+        }
+    }
+    
+    private static AppointmentStatus parseStatus(String status) {
+        try {
+            return AppointmentStatus.parse(status);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException(ex.getMessage());
+        }
+    }
 }
@@ -0,0 +1,216 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentStatsDTO;
+import com.auca.clinic_system.dto.DoctorDayStatusCountRow;
+import com.auca.clinic_system.dto.DoctorStatusCountRow;
+import com.auca.clinic_system.dto.DoctorStatusCountsDTO;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Appointments per day, doctor and status, kept in memory and adjusted on every create, update and
+ * delete instead of being counted again.
+ *
+ * <p>A day is loaded with one grouped query the first time it is asked for, through a
+ * {@link SnapshotLoader}: writes are bracketed by {@link #writeStarted()} and {@link #writeFinished()},
+ * with their effect reported in between, and a change reported while its day loads is applied to the
+ * loaded counts. Appointments removed by a cascading patient or doctor delete are reported once the
+ * delete commits. The most recently used {@value #MAX_DAYS} days are kept.
+ */
+@Component
+public class AppointmentStatusCounters {
+
+    static final int MAX_DAYS = 400;
+
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    // Access-ordered, so the eldest entry is the least recently used day; guarded by itself
+    private final Map<LocalDate, DayCounts> days = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, DayCounts> eldest) {
+            return size() > MAX_DAYS;
+        }
+    };
+
+    private final SnapshotLoader<LocalDate, DayCounts> loader;
+
+    @Autowired
+    public AppointmentStatusCounters(PlatformTransactionManager transactionManager, EntityManager entityManager) {
+        this.loader = new SnapshotLoader<>(transactionManager, entityManager, days);
+    }
+
+    public AppointmentStatsDTO getStats(LocalDate date, Long doctorId) {
+        DayCounts day = countsFor(date);
+        Map<AppointmentStatus, Long> totals = toMap(day.totals);
+        List<DoctorStatusCountsDTO> doctors = new ArrayList<>();
+        day.byDoctor.entrySet().stream()
+                .filter(entry -> doctorId == null || entry.getKey().equals(doctorId))
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> doctors.add(new DoctorStatusCountsDTO(entry.getKey(), toMap(entry.getValue()))));
+        return new AppointmentStatsDTO(date, totals, doctors);
+    }
+
+    public void writeStarted() {
+        loader.writeStarted();
+    }
+
+    public void writeFinished() {
+        loader.writeFinished();
+    }
+
+    /**
+     * Records a committed change; call between {@link #writeStarted()} and {@link #writeFinished()}.
+     * {@code before} is {@code null} for a new appointment and {@code after} for a deleted one.
+     */
+    public void changed(Long doctorId, LocalDateTime before, AppointmentStatus statusBefore,
+                        LocalDateTime after, AppointmentStatus statusAfter) {
+        synchronized (days) {
+            if (before != null) {
+                adjust(before.toLocalDate(), doctorId, statusBefore, -1);
+            }
+            if (after != null) {
+                adjust(after.toLocalDate(), doctorId, statusAfter, 1);
+            }
+        }
+    }
+
+    /**
+     * Takes appointments removed in the surrounding transaction off their days once it commits, for
+     * deletes that bypass {@link #changed}, such as those of a patient's appointments.
+     */
+    public void removedAfterCommit(List<DoctorDayStatusCountRow> removed) {
+        afterCommit(() -> {
+            synchronized (days) {
+                removed.forEach(row -> adjust(row.getDay(), row.getDoctorId(), row.getStatus(), -row.getCount()));
+            }
+        });
+    }
+
+    /**
+     * Drops a doctor from every day once the surrounding transaction commits, for a doctor deleted
+     * together with all of its appointments.
+     */
+    public void doctorRemovedAfterCommit(Long doctorId) {
+        afterCommit(() -> {
+            synchronized (days) {
+                days.values().forEach(day -> day.removeDoctor(doctorId));
+                loader.deferForAllLoading(day -> day.removeDoctor(doctorId));
+            }
+        });
+    }
+
+    // Brackets the commit itself as a write, so a day loading meanwhile sees the removal exactly once
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeStarted();
+            try {
+                change.run();
+            } finally {
+                writeFinished();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                writeStarted();
+                started = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (started) {
+                    writeFinished();
+                }
+            }
+        });
+    }
+
+    private DayCounts countsFor(LocalDate date) {
+        DayCounts day = loader.load(date, days::get, this::query, days::put);
+        synchronized (days) {
+            return day.copy();
+        }
+    }
+
+    private DayCounts query(LocalDate date) {
+        DayCounts loaded = new DayCounts();
+        for (DoctorStatusCountRow row : appointmentRepository.countByDoctorAndStatusBetween(
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay())) {
+            loaded.add(row.getDoctorId(), row.getStatus(), row.getCount());
+        }
+        return loaded;
+    }
+
+    // Called with the days monitor held
+    private void adjust(LocalDate date, Long doctorId, AppointmentStatus status, long delta) {
+        if (loader.deferIfLoading(date, day -> day.add(doctorId, status, delta))) {
+            return;
+        }
+        DayCounts day = days.get(date);
+        if (day != null) {
+            day.add(doctorId, status, delta);
+        }
+    }
+
+    private static Map<AppointmentStatus, Long> toMap(long[] counts) {
+        Map<AppointmentStatus, Long> map = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : STATUSES) {
+            map.put(status, counts[status.ordinal()]);
+        }
+        return map;
+    }
+
+    /**
+     * Counts of one day, indexed by status ordinal. Mutated only with the days monitor held.
+     */
+    private static final class DayCounts {
+        private final long[] totals = new long[STATUSES.length];
+        private final Map<Long, long[]> byDoctor = new HashMap<>();
+
+        void add(Long doctorId, AppointmentStatus status, long delta) {
+            totals[status.ordinal()] += delta;
+            long[] counts = byDoctor.computeIfAbsent(doctorId, id -> new long[STATUSES.length]);
+            counts[status.ordinal()] += delta;
+            if (Arrays.stream(counts).allMatch(count -> count == 0)) {
+                byDoctor.remove(doctorId);
+            }
+        }
+
+        void removeDoctor(Long doctorId) {
+            long[] counts = byDoctor.remove(doctorId);
+            if (counts != null) {
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] -= counts[i];
+                }
+            }
+        }
+
+        DayCounts copy() {
+            DayCounts copy = new DayCounts();
+            System.arraycopy(totals, 0, copy.totals, 0, totals.length);
+            byDoctor.forEach((doctorId, counts) -> copy.byDoctor.put(doctorId, counts.clone()));
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AvailableSlotDTO;
+import com.auca.clinic_system.dto.BookedSlotRow;
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import com.auca.clinic_system.repository.DoctorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Finds free appointment slots across all doctors of a specialization.
+ *
+ * <p>Each working day is a grid of booking-engine slots starting at {@code clinic.availability.day-start}.
+ * Every doctor gets one {@link BitSet} per day with a bit set for each grid slot an existing appointment
+ * overlaps, so a candidate is free exactly when the booking engine would accept it. The doctors and all
+ * their appointments in the window are read with two projection queries, whatever the number of doctors.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AvailabilityService {
+
+    public static final int DEFAULT_WINDOW_DAYS = 7;
+    public static final int MAX_WINDOW_DAYS = 62;
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 200;
+
+    private static final BitSet NO_BOOKINGS = new BitSet();
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentBookingEngine bookingEngine;
+
+    @Value("${clinic.availability.day-start:08:00}")
+    private String dayStart;
+
+    @Value("${clinic.availability.day-end:17:00}")
+    private String dayEnd;
+
+    /**
+     * Earliest free slots of at least {@code durationMinutes}, ordered by start and then doctor id.
+     * {@code from} and {@code to} are inclusive days; slots that have already started are skipped.
+     */
+    public List<AvailableSlotDTO> findAvailableSlots(String specialization, LocalDate from, LocalDate to,
+                                                     Integer durationMinutes, Integer limit) {
+        LocalDate firstDay = from != null ? from : LocalDate.now();
+        LocalDate lastDay = to != null ? to : firstDay.plusDays(DEFAULT_WINDOW_DAYS - 1);
+        int days = (int) ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+        if (days < 1 || days > MAX_WINDOW_DAYS) {
+            throw new InvalidRequestException("Window must cover 1 to " + MAX_WINDOW_DAYS + " days");
+        }
+
+        LocalTime open = LocalTime.parse(dayStart);
+        Duration slot = bookingEngine.getSlot();
+        int slotsPerDay = (int) (Duration.between(open, LocalTime.parse(dayEnd)).getSeconds() / slot.getSeconds());
+        int needed = slotsNeeded(durationMinutes, slot);
+        if (needed > slotsPerDay) {
+            throw new InvalidRequestException("Duration does not fit in a working day");
+        }
+        int maxResults = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+
+        List<DoctorMinimalRow> doctors = new ArrayList<>(doctorRepository.findMinimalBySpecialization(specialization));
+        if (doctors.isEmpty()) {
+            return List.of();
+        }
+        doctors.sort(Comparator.comparing(DoctorMinimalRow::getId));
+
+        BitSet[][] calendar = buildCalendar(doctors, firstDay, days, open, slot, slotsPerDay);
+
+        List<AvailableSlotDTO> slots = new ArrayList<>(maxResults);
+        LocalDateTime now = LocalDateTime.now();
+        for (int day = 0; day < days && slots.size() < maxResults; day++) {
+            LocalDateTime dayOpen = firstDay.plusDays(day).atTime(open);
+            int firstSlot = firstStartableSlot(dayOpen, now, slot);
+
+            // Slot-major scan: the first hits are the earliest starts, ties broken by doctor id
+            for (int start = firstSlot; start + needed <= slotsPerDay && slots.size() < maxResults; start++) {
+                for (int d = 0; d < doctors.size() && slots.size() < maxResults; d++) {
+                    BitSet booked = calendar[d][day] != null ? calendar[d][day] : NO_BOOKINGS;
+                    int nextBooked = booked.nextSetBit(start);
+                    if (nextBooked < 0 || nextBooked >= start + needed) {
+                        DoctorMinimalRow doctor = doctors.get(d);
+                        LocalDateTime slotStart = dayOpen.plus(slot.multipliedBy(start));
+                        slots.add(new AvailableSlotDTO(doctor.getId(), doctor.getName(), doctor.getSpecialization(),
+                                slotStart, slotStart.plus(slot.multipliedBy(needed))));
+                    }
+                }
+            }
+        }
+        return slots;
+    }
+
+    private BitSet[][] buildCalendar(List<DoctorMinimalRow> doctors, LocalDate firstDay, int days,
+                                     LocalTime open, Duration slot, int slotsPerDay) {
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < doctors.size(); i++) {
+            position.put(doctors.get(i).getId(), i);
+        }
+
+        BitSet[][] calendar = new BitSet[doctors.size()][days];
+        // An appointment starting up to one slot before the first opening still overlaps it
+        LocalDateTime windowStart = firstDay.atTime(open).minus(slot);
+        LocalDateTime windowEnd = firstDay.plusDays(days).atStartOfDay();
+        List<BookedSlotRow> booked = appointmentRepository.findDoctorsAppointmentsBetweenDates(
+                position.keySet(), windowStart, windowEnd);
+
+        long slotSeconds = slot.getSeconds();
+        for (BookedSlotRow row : booked) {
+            Integer doctor = position.get(row.getDoctorId());
+            int day = (int) ChronoUnit.DAYS.between(firstDay, row.getStart().toLocalDate());
+            if (doctor == null || day < 0 || day >= days) {
+                continue;
+            }
+            long offset = Duration.between(row.getStart().toLocalDate().atTime(open), row.getStart()).getSeconds();
+            int first = (int) Math.max(Math.floorDiv(offset, slotSeconds), 0);
+            int last = (int) Math.min(Math.floorDiv(offset + slotSeconds - 1, slotSeconds), slotsPerDay - 1);
+            if (first > last) {
+                continue;
+            }
+            if (calendar[doctor][day] == null) {
+                calendar[doctor][day] = new BitSet(slotsPerDay);
+            }
+            calendar[doctor][day].set(first, last + 1);
+        }
+        return calendar;
+    }
+
+    private static int slotsNeeded(Integer durationMinutes, Duration slot) {
+        if (durationMinutes == null) {
+            return 1;
+        }
+        if (durationMinutes < 1) {
+            throw new InvalidRequestException("duration must be positive");
+        }
+        return (int) Math.ceilDiv(Duration.ofMinutes(durationMinutes).getSeconds(), slot.getSeconds());
+    }
+
+    private static int firstStartableSlot(LocalDateTime dayOpen, LocalDateTime now, Duration slot) {
+        if (!now.isAfter(dayOpen)) {
+            return 0;
+        }
+        return (int) Math.ceilDiv(Duration.between(dayOpen, now).getSeconds(), slot.getSeconds());
+    }
+}
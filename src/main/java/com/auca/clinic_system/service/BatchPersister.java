@@ -0,0 +1,107 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.exception.InvalidRequestException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Inserts new entities in chunked transactions. With sequence ids and {@code hibernate.jdbc.batch_size}
+ * set, each chunk goes out as a handful of JDBC batches; the persistence context is cleared after each
+ * chunk so heap use does not grow with the size of the request.
+ *
+ * <p>When a chunk fails, its rows are retried one transaction each so that a single bad row only fails
+ * itself. Must not be called inside a transaction: every chunk commits on its own.
+ */
+@Component
+public class BatchPersister {
+
+    public static final int CHUNK_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public static void checkBatchSize(int size) {
+        if (size == 0 || size > MAX_BATCH_SIZE) {
+            throw new InvalidRequestException("A batch must hold 1 to " + MAX_BATCH_SIZE + " records");
+        }
+    }
+
+    /**
+     * Persists all rows, {@link #CHUNK_SIZE} per transaction.
+     *
+     * @return failure message of each row that was not written, keyed by its position in {@code rows}
+     */
+    public <E> Map<Integer, String> persistAll(List<E> rows, Consumer<E> clearId) {
+        Map<Integer, String> failures = new HashMap<>();
+        for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+            int offset = from;
+            persistChunk(rows.subList(from, Math.min(from + CHUNK_SIZE, rows.size())), clearId)
+                    .forEach((position, error) -> failures.put(offset + position, describe(error)));
+        }
+        return failures;
+    }
+
+    /**
+     * Persists one chunk in a single transaction, falling back to a transaction per row if it fails.
+     * {@code clearId} resets the id assigned by a rolled-back attempt so the row can be persisted again.
+     *
+     * @return exception that failed each row that was not written, keyed by its position in {@code chunk}
+     */
+    public <E> Map<Integer, RuntimeException> persistChunk(List<E> chunk, Consumer<E> clearId) {
+        if (chunk.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            newTransaction().executeWithoutResult(status -> write(chunk));
+            return Map.of();
+        } catch (RuntimeException ex) {
+            chunk.forEach(clearId);
+        }
+
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            E row = chunk.get(i);
+            try {
+                newTransaction().executeWithoutResult(status -> write(List.of(row)));
+            } catch (RuntimeException ex) {
+                clearId.accept(row);
+                failures.put(i, ex);
+            }
+        }
+        return failures;
+    }
+    
+    /**
+     * Message reported for a failed row: that of the root cause, e.g. the violated constraint.
+     */
+    public static String describe(RuntimeException failure) {
+        return NestedExceptionUtils.getMostSpecificCause(failure).getMessage();
+    }
+
+    private void write(List<?> rows) {
+        rows.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
@@ -2,38 +2,122 @@ package com.auca.clinic_system.service;
 
 import com.auca.clinic_system.dto.*;
 import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.event.ChangeType;
+import com.auca.clinic_system.event.DoctorChangedEvent;
+import com.auca.clinic_system.exception.InvalidRequestException;
 import com.auca.clinic_system.repository.*;
+import jakarta.persistence.EntityManagerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.Period;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class DoctorService {
     
+    public static final int MAX_WORKLOAD_DAYS = 366;
+    private static final int DEFAULT_WORKLOAD_DAYS = 30;
+    
     @Autowired
     private DoctorRepository doctorRepository;
     
+    @Autowired
+    private DoctorDailyWorkloadRepository workloadRepository;
+    
     @Autowired
     private PersonRepository personRepository;
     
+    @Autowired
+    private LocationResolver locationResolver;
+    
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+    
+    @Autowired
+    private DoctorSuggestIndex suggestIndex;
+    
+    @Autowired
+    private SpecializationCatalog specializationCatalog;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private VersionedUpdateRepository versionedUpdateRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private RowDeletionRepository rowDeletionRepository;
+    
+    @Autowired
+    private AppointmentCascadeDeleter cascadeDeleter;
+
+    @Autowired
+    private AppointmentBookingEngine bookingEngine;
+    
+    @Value("${clinic.delete.soft.enabled:false}")
+    private boolean softDelete;
+    
     public List<DoctorDTO> getAllDoctors() {
-        return doctorRepository.findAll().stream()
+        return doctorRepository.findAllWithAppointmentSummaries().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
     public Page<DoctorDTO> getAllDoctors(Pageable pageable) {
-        return doctorRepository.findAll(pageable)
-                .map(this::convertToDTO);
+        Page<Long> ids = doctorRepository.findPageOfIds(pageable);
+        List<DoctorDTO> doctors = loadWithAppointmentSummaries(ids.getContent()).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(doctors, ids.getPageable(), ids.getTotalElements());
+    }
+    
+    public CursorPageDTO<DoctorDTO> getDoctorsAfter(String after, int limit) {
+        long afterId = after != null ? KeysetCursor.decode(after).getId() : 0L;
+        List<Long> ids = doctorRepository.findIdsAfter(afterId, PageRequest.ofSize(limit + 1));
+        boolean hasMore = ids.size() > limit;
+        List<Long> pageIds = hasMore ? ids.subList(0, limit) : ids;
+        
+        List<DoctorDTO> items = loadWithAppointmentSummaries(pageIds).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        String nextCursor = hasMore ? KeysetCursor.of(pageIds.get(pageIds.size() - 1)).encode() : null;
+        return new CursorPageDTO<>(items, nextCursor);
+    }
+    
+    @Transactional(readOnly = true)
+    public void exportDoctors(OutputStream out) throws IOException {
+        try (Stream<Doctor> doctors = doctorRepository.streamAll()) {
+            ndjsonExporter.export(doctors, this::convertToDTO, out);
+        }
     }
     
     public Optional<DoctorDTO> getDoctorById(Long id) {
@@ -42,53 +126,183 @@ public class DoctorService {
     }
     
     public Optional<DoctorMinimalDTO> getDoctorMinimalById(Long id) {
-        return doctorRepository.findById(id)
-                .map(this::convertToMinimalDTO);
+        return doctorRepository.findMinimalById(id)
+                .map(this::convertRowToMinimalDTO);
     }
     
     public List<DoctorMinimalDTO> searchDoctorsByName(String name) {
-        return doctorRepository.findByNameContainingIgnoreCase(name).stream()
-                .map(this::convertToMinimalDTO)
+        return doctorRepository.findMinimalByNameContaining(name).stream()
+                .map(this::convertRowToMinimalDTO)
                 .collect(Collectors.toList());
     }
     
     public List<DoctorMinimalDTO> searchDoctorsBySpecialization(String specialization) {
-        return doctorRepository.findBySpecializationContainingIgnoreCase(specialization).stream()
-                .map(this::convertToMinimalDTO)
+        String needle = specialization.toLowerCase(Locale.ROOT);
+        return specializationCatalog.getCounts().stream()
+                .map(SpecializationCountDTO::getSpecialization)
+                .filter(candidate -> candidate.toLowerCase(Locale.ROOT).contains(needle))
+                .flatMap(candidate -> specializationCatalog.getRoster(candidate).stream())
+                .map(this::convertRowToMinimalDTO)
                 .collect(Collectors.toList());
     }
     
     public List<DoctorMinimalDTO> getDoctorsBySpecialization(String specialization) {
-        return doctorRepository.findBySpecialization(specialization).stream()
-                .map(this::convertToMinimalDTO)
+        return specializationCatalog.getRoster(specialization).stream()
+                .map(this::convertRowToMinimalDTO)
+                .collect(Collectors.toList());
+    }
+    
+    public List<SpecializationCountDTO> getSpecializations() {
+        return specializationCatalog.getCounts();
+    }
+    
+    public List<DoctorMinimalDTO> suggestDoctors(String query, Integer limit) {
+        return suggestIndex.suggest(query, DoctorSuggestIndex.limit(limit)).stream()
+                .map(this::convertRowToMinimalDTO)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Appointments of a doctor per day and status between two inclusive days, read from the daily
+     * aggregate, so a year costs at most a row per day and status. Defaults to the 30 days up to today.
+     */
+    public Optional<DoctorWorkloadDTO> getWorkload(Long id, LocalDate from, LocalDate to) {
+        LocalDate lastDay = to != null ? to : LocalDate.now();
+        LocalDate firstDay = from != null ? from : lastDay.minusDays(DEFAULT_WORKLOAD_DAYS - 1);
+        long days = ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+        if (days < 1 || days > MAX_WORKLOAD_DAYS) {
+            throw new InvalidRequestException("Range must cover 1 to " + MAX_WORKLOAD_DAYS + " days");
+        }
+        if (!doctorRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        
+        Map<AppointmentStatus, Long> totals = zeroCounts();
+        Map<LocalDate, Map<AppointmentStatus, Long>> byDay = new LinkedHashMap<>();
+        for (DoctorDailyWorkload row : workloadRepository.findByDoctorBetween(id, firstDay, lastDay)) {
+            AppointmentStatus status = AppointmentStatus.fromCode(row.getId().getStatus());
+            totals.merge(status, row.getAppointmentCount(), Long::sum);
+            byDay.computeIfAbsent(row.getId().getWorkDate(), day -> zeroCounts()).put(status, row.getAppointmentCount());
+        }
+        
+        List<WorkloadDayDTO> dayDTOs = new ArrayList<>();
+        byDay.forEach((day, counts) -> dayDTOs.add(new WorkloadDayDTO(day, counts)));
+        return Optional.of(new DoctorWorkloadDTO(id, firstDay, lastDay, totals, dayDTOs));
+    }
+    
+    private static Map<AppointmentStatus, Long> zeroCounts() {
+        Map<AppointmentStatus, Long> counts = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            counts.put(status, 0L);
+        }
+        return counts;
+    }
+    
     public DoctorDTO createDoctor(DoctorDTO doctorDTO) {
         Doctor doctor = convertToEntity(doctorDTO);
         Doctor savedDoctor = doctorRepository.save(doctor);
+        publishChange(ChangeType.CREATED, savedDoctor, null);
         return convertToDTO(savedDoctor);
     }
     
     public Optional<DoctorDTO> updateDoctor(Long id, DoctorDTO doctorDTO) {
         return doctorRepository.findById(id)
                 .map(existingDoctor -> {
+                    if (doctorDTO.getVersion() != null && !doctorDTO.getVersion().equals(existingDoctor.getVersion())) {
+                        throw new ObjectOptimisticLockingFailureException(Doctor.class, id);
+                    }
+                    String previousSpecialization = existingDoctor.getSpecialization();
                     existingDoctor.setName(doctorDTO.getName());
                     existingDoctor.setSpecialization(doctorDTO.getSpecialization());
                     existingDoctor.setPhone(doctorDTO.getPhone());
                     existingDoctor.setEmail(doctorDTO.getEmail());
                     
                     Doctor updatedDoctor = doctorRepository.save(existingDoctor);
+                    publishChange(ChangeType.UPDATED, updatedDoctor, previousSpecialization);
                     return convertToDTO(updatedDoctor);
                 });
     }
     
-    public boolean deleteDoctor(Long id) {
-        if (doctorRepository.existsById(id)) {
-            doctorRepository.deleteById(id);
-            return true;
+    /**
+     * Sets the supplied fields of a doctor that still has {@code patch.version} with one update statement,
+     * without reading the doctor first. The doctor's cached entity is evicted once the update commits.
+     *
+     * @return the doctor's new version, or empty if there is no such doctor
+     * @throws ObjectOptimisticLockingFailureException if the doctor has changed since that version
+     */
+    public Optional<PatchResultDTO> patchDoctor(Long id, DoctorPatchDTO patch) {
+        if (patch.getVersion() == null) {
+            throw new InvalidRequestException("version is required");
+        }
+        Map<String, Object> assignments = new LinkedHashMap<>();
+        if (patch.getName() != null) {
+            assignments.put("name", patch.getName());
+        }
+        if (patch.getSpecialization() != null) {
+            assignments.put("specialization", patch.getSpecialization());
+        }
+        if (patch.getPhone() != null) {
+            assignments.put("phone", patch.getPhone());
+        }
+        if (patch.getEmail() != null) {
+            assignments.put("email", patch.getEmail());
+        }
+        if (assignments.isEmpty()) {
+            throw new InvalidRequestException("Nothing to update: send name, specialization, phone or email");
+        }
+        Map<String, Class<?>> previous = new LinkedHashMap<>();
+        previous.put("name", String.class);
+        previous.put("specialization", String.class);
+        previous.put("person_id", Long.class);
+        
+        Optional<Object[]> row = versionedUpdateRepository.update("doctors", id, patch.getVersion(), assignments,
+                Map.of(), List.of("deleted_at"), previous);
+        if (row.isEmpty()) {
+            if (doctorRepository.existsById(id)) {
+                throw new ObjectOptimisticLockingFailureException(Doctor.class, id);
+            }
+            return Optional.empty();
+        }
+        
+        String previousName = (String) row.get()[0];
+        String previousSpecialization = (String) row.get()[1];
+        Long personId = (Long) row.get()[2];
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entityManagerFactory.getCache().evict(Doctor.class, id);
+            }
+        });
+        if (patch.getName() != null || patch.getSpecialization() != null) {
+            Long villageId = personId == null ? null : personRepository.findById(personId)
+                    .map(person -> person.getVillage().getId())
+                    .orElse(null);
+            eventPublisher.publishEvent(new DoctorChangedEvent(ChangeType.UPDATED, id,
+                    patch.getName() != null ? patch.getName() : previousName,
+                    patch.getSpecialization() != null ? patch.getSpecialization() : previousSpecialization,
+                    villageId, previousSpecialization));
         }
-        return false;
+        return Optional.of(new PatchResultDTO(id, (Long) row.get()[3] + 1));
+    }
+    
+    public boolean deleteDoctor(Long id) {
+        return doctorRepository.findById(id)
+                .map(existingDoctor -> {
+                    if (softDelete) {
+                        // Gone from every lookup now; its appointments are removed when the purge runs
+                        rowDeletionRepository.markDeleted(Doctor.class, "doctors", id);
+                        // A cached schedule would keep accepting batch bookings for the hidden doctor
+                        bookingEngine.evictAfterCommit(List.of(id));
+                    } else {
+                        cascadeDeleter.deleteForDoctor(id);
+                        rowDeletionRepository.deleteJoinRows("patient_doctor", "doctor_id", id);
+                        rowDeletionRepository.deleteRow(Doctor.class, "doctors", id);
+                    }
+                    eventPublisher.publishEvent(new DoctorChangedEvent(ChangeType.DELETED, id, null, null, null,
+                            existingDoctor.getSpecialization()));
+                    return true;
+                })
+                .orElse(false);
     }
     
     public DoctorDTO convertToDTO(Doctor doctor) {
@@ -98,10 +312,11 @@ public class DoctorService {
         dto.setSpecialization(doctor.getSpecialization());
         dto.setPhone(doctor.getPhone());
         dto.setEmail(doctor.getEmail());
+        dto.setVersion(doctor.getVersion());
         
         // Convert person location to address
         if (doctor.getPerson() != null && doctor.getPerson().getVillage() != null) {
-            dto.setAddress(convertVillageToLocation(doctor.getPerson().getVillage()));
+            dto.setAddress(locationResolver.resolve(doctor.getPerson().getVillage()));
         }
         
         // Convert appointments to summaries
@@ -123,17 +338,12 @@ public class DoctorService {
         return dto;
     }
     
-    public DoctorMinimalDTO convertToMinimalDTO(Doctor doctor) {
+    public DoctorMinimalDTO convertRowToMinimalDTO(DoctorMinimalRow row) {
         DoctorMinimalDTO dto = new DoctorMinimalDTO();
-        dto.setId(doctor.getId());
-        dto.setName(doctor.getName());
-        dto.setSpecialization(doctor.getSpecialization());
-        
-        // Convert person location to address
-        if (doctor.getPerson() != null && doctor.getPerson().getVillage() != null) {
-            dto.setAddress(convertVillageToLocation(doctor.getPerson().getVillage()));
-        }
-        
+        dto.setId(row.getId());
+        dto.setName(row.getName());
+        dto.setSpecialization(row.getSpecialization());
+        dto.setAddress(locationResolver.resolve(row.getVillageId()));
         return dto;
     }
     
@@ -146,35 +356,24 @@ public class DoctorService {
         return doctor;
     }
     
-    private LocationDTO convertVillageToLocation(Village village) {
-        LocationDTO location = new LocationDTO();
-        location.setVillageId(village.getId());
-        location.setVillageName(village.getName());
-        
-        if (village.getCell() != null) {
-            Cell cell = village.getCell();
-            location.setCellId(cell.getId());
-            location.setCellName(cell.getName());
-            
-            if (cell.getSector() != null) {
-                Sector sector = cell.getSector();
-                location.setSectorId(sector.getId());
-                location.setSectorName(sector.getName());
-                
-                if (sector.getDistrict() != null) {
-                    District district = sector.getDistrict();
-                    location.setDistrictId(district.getId());
-                    location.setDistrictName(district.getName());
-                    
-                    if (district.getProvince() != null) {
-                        Province province = district.getProvince();
-                        location.setProvinceId(province.getId());
-                        location.setProvinceName(province.getName());
-                    }
-                }
-            }
+    private void publishChange(ChangeType type, Doctor doctor, String previousSpecialization) {
+        Long villageId = doctor.getPerson() != null && doctor.getPerson().getVillage() != null
+                ? doctor.getPerson().getVillage().getId()
+                : null;
+        eventPublisher.publishEvent(new DoctorChangedEvent(type, doctor.getId(), doctor.getName(),
+                doctor.getSpecialization(), villageId, previousSpecialization));
+    }
+    
+    // In the order of ids; a doctor deleted since its id was read is left out
+    private List<Doctor> loadWithAppointmentSummaries(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
-        
-        return location;
+        Map<Long, Doctor> doctors = doctorRepository.findWithAppointmentSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(Doctor::getId, Function.identity(), (first, duplicate) -> first));
+        return ids.stream()
+                .map(doctors::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
@@ -0,0 +1,198 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.event.ChangeType;
+import com.auca.clinic_system.event.DoctorChangedEvent;
+import com.auca.clinic_system.repository.DoctorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over doctor names and specializations for typeahead search.
+ *
+ * <p>Text is lower-cased and split into words; each word is padded like pg_trgm (two leading blanks,
+ * one trailing) and cut into trigrams. The last word of a query is left open at the end, so a prefix
+ * the user is still typing matches. A doctor is a hit when it shares at least half of the query's
+ * trigrams, which tolerates small typos. Hits rank by shared trigrams, then shorter text, then id.
+ *
+ * <p>The index is loaded on first use and kept current by {@link DoctorChangedEvent}s after commit.
+ * Updated and deleted doctors leave dead slots behind that are compacted away once they pile up.
+ */
+@Component
+public class DoctorSuggestIndex {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    private static final double MIN_SHARED_TRIGRAMS = 0.5;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    // Guarded by lock. A slot holds one version of a doctor; null once it is dead.
+    private final List<DoctorMinimalRow> slots = new ArrayList<>();
+    private int[] trigramCounts = new int[1024];
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int deadSlots;
+
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(Math.max(requested, 1), MAX_LIMIT);
+    }
+
+    public List<DoctorMinimalRow> suggest(String query, int limit) {
+        long[] trigrams = trigrams(query, true);
+        if (trigrams.length == 0) {
+            return List.of();
+        }
+        ensureLoaded();
+
+        lock.readLock().lock();
+        try {
+            int[] shared = new int[slots.size()];
+            for (long trigram : trigrams) {
+                Postings list = postings.get(trigram);
+                if (list != null) {
+                    for (int i = 0; i < list.size; i++) {
+                        shared[list.slots[i]]++;
+                    }
+                }
+            }
+
+            int minShared = (int) Math.ceil(trigrams.length * MIN_SHARED_TRIGRAMS);
+            Comparator<Integer> rank = Comparator.<Integer>comparingInt(slot -> shared[slot]).reversed()
+                    .thenComparingInt(slot -> trigramCounts[slot])
+                    .thenComparing(slot -> slots.get(slot).getId());
+            // Worst of the current top-k at the head
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, rank.reversed());
+            for (int slot = 0; slot < shared.length; slot++) {
+                if (shared[slot] >= minShared && slots.get(slot) != null) {
+                    top.add(slot);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Integer> ranked = new ArrayList<>(top);
+            ranked.sort(rank);
+            return ranked.stream().map(slots::get).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // Not loaded yet: the first search reads the committed change from the database
+            if (!loaded) {
+                return;
+            }
+            remove(event.getDoctorId());
+            if (event.getType() != ChangeType.DELETED) {
+                add(new DoctorMinimalRow(event.getDoctorId(), event.getName(), event.getSpecialization(), event.getVillageId()));
+            }
+            if (deadSlots > 1024 && deadSlots > slots.size() / 4) {
+                rebuild(slots.stream().filter(Objects::nonNull).toList());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                rebuild(doctorRepository.findAllMinimal());
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild(List<DoctorMinimalRow> rows) {
+        slots.clear();
+        slotById.clear();
+        postings.clear();
+        deadSlots = 0;
+        trigramCounts = new int[Math.max(1024, rows.size())];
+        rows.forEach(this::add);
+    }
+
+    private void add(DoctorMinimalRow row) {
+        int slot = slots.size();
+        slots.add(row);
+        slotById.put(row.getId(), slot);
+
+        long[] trigrams = trigrams(row.getName() + " " + row.getSpecialization(), false);
+        if (slot == trigramCounts.length) {
+            trigramCounts = Arrays.copyOf(trigramCounts, slot * 2);
+        }
+        trigramCounts[slot] = trigrams.length;
+        for (long trigram : trigrams) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(slot);
+        }
+    }
+
+    private void remove(Long doctorId) {
+        Integer slot = slotById.remove(doctorId);
+        if (slot != null) {
+            // Postings keep pointing at the dead slot until the next compaction
+            slots.set(slot, null);
+            deadSlots++;
+        }
+    }
+
+    /**
+     * Distinct trigrams of {@code text}. With {@code openEnded} the last word gets no trailing blank.
+     */
+    static long[] trigrams(String text, boolean openEnded) {
+        if (text == null) {
+            return new long[0];
+        }
+        String[] words = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        boolean endsInWord = !text.isEmpty() && Character.isLetterOrDigit(text.charAt(text.length() - 1));
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int w = 0; w < words.length; w++) {
+            if (words[w].isEmpty()) {
+                continue;
+            }
+            boolean open = openEnded && endsInWord && w == words.length - 1;
+            String padded = "  " + words[w] + (open ? "" : " ");
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            }
+        }
+        return trigrams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.repository.AppointmentRepository;
+import com.auca.clinic_system.repository.DoctorDailyWorkloadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Rebuilds {@code doctor_daily_workload} from the appointments table with one grouped
+ * {@code INSERT ... SELECT}. Needed once on a database whose appointments predate the table; from then
+ * on {@link DoctorWorkloadListener} keeps it current. PostgreSQL only.
+ */
+@Component
+@Transactional
+public class DoctorWorkloadBackfill {
+    
+    private static final Logger log = LoggerFactory.getLogger(DoctorWorkloadBackfill.class);
+    
+    @Autowired
+    private DoctorDailyWorkloadRepository workloadRepository;
+    
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    
+    @Transactional(readOnly = true)
+    public boolean isNeeded() {
+        return workloadRepository.count() == 0 && appointmentRepository.count() > 0;
+    }
+    
+    /**
+     * Replaces every row. Appointment writes wait for it to commit, so none is counted twice or missed.
+     */
+    public int rebuild() {
+        workloadRepository.lockAppointmentsAgainstWrites();
+        workloadRepository.deleteAllRows();
+        int rows = workloadRepository.insertFromAppointments();
+        log.info("Backfilled {} doctor workload rows", rows);
+        return rows;
+    }
+}
@@ -0,0 +1,151 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.entity.Appointment;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import com.auca.clinic_system.entity.Doctor;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@code doctor_daily_workload} in step with the appointments table. Every appointment insert,
+ * update and delete Hibernate flushes, including batch inserts, is turned into a +1/-1 on its
+ * (doctor, day, status) row; statements Hibernate does not see, such as the bulk deletes of a patient's
+ * appointments, report theirs through {@link #statusChanged} and {@link #removed}. The deltas of a transaction are
+ * netted and written as one JDBC batch of upserts just before it commits, on the same connection, so
+ * the aggregate commits or rolls back together with the appointments. That batch is one more statement
+ * per write, and is counted as such by the session's {@code StatementInspector}.
+ *
+ * <p>Rows are upserted in key order so two transactions touching the same rows cannot deadlock.
+ */
+public class DoctorWorkloadListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String UPSERT_POSTGRES =
+            "INSERT INTO doctor_daily_workload (doctor_id, work_date, status, appointment_count) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (doctor_id, work_date, status) " +
+            "DO UPDATE SET appointment_count = doctor_daily_workload.appointment_count + EXCLUDED.appointment_count";
+
+    // Standard SQL for other databases, e.g. H2 in tests
+    private static final String UPSERT_MERGE =
+            "MERGE INTO doctor_daily_workload w USING (VALUES (CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS SMALLINT), " +
+            "CAST(? AS BIGINT))) AS d (doctor_id, work_date, status, delta) " +
+            "ON w.doctor_id = d.doctor_id AND w.work_date = d.work_date AND w.status = d.status " +
+            "WHEN MATCHED THEN UPDATE SET appointment_count = w.appointment_count + d.delta " +
+            "WHEN NOT MATCHED THEN INSERT (doctor_id, work_date, status, appointment_count) " +
+            "VALUES (d.doctor_id, d.work_date, d.status, d.delta)";
+
+    private static final Comparator<WorkloadKey> KEY_ORDER = Comparator.comparing(WorkloadKey::doctorId)
+            .thenComparing(WorkloadKey::date)
+            .thenComparing(WorkloadKey::status);
+
+    // Deltas of each session's current transaction, removed when it completes
+    private final Map<SessionImplementor, Map<WorkloadKey, Long>> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Appointment appointment) {
+            record(event.getSession(), appointment.getDoctor().getId(), appointment.getAppointmentDate().toLocalDate(),
+                    appointment.getStatus(), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Appointment)) {
+            return;
+        }
+        if (event.getOldState() == null) {
+            // Only a reattached entity lacks its previous state; appointments are always merged
+            throw new IllegalStateException("Appointment " + event.getId() + " was updated without its previous state");
+        }
+        record(event.getSession(), event.getPersister(), event.getOldState(), -1);
+        record(event.getSession(), event.getPersister(), event.getState(), 1);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Appointment) {
+            record(event.getSession(), event.getPersister(), event.getDeletedState(), -1);
+        }
+    }
+
+    /**
+     * Moves an appointment between statuses for a write Hibernate does not see, e.g. a native update
+     * statement run in {@code session}. The delta is written with the session's other deltas before commit.
+     */
+    public void statusChanged(SessionImplementor session, Long doctorId, LocalDateTime date,
+                              AppointmentStatus before, AppointmentStatus after) {
+        record(session, doctorId, date.toLocalDate(), before, -1);
+        record(session, doctorId, date.toLocalDate(), after, 1);
+    }
+
+    /**
+     * Takes {@code count} appointments of a doctor's day and status off the aggregate, for appointments
+     * removed by a bulk delete in {@code session}.
+     */
+    public void removed(SessionImplementor session, Long doctorId, LocalDate day, AppointmentStatus status, long count) {
+        record(session, doctorId, day, status, -count);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void record(SessionImplementor session, EntityPersister persister, Object[] state, long delta) {
+        Doctor doctor = (Doctor) state[persister.getPropertyIndex("doctor")];
+        record(session, doctor.getId(), ((LocalDateTime) state[persister.getPropertyIndex("appointmentDate")]).toLocalDate(),
+                (AppointmentStatus) state[persister.getPropertyIndex("status")], delta);
+    }
+
+    private void record(SessionImplementor session, Long doctorId, LocalDate day, AppointmentStatus status, long delta) {
+        Map<WorkloadKey, Long> deltas = pending.computeIfAbsent(session, this::startTracking);
+        deltas.merge(new WorkloadKey(doctorId, day, status.getCode()), delta, Long::sum);
+    }
+
+    private Map<WorkloadKey, Long> startTracking(SessionImplementor session) {
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::write);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(session));
+        return new TreeMap<>(KEY_ORDER);
+    }
+
+    private void write(SessionImplementor session) {
+        Map<WorkloadKey, Long> deltas = pending.remove(session);
+        if (deltas == null || deltas.values().stream().allMatch(delta -> delta == 0)) {
+            return;
+        }
+        boolean postgres = session.getFactory().getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        // Passed through the session's inspector like Hibernate's own statements, so statement counts include it
+        String sql = session.getJdbcSessionContext().getStatementInspector()
+                .inspect(postgres ? UPSERT_POSTGRES : UPSERT_MERGE);
+        session.doWork(connection -> {
+            try (PreparedStatement upsert = connection.prepareStatement(sql)) {
+                for (Map.Entry<WorkloadKey, Long> entry : deltas.entrySet()) {
+                    if (entry.getValue() == 0) {
+                        continue;
+                    }
+                    upsert.setLong(1, entry.getKey().doctorId());
+                    upsert.setObject(2, entry.getKey().date());
+                    upsert.setShort(3, entry.getKey().status());
+                    upsert.setLong(4, entry.getValue());
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+            }
+        });
+    }
+
+    private record WorkloadKey(Long doctorId, LocalDate date, short status) {
+    }
+}
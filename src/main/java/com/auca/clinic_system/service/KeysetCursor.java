@@ -0,0 +1,70 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.exception.InvalidRequestException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page, exchanged with clients as an opaque token.
+ * Id-ordered listings only carry the id; appointment listings also carry the appointment date.
+ */
+@Getter
+public final class KeysetCursor {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 200;
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime date;
+    private final long id;
+
+    private KeysetCursor(LocalDateTime date, long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public static KeysetCursor of(long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public static KeysetCursor of(LocalDateTime date, long id) {
+        return new KeysetCursor(date, id);
+    }
+
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(Math.max(requested, 1), MAX_LIMIT);
+    }
+
+    public String encode() {
+        String raw = date != null ? date.toString() + SEPARATOR + id : Long.toString(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return of(Long.parseLong(raw));
+            }
+            return of(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new InvalidRequestException("Invalid cursor: " + token, ex);
+        }
+    }
+
+    public KeysetCursor requireDate() {
+        if (date == null) {
+            throw new InvalidRequestException("Cursor does not belong to a date-ordered listing");
+        }
+        return this;
+    }
+}
@@ -0,0 +1,184 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.LocationNodeDTO;
+import com.auca.clinic_system.repository.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Whole location lists (all provinces, districts, sectors, cells or villages) kept as ready-to-send
+ * JSON, both plain and gzipped, with a strong ETag derived from the content.
+ *
+ * <p>A list is serialized on first request and kept until {@link #invalidate(Level)} is called for
+ * its level. The ETag is a hash of the JSON, so it survives restarts and only changes with the data.
+ */
+@Component
+public class LocationJsonCache {
+
+    public enum Level { PROVINCES, DISTRICTS, SECTORS, CELLS, VILLAGES }
+
+    @Autowired
+    private ProvinceRepository provinceRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private SectorRepository sectorRepository;
+
+    @Autowired
+    private CellRepository cellRepository;
+
+    @Autowired
+    private VillageRepository villageRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<Level, Snapshot> snapshots = new EnumMap<>(Level.class);
+
+    // Bumped on every invalidation; a snapshot built while one ran is returned but not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public Snapshot get(Level level) {
+        synchronized (snapshots) {
+            Snapshot snapshot = snapshots.get(level);
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+        long seen = generation.get();
+        Snapshot snapshot = Snapshot.of(serialize(load(level)));
+        synchronized (snapshots) {
+            if (generation.get() == seen) {
+                snapshots.putIfAbsent(level, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    public void invalidate(Level level) {
+        synchronized (snapshots) {
+            generation.incrementAndGet();
+            snapshots.remove(level);
+        }
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header admits gzip, honouring {@code q=0} exclusions.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean excluded = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=") && param.substring(2).trim().matches("0(\\.0{0,3})?")) {
+                    excluded = true;
+                }
+            }
+            if (!excluded) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<LocationNodeDTO> load(Level level) {
+        return switch (level) {
+            case PROVINCES -> provinceRepository.findAllNodes();
+            case DISTRICTS -> districtRepository.findAllNodes();
+            case SECTORS -> sectorRepository.findAllNodes();
+            case CELLS -> cellRepository.findAllNodes();
+            case VILLAGES -> villageRepository.findAllNodes();
+        };
+    }
+
+    private byte[] serialize(List<LocationNodeDTO> nodes) {
+        try {
+            return objectMapper.writeValueAsBytes(nodes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * One serialized list. The arrays are shared between requests and must not be modified.
+     */
+    public static final class Snapshot {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+
+        private Snapshot(byte[] json, byte[] gzip, String etag) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+        }
+
+        static Snapshot of(byte[] json) {
+            return new Snapshot(json, gzip(json), "\"" + hash(json) + "\"");
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * Quoted strong ETag of the plain JSON. The gzipped bytes are a different representation and
+         * carry {@link #getGzipEtag()}.
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getGzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+
+        private static byte[] gzip(byte[] json) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.toByteArray();
+        }
+
+        private static String hash(byte[] json) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+                return HexFormat.of().formatHex(Arrays.copyOf(digest, 16));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.dto.LocationNodeDTO;
+import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.repository.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resolves a village to its full Province → District → Sector → Cell → Village hierarchy
+ * from an immutable in-memory index, so DTO conversion never walks the lazy parent chain.
+ * The index is loaded on first use and swapped atomically by {@link #refresh()}, which also drops
+ * the node lists of every level, loaded from their own tables on first use.
+ */
+@Component
+public class LocationResolver {
+
+    @Autowired
+    private ProvinceRepository provinceRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private SectorRepository sectorRepository;
+
+    @Autowired
+    private CellRepository cellRepository;
+
+    @Autowired
+    private VillageRepository villageRepository;
+
+    private volatile LocationIndex index;
+
+    // Not synchronized: a virtual thread blocked on the query inside a monitor would pin its carrier
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public LocationDTO resolve(Village village) {
+        LocationDTO location = resolve(village.getId());
+        // Villages created outside this application are not indexed until the next refresh
+        return location != null ? location : walkHierarchy(village);
+    }
+
+    public LocationDTO resolve(Long villageId) {
+        if (villageId == null) {
+            return null;
+        }
+        return currentIndex().lookup(villageId);
+    }
+
+    /**
+     * Every node of one level ordered by id, with its code and the id of its parent, including nodes
+     * that have no villages below them.
+     */
+    public List<LocationNodeDTO> nodes(LocationJsonCache.Level level) {
+        LocationIndex current = currentIndex();
+        List<LocationNodeDTO> nodes = current.nodes.get(level);
+        if (nodes == null) {
+            loadLock.lock();
+            try {
+                nodes = current.nodes.get(level);
+                if (nodes == null) {
+                    nodes = List.copyOf(findAllNodes(level));
+                    current.nodes.put(level, nodes);
+                }
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return nodes;
+    }
+
+    public void refresh() {
+        loadLock.lock();
+        try {
+            index = LocationIndex.of(villageRepository.findAllLocations());
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private LocationIndex currentIndex() {
+        LocationIndex current = index;
+        if (current == null) {
+            loadLock.lock();
+            try {
+                if (index == null) {
+                    index = LocationIndex.of(villageRepository.findAllLocations());
+                }
+                current = index;
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private List<LocationNodeDTO> findAllNodes(LocationJsonCache.Level level) {
+        return switch (level) {
+            case PROVINCES -> provinceRepository.findAllNodes();
+            case DISTRICTS -> districtRepository.findAllNodes();
+            case SECTORS -> sectorRepository.findAllNodes();
+            case CELLS -> cellRepository.findAllNodes();
+            case VILLAGES -> villageRepository.findAllNodes();
+        };
+    }
+
+    private LocationDTO walkHierarchy(Village village) {
+        LocationDTO location = new LocationDTO();
+        location.setVillageId(village.getId());
+        location.setVillageName(village.getName());
+
+        if (village.getCell() != null) {
+            Cell cell = village.getCell();
+            location.setCellId(cell.getId());
+            location.setCellName(cell.getName());
+
+            if (cell.getSector() != null) {
+                Sector sector = cell.getSector();
+                location.setSectorId(sector.getId());
+                location.setSectorName(sector.getName());
+
+                if (sector.getDistrict() != null) {
+                    District district = sector.getDistrict();
+                    location.setDistrictId(district.getId());
+                    location.setDistrictName(district.getName());
+
+                    if (district.getProvince() != null) {
+                        Province province = district.getProvince();
+                        location.setProvinceId(province.getId());
+                        location.setProvinceName(province.getName());
+                    }
+                }
+            }
+        }
+
+        return location;
+    }
+
+    /**
+     * Column-oriented snapshot of the hierarchy: one set of parallel arrays per level, where each
+     * node stores the slot of its parent. Village ids are sorted so lookups are a binary search.
+     * Only levels with villages below them appear here, so the node lists are kept separately.
+     */
+    private static final class LocationIndex {
+        // Filled per level with loadLock held; the lists are immutable
+        private final Map<LocationJsonCache.Level, List<LocationNodeDTO>> nodes = new ConcurrentHashMap<>();
+
+        private final Level provinces;
+        private final Level districts;
+        private final Level sectors;
+        private final Level cells;
+        private final Level villages;
+
+        private LocationIndex(Level provinces, Level districts, Level sectors, Level cells, Level villages) {
+            this.provinces = provinces;
+            this.districts = districts;
+            this.sectors = sectors;
+            this.cells = cells;
+            this.villages = villages;
+        }
+
+        static LocationIndex of(List<LocationDTO> rows) {
+            List<LocationDTO> sorted = new ArrayList<>(rows);
+            sorted.sort(Comparator.comparing(LocationDTO::getVillageId));
+
+            LevelBuilder provinces = new LevelBuilder();
+            LevelBuilder districts = new LevelBuilder();
+            LevelBuilder sectors = new LevelBuilder();
+            LevelBuilder cells = new LevelBuilder();
+            LevelBuilder villages = new LevelBuilder();
+
+            for (LocationDTO row : sorted) {
+                int province = provinces.slot(row.getProvinceId(), row.getProvinceName(), -1);
+                int district = districts.slot(row.getDistrictId(), row.getDistrictName(), province);
+                int sector = sectors.slot(row.getSectorId(), row.getSectorName(), district);
+                int cell = cells.slot(row.getCellId(), row.getCellName(), sector);
+                villages.slot(row.getVillageId(), row.getVillageName(), cell);
+            }
+
+            return new LocationIndex(provinces.build(), districts.build(), sectors.build(), cells.build(), villages.build());
+        }
+
+        LocationDTO lookup(long villageId) {
+            int village = Arrays.binarySearch(villages.ids, villageId);
+            if (village < 0) {
+                return null;
+            }
+            int cell = villages.parents[village];
+            int sector = cells.parents[cell];
+            int district = sectors.parents[sector];
+            int province = districts.parents[district];
+
+            return new LocationDTO(
+                    provinces.ids[province], provinces.names[province],
+                    districts.ids[district], districts.names[district],
+                    sectors.ids[sector], sectors.names[sector],
+                    cells.ids[cell], cells.names[cell],
+                    villages.ids[village], villages.names[village]);
+        }
+    }
+
+    private static final class Level {
+        private final long[] ids;
+        private final String[] names;
+        private final int[] parents;
+
+        private Level(long[] ids, String[] names, int[] parents) {
+            this.ids = ids;
+            this.names = names;
+            this.parents = parents;
+        }
+    }
+
+    private static final class LevelBuilder {
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private final List<Long> ids = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> parents = new ArrayList<>();
+
+        int slot(Long id, String name, int parent) {
+            return slots.computeIfAbsent(id, key -> {
+                ids.add(key);
+                names.add(name);
+                parents.add(parent);
+                return ids.size() - 1;
+            });
+        }
+
+        Level build() {
+            long[] idArray = new long[ids.size()];
+            int[] parentArray = new int[parents.size()];
+            for (int i = 0; i < idArray.length; i++) {
+                idArray[i] = ids.get(i);
+                parentArray[i] = parents.get(i);
+            }
+            return new Level(idArray, names.toArray(new String[0]), parentArray);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.auca.clinic_system.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes a database cursor to a response as newline-delimited JSON. Rows are converted and written
+ * in chunks matching the cursor fetch size; after each chunk the persistence context is cleared,
+ * so heap use does not grow with the size of the table.
+ *
+ * <p>Must be called inside a transaction that keeps the cursor open.
+ */
+@Component
+public class NdjsonExporter {
+
+    // Keep in step with the fetch size hint on the repository stream queries
+    static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <E, D> void export(Stream<E> rows, Function<E, D> converter, OutputStream out) throws IOException {
+        // Buffering a chunk before converting lets batch fetching load its lazy collections together
+        List<E> chunk = new ArrayList<>(CHUNK_SIZE);
+        Iterator<E> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == CHUNK_SIZE) {
+                writeChunk(chunk, converter, out);
+            }
+        }
+        writeChunk(chunk, converter, out);
+    }
+
+    private <E, D> void writeChunk(List<E> chunk, Function<E, D> converter, OutputStream out) throws IOException {
+        for (E row : chunk) {
+            out.write(objectMapper.writeValueAsBytes(converter.apply(row)));
+            out.write('\n');
+        }
+        out.flush();
+        chunk.clear();
+        // Detach the written rows and everything they pulled in
+        entityManager.clear();
+    }
+}
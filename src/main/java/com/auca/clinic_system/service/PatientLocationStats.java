@@ -0,0 +1,178 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.dto.LocationNodeDTO;
+import com.auca.clinic_system.dto.LocationPatientCountDTO;
+import com.auca.clinic_system.dto.VillageGenderCountRow;
+import com.auca.clinic_system.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Patients per village and gender, loaded with one grouped query over {@code patients} on first use
+ * and then adjusted by every patient create, update and delete. Province, district and sector counts
+ * are rolled up from the villages on each call through {@link LocationResolver}, so they follow
+ * changes to the location hierarchy without a reload.
+ *
+ * <p>Writes are bracketed by {@link #writeStarted()} and {@link #writeFinished()}, and the counts are
+ * loaded through a {@link SnapshotLoader} as in {@link AppointmentStatusCounters}: a change reported
+ * while they load is applied to the loaded counts.
+ */
+@Component
+public class PatientLocationStats {
+
+    static final String UNKNOWN_GENDER = "Unknown";
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private LocationResolver locationResolver;
+
+    // The only key of the loader: all villages load together
+    private static final String ALL = "all";
+
+    private final Object lock = new Object();
+
+    // Guarded by lock; null until loaded
+    private Map<Long, Map<String, Long>> byVillage;
+
+    private final SnapshotLoader<String, Map<Long, Map<String, Long>>> loader;
+
+    @Autowired
+    public PatientLocationStats(PlatformTransactionManager transactionManager, EntityManager entityManager) {
+        this.loader = new SnapshotLoader<>(transactionManager, entityManager, lock);
+    }
+
+    /**
+     * Every indexed node of {@code level}, which must be provinces, districts or sectors, ordered by id.
+     * Nodes without patients are included with zero counts.
+     */
+    public List<LocationPatientCountDTO> getCounts(LocationJsonCache.Level level) {
+        // Also makes sure the location index is loaded before the lock is taken below
+        List<LocationNodeDTO> nodes = locationResolver.nodes(level);
+
+        Map<Long, Map<String, Long>> byNode = new HashMap<>();
+        Map<Long, Map<String, Long>> villages = loadedCounts();
+        synchronized (lock) {
+            villages.forEach((villageId, genders) -> {
+                LocationDTO location = locationResolver.resolve(villageId);
+                if (location == null) {
+                    return;
+                }
+                Map<String, Long> node = byNode.computeIfAbsent(nodeId(location, level), id -> new TreeMap<>());
+                genders.forEach((gender, count) -> node.merge(gender, count, Long::sum));
+            });
+        }
+
+        List<LocationPatientCountDTO> counts = new ArrayList<>(nodes.size());
+        for (LocationNodeDTO node : nodes) {
+            Map<String, Long> genders = byNode.getOrDefault(node.getId(), new TreeMap<>());
+            long patients = genders.values().stream().mapToLong(Long::longValue).sum();
+            counts.add(new LocationPatientCountDTO(node.getId(), node.getName(), node.getParentId(), patients, genders));
+        }
+        counts.sort(Comparator.comparing(LocationPatientCountDTO::getId));
+        return counts;
+    }
+
+    public void writeStarted() {
+        loader.writeStarted();
+    }
+
+    public void writeFinished() {
+        loader.writeFinished();
+    }
+
+    /**
+     * Records a committed change of {@code delta} patients; call between {@link #writeStarted()} and
+     * {@link #writeFinished()}. Patients without a village are not counted.
+     */
+    public void changed(Long villageId, String gender, long delta) {
+        if (villageId == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (loader.deferIfLoading(ALL, counts -> add(counts, villageId, gender, delta))) {
+                return;
+            }
+            if (byVillage != null) {
+                add(byVillage, villageId, gender, delta);
+            }
+        }
+    }
+
+    /**
+     * Brackets the commit of the surrounding transaction as a write and records the change once it
+     * commits.
+     */
+    public void changedAfterCommit(Long villageId, String gender, long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeStarted();
+            try {
+                changed(villageId, gender, delta);
+            } finally {
+                writeFinished();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                writeStarted();
+                started = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                changed(villageId, gender, delta);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (started) {
+                    writeFinished();
+                }
+            }
+        });
+    }
+
+    private Map<Long, Map<String, Long>> loadedCounts() {
+        return loader.load(ALL, key -> byVillage, key -> query(), (key, loaded) -> byVillage = loaded);
+    }
+
+    private Map<Long, Map<String, Long>> query() {
+        Map<Long, Map<String, Long>> loaded = new HashMap<>();
+        for (VillageGenderCountRow row : patientRepository.countByVillageAndGender()) {
+            add(loaded, row.getVillageId(), row.getGender(), row.getCount());
+        }
+        return loaded;
+    }
+
+    private static void add(Map<Long, Map<String, Long>> counts, Long villageId, String gender, long delta) {
+        String key = gender == null || gender.isBlank() ? UNKNOWN_GENDER : gender.trim();
+        Map<String, Long> genders = counts.computeIfAbsent(villageId, id -> new HashMap<>());
+        if (genders.merge(key, delta, Long::sum) == 0) {
+            genders.remove(key);
+        }
+        if (genders.isEmpty()) {
+            counts.remove(villageId);
+        }
+    }
+
+    private static Long nodeId(LocationDTO location, LocationJsonCache.Level level) {
+        return switch (level) {
+            case PROVINCES -> location.getProvinceId();
+            case DISTRICTS -> location.getDistrictId();
+            case SECTORS -> location.getSectorId();
+            default -> throw new IllegalArgumentException("Patient counts are not rolled up by " + level);
+        };
+    }
+}
@@ -2,38 +2,120 @@ package com.auca.clinic_system.service;
 
 import com.auca.clinic_system.dto.*;
 import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.exception.InvalidRequestException;
 import com.auca.clinic_system.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class PatientService {
     
+    public static final int MAX_AGE = 150;
+    
     @Autowired
     private PatientRepository patientRepository;
     
     @Autowired
     private VillageRepository villageRepository;
     
+    @Autowired
+    private LocationResolver locationResolver;
+    
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+    
+    @Autowired
+    private BatchPersister batchPersister;
+    
+    @Autowired
+    private PatientLocationStats locationStats;
+    
+    @Autowired
+    private VersionedUpdateRepository versionedUpdateRepository;
+    
+    @Autowired
+    private RowDeletionRepository rowDeletionRepository;
+    
+    @Autowired
+    private AppointmentCascadeDeleter cascadeDeleter;
+    
+    @Value("${clinic.delete.soft.enabled:false}")
+    private boolean softDelete;
+    
     public List<PatientDTO> getAllPatients() {
-        return patientRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertAll(patientRepository.findAllWithAppointmentSummaries(), LocalDate.now());
     }
     
     public Page<PatientDTO> getAllPatients(Pageable pageable) {
-        return patientRepository.findAll(pageable)
-                .map(this::convertToDTO);
+        return convertPage(patientRepository.findPageOfIds(pageable), LocalDate.now());
+    }
+    
+    public List<PatientDTO> getPatientsByAge(Integer minAge, Integer maxAge) {
+        // The same day bounds the query and ages the results, so no patient falls outside the requested range
+        LocalDate today = LocalDate.now();
+        DobRange range = DobRange.of(minAge, maxAge, today);
+        return convertAll(patientRepository.findByDobBetween(range.earliest(), range.latest()), today);
+    }
+    
+    public Page<PatientDTO> getPatientsByAge(Integer minAge, Integer maxAge, Pageable pageable) {
+        LocalDate today = LocalDate.now();
+        DobRange range = DobRange.of(minAge, maxAge, today);
+        return convertPage(patientRepository.findPageOfIdsByDobBetween(range.earliest(), range.latest(), pageable), today);
+    }
+    
+    /**
+     * Next keyset page, optionally limited to an age range; {@code minAge} and {@code maxAge} may each be null.
+     */
+    public CursorPageDTO<PatientDTO> getPatientsAfter(String after, int limit, Integer minAge, Integer maxAge) {
+        LocalDate today = LocalDate.now();
+        long afterId = after != null ? KeysetCursor.decode(after).getId() : 0L;
+        List<Long> ids;
+        if (minAge == null && maxAge == null) {
+            ids = patientRepository.findIdsAfter(afterId, PageRequest.ofSize(limit + 1));
+        } else {
+            DobRange range = DobRange.of(minAge, maxAge, today);
+            ids = patientRepository.findIdsByDobBetweenAfter(range.earliest(), range.latest(), afterId, PageRequest.ofSize(limit + 1));
+        }
+        boolean hasMore = ids.size() > limit;
+        List<Long> pageIds = hasMore ? ids.subList(0, limit) : ids;
+        
+        List<PatientDTO> items = convertAll(loadWithAppointmentSummaries(pageIds), today);
+        String nextCursor = hasMore ? KeysetCursor.of(pageIds.get(pageIds.size() - 1)).encode() : null;
+        return new CursorPageDTO<>(items, nextCursor);
+    }
+    
+    @Transactional(readOnly = true)
+    public void exportPatients(OutputStream out) throws IOException {
+        LocalDate today = LocalDate.now();
+        try (Stream<Patient> patients = patientRepository.streamAll()) {
+            ndjsonExporter.export(patients, patient -> convertToDTO(patient, today), out);
+        }
     }
     
     public Optional<PatientDTO> getPatientById(Long id) {
@@ -42,38 +124,109 @@ public class PatientService {
     }
     
     public List<PatientDTO> getPatientsByGender(String gender) {
-        return patientRepository.findByGender(gender).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertAll(patientRepository.findByGender(gender), LocalDate.now());
     }
     
     public List<PatientDTO> getPatientsByProvince(Long provinceId) {
-        return patientRepository.findByVillage_Cell_Sector_District_Province_Id(provinceId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertAll(patientRepository.findByVillage_Cell_Sector_District_Province_Id(provinceId), LocalDate.now());
     }
     
     public List<PatientDTO> getPatientsByDistrict(Long districtId) {
-        return patientRepository.findByVillage_Cell_Sector_District_Id(districtId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertAll(patientRepository.findByVillage_Cell_Sector_District_Id(districtId), LocalDate.now());
     }
     
     public List<PatientDTO> getPatientsBySector(Long sectorId) {
-        return patientRepository.findByVillage_Cell_Sector_Id(sectorId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertAll(patientRepository.findByVillage_Cell_Sector_Id(sectorId), LocalDate.now());
+    }
+    
+    /**
+     * Patients per age bucket of {@code width} years, counted by a single grouped query. Buckets run from
+     * age 0 to the oldest patient's, including empty ones. Location and gender filters are optional.
+     */
+    public List<AgeBucketDTO> getAgeHistogram(int width, Long provinceId, Long districtId, Long sectorId, String gender) {
+        if (width < 1 || width > MAX_AGE) {
+            throw new InvalidRequestException("width must be between 1 and " + MAX_AGE);
+        }
+        LocalDate today = LocalDate.now();
+        Map<Integer, Long> counts = new HashMap<>();
+        for (AgeBucketRow row : patientRepository.countByAgeBucket(today.getYear(),
+                today.getMonthValue() * 100 + today.getDayOfMonth(), width, gender, provinceId, districtId, sectorId)) {
+            counts.put(row.getBucket(), row.getCount());
+        }
+        
+        int lastBucket = counts.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+        List<AgeBucketDTO> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket <= lastBucket; bucket++) {
+            buckets.add(new AgeBucketDTO(bucket * width, bucket * width + width - 1, counts.getOrDefault(bucket, 0L)));
+        }
+        return buckets;
+    }
+    
+    /**
+     * Patient counts and gender breakdowns for every province, district or sector, served from
+     * {@link PatientLocationStats} rather than by loading the patients.
+     */
+    public List<LocationPatientCountDTO> getLocationStats(String level) {
+        LocationJsonCache.Level parsed = switch (level == null ? "" : level.trim().toLowerCase(Locale.ROOT)) {
+            case "province" -> LocationJsonCache.Level.PROVINCES;
+            case "district" -> LocationJsonCache.Level.DISTRICTS;
+            case "sector" -> LocationJsonCache.Level.SECTORS;
+            default -> throw new InvalidRequestException("level must be one of province, district or sector");
+        };
+        return locationStats.getCounts(parsed);
     }
     
     public PatientDTO createPatient(PatientDTO patientDTO) {
         Patient patient = convertToEntity(patientDTO);
         Patient savedPatient = patientRepository.save(patient);
+        locationStats.changedAfterCommit(villageId(savedPatient), savedPatient.getGender(), 1);
         return convertToDTO(savedPatient);
     }
     
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchItemResultDTO> createPatients(List<PatientDTO> patientDTOs) {
+        BatchPersister.checkBatchSize(patientDTOs.size());
+        BatchItemResultDTO[] results = new BatchItemResultDTO[patientDTOs.size()];
+        List<Patient> pending = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < patientDTOs.size(); i++) {
+            try {
+                pending.add(convertToReferencingEntity(patientDTOs.get(i)));
+                positions.add(i);
+            } catch (InvalidRequestException ex) {
+                results[i] = BatchItemResultDTO.failed(i, ex.getMessage());
+            }
+        }
+        
+        locationStats.writeStarted();
+        try {
+            Map<Integer, String> failures = batchPersister.persistAll(pending, patient -> patient.setId(null));
+            for (int j = 0; j < pending.size(); j++) {
+                int i = positions.get(j);
+                if (failures.containsKey(j)) {
+                    results[i] = BatchItemResultDTO.failed(i, failures.get(j));
+                } else {
+                    Patient created = pending.get(j);
+                    locationStats.changed(villageId(created), created.getGender(), 1);
+                    results[i] = BatchItemResultDTO.created(i, created.getId());
+                }
+            }
+        } finally {
+            locationStats.writeFinished();
+        }
+        return Arrays.asList(results);
+    }
+    
     public Optional<PatientDTO> updatePatient(Long id, PatientDTO patientDTO) {
         return patientRepository.findById(id)
                 .map(existingPatient -> {
+                    if (patientDTO.getVersion() != null && !patientDTO.getVersion().equals(existingPatient.getVersion())) {
+                        throw new ObjectOptimisticLockingFailureException(Patient.class, id);
+                    }
+                    if (!Objects.equals(existingPatient.getGender(), patientDTO.getGender())) {
+                        locationStats.changedAfterCommit(villageId(existingPatient), existingPatient.getGender(), -1);
+                        locationStats.changedAfterCommit(villageId(existingPatient), patientDTO.getGender(), 1);
+                    }
                     existingPatient.setName(patientDTO.getName());
                     existingPatient.setDob(patientDTO.getDob());
                     existingPatient.setGender(patientDTO.getGender());
@@ -85,15 +238,83 @@ public class PatientService {
                 });
     }
     
-    public boolean deletePatient(Long id) {
-        if (patientRepository.existsById(id)) {
-            patientRepository.deleteById(id);
-            return true;
+    /**
+     * Sets the supplied fields of a patient that still has {@code patch.version} with one update statement,
+     * without reading the patient first.
+     *
+     * @return the patient's new version, or empty if there is no such patient
+     * @throws ObjectOptimisticLockingFailureException if the patient has changed since that version
+     */
+    public Optional<PatchResultDTO> patchPatient(Long id, PatientPatchDTO patch) {
+        if (patch.getVersion() == null) {
+            throw new InvalidRequestException("version is required");
+        }
+        Map<String, Object> assignments = new LinkedHashMap<>();
+        if (patch.getName() != null) {
+            assignments.put("name", patch.getName());
+        }
+        if (patch.getDob() != null) {
+            assignments.put("dob", patch.getDob());
+        }
+        if (patch.getGender() != null) {
+            assignments.put("gender", patch.getGender());
+        }
+        if (patch.getPhone() != null) {
+            assignments.put("phone", patch.getPhone());
+        }
+        if (patch.getEmail() != null) {
+            assignments.put("email", patch.getEmail());
+        }
+        if (assignments.isEmpty()) {
+            throw new InvalidRequestException("Nothing to update: send name, dob, gender, phone or email");
+        }
+        Map<String, Class<?>> previous = new LinkedHashMap<>();
+        previous.put("gender", String.class);
+        previous.put("village_id", Long.class);
+        
+        Optional<Object[]> row = versionedUpdateRepository.update("patients", id, patch.getVersion(), assignments,
+                Map.of(), List.of("deleted_at"), previous);
+        if (row.isEmpty()) {
+            if (patientRepository.existsById(id)) {
+                throw new ObjectOptimisticLockingFailureException(Patient.class, id);
+            }
+            return Optional.empty();
         }
-        return false;
+        
+        String previousGender = (String) row.get()[0];
+        Long villageId = (Long) row.get()[1];
+        if (patch.getGender() != null && !patch.getGender().equals(previousGender)) {
+            locationStats.changedAfterCommit(villageId, previousGender, -1);
+            locationStats.changedAfterCommit(villageId, patch.getGender(), 1);
+        }
+        return Optional.of(new PatchResultDTO(id, (Long) row.get()[2] + 1));
+    }
+    
+    public boolean deletePatient(Long id) {
+        return patientRepository.findById(id)
+                .map(existingPatient -> {
+                    if (softDelete) {
+                        // Hidden at once; SoftDeletePurger removes the row and its appointments later
+                        rowDeletionRepository.markDeleted(Patient.class, "patients", id);
+                    } else {
+                        cascadeDeleter.deleteForPatient(id);
+                        rowDeletionRepository.deleteJoinRows("patient_doctor", "patient_id", id);
+                        rowDeletionRepository.deleteRow(Patient.class, "patients", id);
+                    }
+                    locationStats.changedAfterCommit(villageId(existingPatient), existingPatient.getGender(), -1);
+                    return true;
+                })
+                .orElse(false);
     }
     
     public PatientDTO convertToDTO(Patient patient) {
+        return convertToDTO(patient, LocalDate.now());
+    }
+    
+    /**
+     * Converts with ages as of {@code today}; list conversions pass one date for all their rows.
+     */
+    public PatientDTO convertToDTO(Patient patient, LocalDate today) {
         PatientDTO dto = new PatientDTO();
         dto.setId(patient.getId());
         dto.setName(patient.getName());
@@ -101,15 +322,16 @@ public class PatientService {
         dto.setGender(patient.getGender());
         dto.setPhone(patient.getPhone());
         dto.setEmail(patient.getEmail());
+        dto.setVersion(patient.getVersion());
         
         // Calculate age from date of birth
         if (patient.getDob() != null) {
-            dto.setAge(Period.between(patient.getDob(), LocalDate.now()).getYears());
+            dto.setAge(Period.between(patient.getDob(), today).getYears());
         }
         
         // Convert village to location hierarchy
         if (patient.getVillage() != null) {
-            dto.setLocation(convertVillageToLocation(patient.getVillage()));
+            dto.setLocation(locationResolver.resolve(patient.getVillage()));
         }
         
         // Convert appointments to summaries
@@ -148,35 +370,69 @@ public class PatientService {
         return patient;
     }
     
-    private LocationDTO convertVillageToLocation(Village village) {
-        LocationDTO location = new LocationDTO();
-        location.setVillageId(village.getId());
-        location.setVillageName(village.getName());
+    // Village ids are checked against the in-memory location index, so no row costs a SELECT
+    private Patient convertToReferencingEntity(PatientDTO dto) {
+        Patient patient = new Patient();
+        patient.setName(dto.getName());
+        patient.setDob(dto.getDob());
+        patient.setGender(dto.getGender());
+        patient.setPhone(dto.getPhone());
+        patient.setEmail(dto.getEmail());
         
-        if (village.getCell() != null) {
-            Cell cell = village.getCell();
-            location.setCellId(cell.getId());
-            location.setCellName(cell.getName());
-            
-            if (cell.getSector() != null) {
-                Sector sector = cell.getSector();
-                location.setSectorId(sector.getId());
-                location.setSectorName(sector.getName());
-                
-                if (sector.getDistrict() != null) {
-                    District district = sector.getDistrict();
-                    location.setDistrictId(district.getId());
-                    location.setDistrictName(district.getName());
-                    
-                    if (district.getProvince() != null) {
-                        Province province = district.getProvince();
-                        location.setProvinceId(province.getId());
-                        location.setProvinceName(province.getName());
-                    }
-                }
+        if (dto.getLocation() != null && dto.getLocation().getVillageId() != null) {
+            Long villageId = dto.getLocation().getVillageId();
+            if (locationResolver.resolve(villageId) == null) {
+                throw new InvalidRequestException("Unknown village " + villageId);
             }
+            patient.setVillage(villageRepository.getReferenceById(villageId));
         }
         
-        return location;
+        return patient;
+    }
+    
+    // Reads the id without initializing a lazy village
+    private static Long villageId(Patient patient) {
+        return patient.getVillage() != null ? patient.getVillage().getId() : null;
+    }
+    
+    /**
+     * Inclusive bounds on {@code dob} for ages {@code minAge} to {@code maxAge} on {@code today}, so the
+     * filter is a range scan of idx_patients_dob_id. {@code Period.between(dob, today).getYears() >= n}
+     * holds exactly when {@code dob <= today.minusYears(n)}, leap days included.
+     */
+    private record DobRange(LocalDate earliest, LocalDate latest) {
+        
+        static DobRange of(Integer minAge, Integer maxAge, LocalDate today) {
+            int min = minAge != null ? minAge : 0;
+            int max = maxAge != null ? maxAge : MAX_AGE;
+            if (min < 0 || max > MAX_AGE || min > max) {
+                throw new InvalidRequestException("Ages must satisfy 0 <= minAge <= maxAge <= " + MAX_AGE);
+            }
+            return new DobRange(today.minusYears(max + 1L).plusDays(1), today.minusYears(min));
+        }
+    }
+    
+    private List<PatientDTO> convertAll(List<Patient> patients, LocalDate today) {
+        return patients.stream()
+                .map(patient -> convertToDTO(patient, today))
+                .collect(Collectors.toList());
+    }
+    
+    private Page<PatientDTO> convertPage(Page<Long> ids, LocalDate today) {
+        return new PageImpl<>(convertAll(loadWithAppointmentSummaries(ids.getContent()), today),
+                ids.getPageable(), ids.getTotalElements());
+    }
+    
+    // In the order of ids; a patient deleted since its id was read is left out
+    private List<Patient> loadWithAppointmentSummaries(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Patient> patients = patientRepository.findWithAppointmentSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(Patient::getId, Function.identity(), (first, duplicate) -> first));
+        return ids.stream()
+                .map(patients::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
@@ -1,19 +1,24 @@
 package com.auca.clinic_system.service;
 
-import com.auca.clinic_system.dto.LocationDTO;
 import com.auca.clinic_system.dto.PersonDTO;
 import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.event.ChangeType;
+import com.auca.clinic_system.event.DoctorChangedEvent;
 import com.auca.clinic_system.repository.PersonRepository;
 import com.auca.clinic_system.repository.VillageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -25,6 +30,15 @@ public class PersonService {
     @Autowired
     private VillageRepository villageRepository;
     
+    @Autowired
+    private LocationResolver locationResolver;
+    
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     public List<PersonDTO> getAllPersons() {
         return personRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -36,6 +50,13 @@ public class PersonService {
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
+    public void exportPersons(OutputStream out) throws IOException {
+        try (Stream<Person> persons = personRepository.streamAll()) {
+            ndjsonExporter.export(persons, this::convertToDTO, out);
+        }
+    }
+    
     public Optional<PersonDTO> getPersonById(Long id) {
         return personRepository.findById(id)
                 .map(this::convertToDTO);
@@ -73,6 +94,14 @@ public class PersonService {
                     }
                     
                     Person updatedPerson = personRepository.save(existingPerson);
+                    
+                    // A doctor's address lives on the person; refresh the doctor views that carry it
+                    Doctor doctor = updatedPerson.getDoctor();
+                    if (doctor != null) {
+                        Long villageId = updatedPerson.getVillage() != null ? updatedPerson.getVillage().getId() : null;
+                        eventPublisher.publishEvent(new DoctorChangedEvent(ChangeType.UPDATED, doctor.getId(), doctor.getName(),
+                                doctor.getSpecialization(), villageId, doctor.getSpecialization()));
+                    }
                     return convertToDTO(updatedPerson);
                 });
     }
@@ -94,7 +123,7 @@ public class PersonService {
         
         // Convert village to location hierarchy
         if (person.getVillage() != null) {
-            dto.setLocation(convertVillageToLocation(person.getVillage()));
+            dto.setLocation(locationResolver.resolve(person.getVillage()));
         }
         
         return dto;
@@ -114,36 +143,4 @@ public class PersonService {
         
         return person;
     }
-    
-    private LocationDTO convertVillageToLocation(Village village) {
-        LocationDTO location = new LocationDTO();
-        location.setVillageId(village.getId());
-        location.setVillageName(village.getName());
-        
-        if (village.getCell() != null) {
-            Cell cell = village.getCell();
-            location.setCellId(cell.getId());
-            location.setCellName(cell.getName());
-            
-            if (cell.getSector() != null) {
-                Sector sector = cell.getSector();
-                location.setSectorId(sector.getId());
-                location.setSectorName(sector.getName());
-                
-                if (sector.getDistrict() != null) {
-                    District district = sector.getDistrict();
-                    location.setDistrictId(district.getId());
-                    location.setDistrictName(district.getName());
-                    
-                    if (district.getProvince() != null) {
-                        Province province = district.getProvince();
-                        location.setProvinceId(province.getId());
-                        location.setProvinceName(province.getName());
-                    }
-                }
-            }
-        }
-        
-        return location;
-    }
 }
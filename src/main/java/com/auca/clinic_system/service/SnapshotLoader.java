@@ -0,0 +1,152 @@
+package com.auca.clinic_system.service;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Loads in-memory counts of type {@code S}, one per key {@code K}, that writes then keep up to date, so
+ * that a write committing while a key loads is counted exactly once.
+ *
+ * <p>Writes hold a shared gate from {@link #writeStarted()} to {@link #writeFinished()} and report
+ * their committed effect in between. A load opens a REPEATABLE READ transaction and takes its snapshot
+ * with one statement while it holds the gate exclusively: every write has then either reported before
+ * the snapshot and is in it, or commits after it. The load's query runs with the gate released;
+ * changes reported for its key meanwhile are buffered and applied to the result before it is kept.
+ * Different keys load in parallel, the same key only once at a time.
+ *
+ * <p>If the gate is not free within {@link #GATE_TIMEOUT}, for instance behind a slow write, the load's
+ * result is returned but not kept. Every method except {@link #load} must be called with the owner's
+ * {@code monitor} held, or, for the write bracket, on the writing thread.
+ */
+final class SnapshotLoader<K, S> {
+
+    static final Duration GATE_TIMEOUT = Duration.ofMillis(200);
+
+    private static final int STRIPES = 64;
+
+    // Fair, so a waiting load is not starved by a steady stream of writes
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock(true);
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final TransactionTemplate snapshotTransaction;
+    private final EntityManager entityManager;
+    private final Object monitor;
+
+    // Changes reported for keys whose query is running; guarded by monitor
+    private final Map<K, List<Consumer<S>>> loading = new HashMap<>();
+
+    SnapshotLoader(PlatformTransactionManager transactionManager, EntityManager entityManager, Object monitor) {
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.monitor = monitor;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    void writeStarted() {
+        gate.readLock().lock();
+    }
+
+    void writeFinished() {
+        gate.readLock().unlock();
+    }
+
+    /**
+     * Holds back {@code change} until the running load of {@code key} completes, if there is one.
+     *
+     * @return whether the change was held back; if not, the owner applies it to what it has kept
+     */
+    boolean deferIfLoading(K key, Consumer<S> change) {
+        List<Consumer<S>> changes = loading.get(key);
+        if (changes == null) {
+            return false;
+        }
+        changes.add(change);
+        return true;
+    }
+
+    /**
+     * Holds back {@code change} for every running load.
+     */
+    void deferForAllLoading(Consumer<S> change) {
+        loading.values().forEach(changes -> changes.add(change));
+    }
+
+    /**
+     * Returns what {@code kept} has for {@code key}, or runs {@code query} for it and passes the result,
+     * with the changes made meanwhile applied, to {@code keep}. {@code kept} and {@code keep} are called
+     * with the monitor held, {@code query} without.
+     */
+    S load(K key, Function<K, S> kept, Function<K, S> query, BiConsumer<K, S> keep) {
+        Lock stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        stripe.lock();
+        try {
+            synchronized (monitor) {
+                S current = kept.apply(key);
+                if (current != null) {
+                    return current;
+                }
+            }
+            return snapshotTransaction.execute(status -> {
+                boolean tracked = takeSnapshot(key);
+                S loaded;
+                try {
+                    loaded = query.apply(key);
+                } catch (RuntimeException ex) {
+                    if (tracked) {
+                        synchronized (monitor) {
+                            loading.remove(key);
+                        }
+                    }
+                    throw ex;
+                }
+                if (!tracked) {
+                    return loaded;
+                }
+                synchronized (monitor) {
+                    loading.remove(key).forEach(change -> change.accept(loaded));
+                    keep.accept(key, loaded);
+                }
+                return loaded;
+            });
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private boolean takeSnapshot(K key) {
+        try {
+            if (!gate.writeLock().tryLock(GATE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            // The first statement fixes the transaction's snapshot for the query that follows
+            entityManager.createNativeQuery("SELECT 1").getSingleResult();
+            synchronized (monitor) {
+                loading.put(key, new ArrayList<>());
+            }
+            return true;
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+}
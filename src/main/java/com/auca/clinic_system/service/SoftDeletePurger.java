@@ -0,0 +1,83 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.repository.RowDeletionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Removes soft-deleted patients and doctors in the background, every
+ * {@code clinic.delete.soft.purge-interval}. A record's appointments are deleted
+ * {@code clinic.delete.soft.purge-chunk-size} at a time, each chunk in a short transaction of its own, so
+ * a doctor with years of appointments never holds their locks all at once. The record itself is deleted
+ * last, together with anything booked against it since it was marked.
+ *
+ * <p>Registered by {@link com.auca.clinic_system.config.SoftDeleteConfig} when soft delete is on.
+ */
+public class SoftDeletePurger {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftDeletePurger.class);
+
+    // Records taken per table and run; the rest wait for the next run
+    private static final int RECORDS_PER_RUN = 100;
+
+    @Autowired
+    private RowDeletionRepository rowDeletionRepository;
+
+    @Autowired
+    private AppointmentCascadeDeleter cascadeDeleter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${clinic.delete.soft.purge-chunk-size:1000}")
+    private int chunkSize;
+
+    @Scheduled(fixedDelayString = "${clinic.delete.soft.purge-interval:30s}",
+            initialDelayString = "${clinic.delete.soft.purge-interval:30s}")
+    public void purge() {
+        int patients = purge("patients", cascadeDeleter::deleteChunkForPatient, id -> {
+            cascadeDeleter.deleteForPatient(id);
+            rowDeletionRepository.deleteJoinRows("patient_doctor", "patient_id", id);
+            rowDeletionRepository.deleteRow(Patient.class, "patients", id);
+        });
+        int doctors = purge("doctors", cascadeDeleter::deleteChunkForDoctor, id -> {
+            cascadeDeleter.deleteForDoctor(id);
+            rowDeletionRepository.deleteJoinRows("patient_doctor", "doctor_id", id);
+            rowDeletionRepository.deleteRow(Doctor.class, "doctors", id);
+        });
+        if (patients + doctors > 0) {
+            log.info("Purged {} soft-deleted patients and {} doctors", patients, doctors);
+        }
+    }
+
+    private int purge(String table, BiFunction<Long, Integer, Integer> deleteChunk, Consumer<Long> deleteRow) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Long> ids = transaction.execute(status -> rowDeletionRepository.findDeletedIds(table, RECORDS_PER_RUN));
+        int purged = 0;
+        for (Long id : ids) {
+            try {
+                int deleted;
+                do {
+                    deleted = transaction.execute(status -> deleteChunk.apply(id, chunkSize));
+                } while (deleted == chunkSize);
+                transaction.executeWithoutResult(status -> deleteRow.accept(id));
+                purged++;
+            } catch (RuntimeException ex) {
+                // Left marked, so the next run tries again
+                log.warn("Could not purge {} row {}", table, id, ex);
+            }
+        }
+        return purged;
+    }
+}
@@ -0,0 +1,99 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.dto.SpecializationCountDTO;
+import com.auca.clinic_system.event.ChangeType;
+import com.auca.clinic_system.event.DoctorChangedEvent;
+import com.auca.clinic_system.repository.DoctorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cached view of the specializations: the doctor count of each and an immutable roster of its doctors.
+ *
+ * <p>Rosters are loaded per specialization on first request and kept only when not empty. A
+ * {@link DoctorChangedEvent} evicts, after commit, only the rosters of the specializations the doctor
+ * left or joined, and the counts only when membership changed. Lookups are counted in
+ * {@code clinic.specialization.roster.lookups}, tagged {@code result=hit|miss}.
+ */
+@Component
+public class SpecializationCatalog {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private final Map<String, List<DoctorMinimalRow>> rosters = new ConcurrentHashMap<>();
+    private volatile List<SpecializationCountDTO> counts;
+
+    // Bumped on every eviction; a load that raced with one is returned but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public SpecializationCatalog(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("clinic.specialization.roster.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("clinic.specialization.roster.lookups").tag("result", "miss").register(meterRegistry);
+    }
+
+    public List<DoctorMinimalRow> getRoster(String specialization) {
+        List<DoctorMinimalRow> roster = rosters.get(specialization);
+        if (roster != null) {
+            hits.increment();
+            return roster;
+        }
+        misses.increment();
+        long seen = generation.get();
+        roster = List.copyOf(doctorRepository.findMinimalBySpecialization(specialization));
+        // Names nobody practises are not kept, so arbitrary lookups cannot grow the cache
+        if (roster.isEmpty()) {
+            return roster;
+        }
+        if (generation.get() == seen && rosters.putIfAbsent(specialization, roster) == null
+                && generation.get() != seen) {
+            rosters.remove(specialization, roster);
+        }
+        return roster;
+    }
+
+    public List<SpecializationCountDTO> getCounts() {
+        List<SpecializationCountDTO> current = counts;
+        if (current != null) {
+            return current;
+        }
+        long seen = generation.get();
+        current = List.copyOf(doctorRepository.countBySpecialization());
+        if (generation.get() == seen) {
+            counts = current;
+            if (generation.get() != seen) {
+                counts = null;
+            }
+        }
+        return current;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.getSpecialization() != null) {
+            rosters.remove(event.getSpecialization());
+        }
+        if (event.getPreviousSpecialization() != null) {
+            rosters.remove(event.getPreviousSpecialization());
+        }
+        if (event.getType() != ChangeType.UPDATED
+                || !Objects.equals(event.getSpecialization(), event.getPreviousSpecialization())) {
+            counts = null;
+        }
+    }
+}
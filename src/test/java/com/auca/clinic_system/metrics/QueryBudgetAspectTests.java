@@ -0,0 +1,101 @@
+package com.auca.clinic_system.metrics;
+
+import com.auca.clinic_system.exception.QueryBudgetExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryBudgetAspectTests {
+
+	private static final StatementCountingInspector INSPECTOR = new StatementCountingInspector();
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void failModeThrowsWhenAMethodRunsMoreStatementsThanItsBudget() {
+		Lookups lookups = proxy(new Lookups(), QueryBudget.Mode.FAIL);
+
+		assertThat(lookups.byId(2)).isEqualTo(2);
+		assertThatThrownBy(() -> lookups.byId(3))
+				.isInstanceOf(QueryBudgetExceededException.class)
+				.hasMessage("Lookups.byId ran 3 SQL statements, its budget is 2");
+		assertThat(registry.get("clinic.query.budget.exceeded").tags("method", "Lookups.byId").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void warnModeStillReturnsTheResult() {
+		Lookups lookups = proxy(new Lookups(), QueryBudget.Mode.WARN);
+
+		assertThat(lookups.byId(5)).isEqualTo(5);
+		assertThat(registry.get("clinic.query.budget.exceeded").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void classBudgetAppliesToMethodsWithoutTheirOwn() {
+		Lookups lookups = proxy(new Lookups(), QueryBudget.Mode.FAIL);
+
+		assertThat(lookups.list(5)).isEqualTo(5);
+		assertThatThrownBy(() -> lookups.list(6)).isInstanceOf(QueryBudgetExceededException.class);
+		// Statements before the call are not charged to it
+		INSPECTOR.inspect("select ...");
+		assertThat(lookups.byId(2)).isEqualTo(2);
+	}
+
+	@Test
+	void outerBudgetIsChargedForNestedCalls() {
+		Lookups lookups = proxy(new Lookups(), QueryBudget.Mode.FAIL);
+		Report report = proxy(new Report(lookups), QueryBudget.Mode.FAIL);
+
+		assertThat(report.build(1)).isEqualTo(3);
+		assertThatThrownBy(() -> report.build(2))
+				.isInstanceOf(QueryBudgetExceededException.class)
+				.hasMessage("Report.build ran 4 SQL statements, its budget is 3");
+		assertThat(registry.find("clinic.query.budget.exceeded").tags("method", "Lookups.byId").counter()).isNull();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T proxy(T target, QueryBudget.Mode mode) {
+		AspectJProxyFactory factory = new AspectJProxyFactory(target);
+		factory.setProxyTargetClass(true);
+		factory.addAspect(new QueryBudgetAspect(registry, mode));
+		return (T) factory.getProxy();
+	}
+
+	private static int runStatements(int count) {
+		for (int i = 0; i < count; i++) {
+			INSPECTOR.inspect("select ...");
+		}
+		return count;
+	}
+
+	@QueryBudget(5)
+	static class Lookups {
+
+		@QueryBudget(2)
+		public int byId(int statements) {
+			return runStatements(statements);
+		}
+
+		public int list(int statements) {
+			return runStatements(statements);
+		}
+	}
+
+	static class Report {
+
+		private final Lookups lookups;
+
+		Report(Lookups lookups) {
+			this.lookups = lookups;
+		}
+
+		@QueryBudget(3)
+		public int build(int ownStatements) {
+			return lookups.byId(2) + runStatements(ownStatements);
+		}
+	}
+}
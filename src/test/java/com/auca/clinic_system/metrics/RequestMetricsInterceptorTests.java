@@ -0,0 +1,81 @@
+package com.auca.clinic_system.metrics;
+
+import com.auca.clinic_system.controller.DoctorController;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestMetricsInterceptorTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final RequestMetricsInterceptor interceptor = new RequestMetricsInterceptor(registry);
+	private final StatementCountingInspector inspector = new StatementCountingInspector();
+	private final EntityLoadCountingListener listener = new EntityLoadCountingListener();
+
+	@Test
+	void recordsStatementsAndEntitiesPerEndpoint() throws Exception {
+		HandlerMethod handler = new HandlerMethod(new DoctorController(), DoctorController.class.getMethod("getDoctorById", Long.class));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/doctors/3");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/doctors/{id}");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		for (int i = 0; i < 2; i++) {
+			interceptor.preHandle(request, response, handler);
+			inspector.inspect("select ...");
+			inspector.inspect("select ...");
+			listener.onPostLoad(null);
+			interceptor.afterCompletion(request, response, handler, null);
+		}
+		// Outside a request nothing is counted
+		inspector.inspect("select ...");
+
+		DistributionSummary statements = registry.get("clinic.request.sql.statements")
+				.tags("method", "GET", "uri", "/api/doctors/{id}").summary();
+		assertThat(statements.count()).isEqualTo(2);
+		assertThat(statements.totalAmount()).isEqualTo(4);
+		assertThat(registry.get("clinic.request.entities.loaded").summary().totalAmount()).isEqualTo(2);
+		assertThat(registry.get("clinic.request.connection.wait").timer().count()).isEqualTo(2);
+	}
+
+	@Test
+	void recordsAsyncRequestsOnce() throws Exception {
+		HandlerMethod handler = new HandlerMethod(new DoctorController(), DoctorController.class.getMethod("getDoctorById", Long.class));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/doctors/3");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/doctors/{id}");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		interceptor.preHandle(request, response, handler);
+		inspector.inspect("select ...");
+		interceptor.afterConcurrentHandlingStarted(request, response, handler);
+
+		// The redispatch that writes the result runs the interceptor again
+		request.setDispatcherType(DispatcherType.ASYNC);
+		interceptor.preHandle(request, response, handler);
+		inspector.inspect("select ...");
+		interceptor.postHandle(request, response, handler, null);
+		interceptor.afterCompletion(request, response, handler, null);
+
+		DistributionSummary statements = registry.get("clinic.request.sql.statements").summary();
+		assertThat(statements.count()).isEqualTo(1);
+		assertThat(statements.totalAmount()).isEqualTo(1);
+	}
+
+	@Test
+	void ignoresHandlersOutsideTheControllerPackage() throws Exception {
+		HandlerMethod handler = new HandlerMethod(this, getClass().getDeclaredMethod("ignoresHandlersOutsideTheControllerPackage"));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/other");
+
+		interceptor.preHandle(request, new MockHttpServletResponse(), handler);
+		inspector.inspect("select ...");
+		interceptor.afterCompletion(request, new MockHttpServletResponse(), handler, null);
+
+		assertThat(registry.find("clinic.request.sql.statements").meters()).isEmpty();
+	}
+}
@@ -0,0 +1,175 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.entity.Appointment;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.exception.BookingConflictException;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import com.auca.clinic_system.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AppointmentBookingEngineTests {
+
+	private static final LocalDateTime DAY_START = LocalDateTime.now().plusDays(7).withHour(8).withMinute(0).withSecond(0).withNano(0);
+	private static final Duration SLOT = Duration.ofMinutes(30);
+	private static final Long UNKNOWN_DOCTOR = 99L;
+
+	private final Queue<Appointment> committed = new ConcurrentLinkedQueue<>();
+	private final Queue<String> calls = new ConcurrentLinkedQueue<>();
+	private final AtomicLong ids = new AtomicLong();
+
+	private AppointmentBookingEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		AppointmentRepository repository = mock(AppointmentRepository.class);
+		when(repository.findDoctorAppointmentsBetweenDates(any(), any(), any())).thenAnswer(invocation -> {
+			calls.add("read");
+			return List.of();
+		});
+		when(repository.save(any(Appointment.class))).thenAnswer(invocation -> {
+			calls.add("save");
+			Appointment appointment = invocation.getArgument(0);
+			if (appointment.getId() == null) {
+				appointment.setId(ids.incrementAndGet());
+			}
+			committed.add(appointment);
+			return appointment;
+		});
+
+		DoctorRepository doctors = mock(DoctorRepository.class);
+		when(doctors.existsById(any())).thenAnswer(invocation -> !invocation.getArgument(0).equals(UNKNOWN_DOCTOR));
+
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+			calls.add("begin");
+			return new SimpleTransactionStatus();
+		});
+		doAnswer(invocation -> calls.add("commit")).when(transactionManager).commit(any());
+
+		engine = new AppointmentBookingEngine();
+		ReflectionTestUtils.setField(engine, "appointmentRepository", repository);
+		ReflectionTestUtils.setField(engine, "doctorRepository", doctors);
+		ReflectionTestUtils.setField(engine, "batchPersister", mock(BatchPersister.class));
+		ReflectionTestUtils.setField(engine, "transactionManager", transactionManager);
+		ReflectionTestUtils.setField(engine, "slotMinutes", SLOT.toMinutes());
+	}
+
+	@Test
+	void rejectsOverlappingSlotAndAcceptsAdjacentOne() {
+		Doctor doctor = doctor(1L);
+		engine.book(appointment(doctor, DAY_START));
+
+		assertThatThrownBy(() -> engine.book(appointment(doctor, DAY_START.plusMinutes(10))))
+				.isInstanceOf(BookingConflictException.class);
+		engine.book(appointment(doctor, DAY_START.plus(SLOT)));
+		engine.book(appointment(doctor(2L), DAY_START.plusMinutes(10)));
+
+		assertThat(committed).hasSize(3);
+	}
+
+	@Test
+	void readsCommitBeforeTheWriteBegins() {
+		engine.book(appointment(doctor(1L), DAY_START));
+
+		// A read left open would hold its connection while the write waits for another
+		assertThat(calls).containsExactly("begin", "read", "commit", "begin", "save", "commit");
+	}
+
+	@Test
+	void unknownDoctorIsRejectedWithoutBeingIndexed() {
+		Appointment appointment = appointment(doctor(UNKNOWN_DOCTOR), DAY_START);
+		assertThatThrownBy(() -> engine.book(appointment)).isInstanceOf(InvalidRequestException.class);
+		assertThat(engine.bookAll(List.of(appointment(doctor(UNKNOWN_DOCTOR), DAY_START), appointment(doctor(1L), DAY_START))))
+				.containsOnlyKeys(0);
+
+		assertThat(committed).isEmpty();
+		assertThat((Map<Long, ?>) ReflectionTestUtils.getField(engine, "schedules")).containsOnlyKeys(1L);
+	}
+
+	@Test
+	void concurrentBookingsNeverDoubleBookADoctor() throws Exception {
+		int threads = 32;
+		int attemptsPerThread = 250;
+		List<Doctor> doctors = List.of(doctor(1L), doctor(2L), doctor(3L), doctor(4L), doctor(65L));
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger booked = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				start.await();
+				for (int i = 0; i < attemptsPerThread; i++) {
+					Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+					// 10-minute grid over one working day: most attempts collide
+					LocalDateTime slotStart = DAY_START.plusMinutes(10L * random.nextInt(54));
+					try {
+						engine.book(appointment(doctor, slotStart));
+						booked.incrementAndGet();
+					} catch (BookingConflictException ex) {
+						rejected.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		assertThat(booked.get() + rejected.get()).isEqualTo(threads * attemptsPerThread);
+		assertThat(committed).hasSize(booked.get());
+
+		Map<Long, List<LocalDateTime>> startsByDoctor = committed.stream()
+				.collect(Collectors.groupingBy(a -> a.getDoctor().getId(),
+						Collectors.mapping(Appointment::getAppointmentDate, Collectors.toList())));
+		for (List<LocalDateTime> starts : startsByDoctor.values()) {
+			Collections.sort(starts);
+			for (int i = 1; i < starts.size(); i++) {
+				assertThat(Duration.between(starts.get(i - 1), starts.get(i))).isGreaterThanOrEqualTo(SLOT);
+			}
+		}
+	}
+
+	private static Doctor doctor(Long id) {
+		Doctor doctor = new Doctor();
+		doctor.setId(id);
+		doctor.setName("Dr. " + id);
+		return doctor;
+	}
+
+	private static Appointment appointment(Doctor doctor, LocalDateTime date) {
+		Appointment appointment = new Appointment();
+		appointment.setDoctor(doctor);
+		appointment.setAppointmentDate(date);
+		appointment.setStatus(AppointmentStatus.SCHEDULED);
+		return appointment;
+	}
+}
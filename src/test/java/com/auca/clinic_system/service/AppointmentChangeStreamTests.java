@@ -0,0 +1,160 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.AppointmentPatchDTO;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static com.auca.clinic_system.entity.AppointmentStatus.*;
+import static com.auca.clinic_system.service.ClinicFixtures.appointment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Subscribes emitters that record what is sent to them, one of which can be held up like a client
+ * that stopped reading. Buffers hold four events, so that client is evicted within a few changes.
+ */
+@ServiceSliceTest(properties = "clinic.appointments.stream.buffer-size=4")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentChangeStreamTests {
+
+	private static final LocalDateTime SLOT = LocalDate.now().plusDays(80).atTime(9, 0);
+	private static final Duration WAIT = Duration.ofSeconds(10);
+
+	@Autowired
+	private ClinicFixtures fixtures;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private PatientService patientService;
+
+	@Autowired
+	private AppointmentChangeStream changeStream;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void subscribersGetTheCommittedChangesOfTheirDoctor() {
+		Doctor doctor = fixtures.doctor("own");
+		Doctor other = fixtures.doctor("other");
+		Patient patient = fixtures.patient("stream");
+		RecordingEmitter forDoctor = new RecordingEmitter(null);
+		RecordingEmitter forAll = new RecordingEmitter(null);
+		changeStream.subscribe(doctor.getId(), forDoctor);
+		changeStream.subscribe(null, forAll);
+
+		AppointmentDTO booked = appointmentService.createAppointment(appointment(SLOT, doctor, patient));
+		appointmentService.createAppointment(appointment(SLOT, other, patient));
+		// A status patch never reads the row, so the stream loads it to send it
+		appointmentService.patchAppointment(booked.getId(), new AppointmentPatchDTO(0L, null, CANCELLED, null));
+		appointmentService.deleteAppointment(booked.getId());
+
+		// Each subscriber is written by its own thread, so wait for both
+		await().atMost(WAIT).until(() -> forAll.changes().size() == 4 && forDoctor.changes().size() == 3);
+		List<String> changes = forDoctor.changes();
+		assertThat(changes).hasSize(3);
+		assertThat(changes.get(0)).startsWith("event:CREATED\n").contains("\"id\":" + booked.getId());
+		assertThat(changes.get(1)).startsWith("event:UPDATED\n")
+				.contains("\"status\":\"CANCELLED\"", "\"patientName\":\"Patient stream\"");
+		assertThat(changes.get(2)).startsWith("event:DELETED\n").contains("\"appointment\":null");
+		assertThat(forAll.changes().get(1)).contains("\"doctorId\":" + other.getId());
+	}
+
+	@Test
+	void appointmentsRemovedWithTheirPatientAreSentAsOneDeletedPerDoctor() {
+		Doctor doctor = fixtures.doctor("cascade");
+		Patient patient = fixtures.patient("cascade");
+		RecordingEmitter forDoctor = new RecordingEmitter(null);
+		changeStream.subscribe(doctor.getId(), forDoctor);
+		for (int i = 0; i < 3; i++) {
+			appointmentService.createAppointment(appointment(SLOT.plusDays(2).plusHours(i), doctor, patient));
+		}
+
+		assertThat(patientService.deletePatient(patient.getId())).isTrue();
+
+		await().atMost(WAIT).until(() -> forDoctor.changes().size() == 4);
+		assertThat(forDoctor.changes().get(3)).startsWith("event:DELETED\n")
+				.contains("\"id\":null", "\"doctorId\":" + doctor.getId(), "\"patientId\":" + patient.getId());
+	}
+
+	@Test
+	void aClientThatStopsReadingIsEvictedWithoutHoldingUpOthers() {
+		Doctor doctor = fixtures.doctor("slow");
+		Patient patient = fixtures.patient("slow");
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingEmitter stuck = new RecordingEmitter(release);
+		RecordingEmitter reading = new RecordingEmitter(null);
+		double evictedBefore = meterRegistry.get("clinic.appointments.stream.evicted").counter().count();
+		changeStream.subscribe(doctor.getId(), stuck);
+		changeStream.subscribe(doctor.getId(), reading);
+
+		try {
+			for (int i = 0; i < 6; i++) {
+				appointmentService.createAppointment(appointment(SLOT.plusDays(1).plusHours(i), doctor, patient));
+				int received = i + 1;
+				await().atMost(WAIT).until(() -> reading.changes().size() == received);
+			}
+
+			await().atMost(WAIT).until(() -> stuck.completed);
+			assertThat(meterRegistry.get("clinic.appointments.stream.evicted").counter().count())
+					.isEqualTo(evictedBefore + 1);
+			assertThat(reading.completed).isFalse();
+		} finally {
+			release.countDown();
+		}
+	}
+
+	// Keeps each event as its wire text; a latch makes every send wait like a client that stopped reading
+	private static class RecordingEmitter extends SseEmitter {
+
+		private final List<String> sent = new CopyOnWriteArrayList<>();
+		private final CountDownLatch release;
+		private volatile boolean completed;
+
+		RecordingEmitter(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (release != null) {
+				try {
+					release.await();
+				} catch (InterruptedException ex) {
+					throw new IOException(ex);
+				}
+			}
+			sent.add(builder.build().stream()
+					.map(item -> item.getData().toString())
+					.collect(Collectors.joining()));
+		}
+
+		@Override
+		public void complete() {
+			completed = true;
+		}
+
+		// Without the heartbeat comments
+		List<String> changes() {
+			return sent.stream().filter(event -> event.startsWith("event:")).toList();
+		}
+	}
+}
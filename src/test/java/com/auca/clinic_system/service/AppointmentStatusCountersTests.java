@@ -0,0 +1,123 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentStatsDTO;
+import com.auca.clinic_system.dto.DoctorDayStatusCountRow;
+import com.auca.clinic_system.dto.DoctorStatusCountRow;
+import com.auca.clinic_system.dto.DoctorStatusCountsDTO;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.auca.clinic_system.entity.AppointmentStatus.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AppointmentStatusCountersTests {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 11, 10);
+	private static final LocalDateTime MORNING = DAY.atTime(9, 0);
+
+	private AppointmentRepository repository;
+	private AppointmentStatusCounters counters;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(AppointmentRepository.class);
+		when(repository.countByDoctorAndStatusBetween(any(), any())).thenReturn(List.of(
+				new DoctorStatusCountRow(1L, SCHEDULED, 4L),
+				new DoctorStatusCountRow(1L, CANCELLED, 1L),
+				new DoctorStatusCountRow(2L, COMPLETED, 3L)));
+
+		counters = new AppointmentStatusCounters(mock(PlatformTransactionManager.class),
+				mock(EntityManager.class, RETURNS_DEEP_STUBS));
+		ReflectionTestUtils.setField(counters, "appointmentRepository", repository);
+	}
+
+	@Test
+	void loadsADayOnceAndThenAppliesChanges() {
+		AppointmentStatsDTO stats = counters.getStats(DAY, null);
+		assertThat(stats.getTotals()).containsOnly(entry(SCHEDULED, 4L), entry(COMPLETED, 3L), entry(CANCELLED, 1L));
+		assertThat(stats.getDoctors()).hasSize(2);
+
+		write(() -> counters.changed(2L, null, null, MORNING, SCHEDULED));
+		write(() -> counters.changed(1L, MORNING, SCHEDULED, MORNING, COMPLETED));
+		// Moved to a day nobody has asked for yet: only the old day changes
+		write(() -> counters.changed(1L, MORNING, SCHEDULED, MORNING.plusDays(1), SCHEDULED));
+		write(() -> counters.changed(1L, MORNING, CANCELLED, null, null));
+
+		stats = counters.getStats(DAY, null);
+		assertThat(stats.getTotals()).containsOnly(entry(SCHEDULED, 3L), entry(COMPLETED, 4L), entry(CANCELLED, 0L));
+		assertThat(counters.getStats(DAY, 1L).getDoctors()).singleElement()
+				.satisfies(doctor -> assertThat(doctor.getCounts())
+						.containsOnly(entry(SCHEDULED, 2L), entry(COMPLETED, 1L), entry(CANCELLED, 0L)));
+		verify(repository, times(1)).countByDoctorAndStatusBetween(DAY.atStartOfDay(),
+				DAY.plusDays(1).atStartOfDay());
+	}
+
+	@Test
+	void changesReportedWhileADayLoadsAreAppliedToIt() {
+		when(repository.countByDoctorAndStatusBetween(any(), any())).thenAnswer(invocation -> {
+			// Committed after the load's snapshot, so not in the rows below
+			write(() -> counters.changed(2L, null, null, MORNING, SCHEDULED));
+			return List.of(new DoctorStatusCountRow(1L, SCHEDULED, 4L));
+		});
+
+		assertThat(counters.getStats(DAY, null).getTotals()).containsEntry(SCHEDULED, 5L);
+		assertThat(counters.getStats(DAY, 2L).getDoctors()).singleElement()
+				.satisfies(doctor -> assertThat(doctor.getCounts()).containsEntry(SCHEDULED, 1L));
+		verify(repository, times(1)).countByDoctorAndStatusBetween(any(), any());
+	}
+
+	@Test
+	void loadThatCannotTakeTheGateIsNotKept() {
+		// The gate cannot be taken exclusively while this thread holds it for a write
+		counters.writeStarted();
+		try {
+			counters.getStats(DAY, null);
+		} finally {
+			counters.writeFinished();
+		}
+
+		counters.getStats(DAY, null);
+		counters.getStats(DAY, null);
+		verify(repository, times(2)).countByDoctorAndStatusBetween(any(), any());
+	}
+
+	@Test
+	void cascadeDeletesAreTakenOffLoadedDays() {
+		counters.getStats(DAY, null);
+		counters.removedAfterCommit(List.of(new DoctorDayStatusCountRow(1L, DAY, SCHEDULED, 3L)));
+		assertThat(counters.getStats(DAY, null).getTotals()).containsEntry(SCHEDULED, 1L);
+
+		counters.doctorRemovedAfterCommit(2L);
+		AppointmentStatsDTO stats = counters.getStats(DAY, null);
+		assertThat(stats.getTotals()).containsOnly(entry(SCHEDULED, 1L), entry(COMPLETED, 0L), entry(CANCELLED, 1L));
+		assertThat(stats.getDoctors()).extracting(DoctorStatusCountsDTO::getDoctorId).containsExactly(1L);
+		verify(repository, times(1)).countByDoctorAndStatusBetween(any(), any());
+	}
+
+	@Test
+	void returnedStatsAreNotChangedByLaterWrites() {
+		AppointmentStatsDTO before = counters.getStats(DAY, null);
+		write(() -> counters.changed(2L, null, null, MORNING, SCHEDULED));
+		assertThat(before.getTotals()).containsEntry(SCHEDULED, 4L);
+	}
+
+	private void write(Runnable change) {
+		counters.writeStarted();
+		try {
+			change.run();
+		} finally {
+			counters.writeFinished();
+		}
+	}
+}
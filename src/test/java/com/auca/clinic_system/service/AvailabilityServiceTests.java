@@ -0,0 +1,88 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AvailableSlotDTO;
+import com.auca.clinic_system.dto.BookedSlotRow;
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import com.auca.clinic_system.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AvailabilityServiceTests {
+
+	private static final LocalDate DAY = LocalDate.now().plusDays(10);
+
+	private AppointmentRepository appointmentRepository;
+	private AvailabilityService service;
+
+	@BeforeEach
+	void setUp() {
+		DoctorRepository doctorRepository = mock(DoctorRepository.class);
+		when(doctorRepository.findMinimalBySpecialization(eq("Cardiology"))).thenReturn(List.of(
+				new DoctorMinimalRow(2L, "Dr. B", "Cardiology", null),
+				new DoctorMinimalRow(1L, "Dr. A", "Cardiology", null)));
+
+		appointmentRepository = mock(AppointmentRepository.class);
+		AppointmentBookingEngine bookingEngine = mock(AppointmentBookingEngine.class);
+		when(bookingEngine.getSlot()).thenReturn(Duration.ofMinutes(30));
+
+		service = new AvailabilityService();
+		ReflectionTestUtils.setField(service, "doctorRepository", doctorRepository);
+		ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+		ReflectionTestUtils.setField(service, "bookingEngine", bookingEngine);
+		ReflectionTestUtils.setField(service, "dayStart", "08:00");
+		ReflectionTestUtils.setField(service, "dayEnd", "10:00");
+	}
+
+	@Test
+	void ranksEarliestFreeSlotsAcrossDoctors() {
+		when(appointmentRepository.findDoctorsAppointmentsBetweenDates(any(), any(), any())).thenReturn(List.of(
+				// Off-grid booking blocks both grid slots it overlaps
+				new BookedSlotRow(1L, DAY.atTime(8, 10)),
+				new BookedSlotRow(2L, DAY.atTime(9, 0))));
+
+		List<AvailableSlotDTO> slots = service.findAvailableSlots("Cardiology", DAY, DAY, null, 10);
+
+		assertThat(slots).extracting(AvailableSlotDTO::getDoctorId, AvailableSlotDTO::getStart).containsExactly(
+				tuple(2L, DAY.atTime(8, 0)),
+				tuple(2L, DAY.atTime(8, 30)),
+				tuple(1L, DAY.atTime(9, 0)),
+				tuple(1L, DAY.atTime(9, 30)),
+				tuple(2L, DAY.atTime(9, 30)));
+	}
+
+	@Test
+	void longerDurationsNeedConsecutiveFreeSlots() {
+		when(appointmentRepository.findDoctorsAppointmentsBetweenDates(any(), any(), any())).thenReturn(List.of(
+				new BookedSlotRow(1L, DAY.atTime(8, 30)),
+				new BookedSlotRow(2L, DAY.atTime(9, 0))));
+
+		List<AvailableSlotDTO> slots = service.findAvailableSlots("Cardiology", DAY, DAY.plusDays(1), 60, 3);
+
+		assertThat(slots).extracting(AvailableSlotDTO::getDoctorId, AvailableSlotDTO::getStart, AvailableSlotDTO::getEnd)
+				.containsExactly(
+						tuple(2L, DAY.atTime(8, 0), DAY.atTime(9, 0)),
+						tuple(1L, DAY.atTime(9, 0), DAY.atTime(10, 0)),
+						tuple(1L, DAY.plusDays(1).atTime(8, 0), DAY.plusDays(1).atTime(9, 0)));
+	}
+
+	@Test
+	void rejectsOversizedWindow() {
+		assertThatThrownBy(() -> service.findAvailableSlots("Cardiology", DAY, DAY.plusDays(AvailabilityService.MAX_WINDOW_DAYS), null, null))
+				.isInstanceOf(InvalidRequestException.class);
+	}
+}
@@ -0,0 +1,145 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.BatchItemResultDTO;
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.dto.PatientDTO;
+import com.auca.clinic_system.entity.*;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.auca.clinic_system.service.ClinicFixtures.appointment;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Batch endpoints commit their own chunked transactions, so this class runs without the usual
+ * test transaction. Insert rates against PostgreSQL are measured by {@code BatchInsertBenchmark} in
+ * {@code benchmarks/}.
+ */
+@ServiceSliceTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BatchCreateTests {
+
+	private static final int PATIENTS = 5_000;
+	private static final int DOCTORS = 50;
+	private static final int APPOINTMENTS_PER_DOCTOR = 100;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private PatientService patientService;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Test
+	void batchCreateWritesInJdbcBatchesAndReportsEachRow() {
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		Village village = new Village();
+		List<Doctor> doctors = new ArrayList<>();
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> seed(village, doctors));
+
+		List<PatientDTO> patients = new ArrayList<>();
+		for (int i = 0; i < PATIENTS; i++) {
+			patients.add(patient(i, village.getId()));
+		}
+		patients.add(patient(PATIENTS, -1L));
+
+		statistics.clear();
+		List<BatchItemResultDTO> patientResults = patientService.createPatients(patients);
+
+		assertThat(patientResults).hasSize(PATIENTS + 1);
+		assertThat(patientResults.subList(0, PATIENTS)).allMatch(r -> BatchItemResultDTO.CREATED.equals(r.getStatus()) && r.getId() != null);
+		assertThat(patientResults.get(PATIENTS).getStatus()).isEqualTo(BatchItemResultDTO.FAILED);
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(PATIENTS / 10);
+
+		LocalDateTime firstSlot = LocalDate.now().plusDays(30).atTime(8, 0);
+		List<AppointmentDTO> appointments = new ArrayList<>();
+		for (int d = 0; d < DOCTORS; d++) {
+			for (int i = 0; i < APPOINTMENTS_PER_DOCTOR; i++) {
+				appointments.add(appointment(firstSlot.plusMinutes(30L * i), doctors.get(d).getId(),
+						patientResults.get(d * APPOINTMENTS_PER_DOCTOR + i).getId()));
+			}
+		}
+		int total = appointments.size();
+		// Same slot as the first row, and a patient that does not exist
+		appointments.add(appointment(firstSlot, doctors.get(0).getId(), patientResults.get(0).getId()));
+		appointments.add(appointment(firstSlot.minusDays(1), doctors.get(0).getId(), -1L));
+
+		statistics.clear();
+		List<BatchItemResultDTO> appointmentResults = appointmentService.createAppointments(appointments);
+
+		assertThat(appointmentResults.subList(0, total)).allMatch(r -> BatchItemResultDTO.CREATED.equals(r.getStatus()));
+		assertThat(appointmentResults.subList(total, total + 2)).allMatch(r -> BatchItemResultDTO.FAILED.equals(r.getStatus()));
+		assertThat(statistics.getPrepareStatementCount()).isLessThan(total / 10);
+	}
+
+	private void seed(Village village, List<Doctor> doctors) {
+		Province province = new Province();
+		province.setCode("KGL");
+		province.setName("Kigali");
+		entityManager.persist(province);
+
+		District district = new District();
+		district.setCode("GAS");
+		district.setName("Gasabo");
+		district.setProvince(province);
+		entityManager.persist(district);
+
+		Sector sector = new Sector();
+		sector.setCode("GIS");
+		sector.setName("Gisozi");
+		sector.setDistrict(district);
+		entityManager.persist(sector);
+
+		Cell cell = new Cell();
+		cell.setCode("KAC");
+		cell.setName("Kacyiru");
+		cell.setSector(sector);
+		entityManager.persist(cell);
+
+		village.setCode("VA");
+		village.setName("Village A");
+		village.setCell(cell);
+		entityManager.persist(village);
+
+		for (int i = 0; i < DOCTORS; i++) {
+			Doctor doctor = new Doctor();
+			doctor.setName("Dr. " + i);
+			doctor.setSpecialization("General");
+			doctor.setPhone("+25078800" + i);
+			doctor.setEmail("doctor" + i + "@clinic.rw");
+			entityManager.persist(doctor);
+			doctors.add(doctor);
+		}
+	}
+
+	private static PatientDTO patient(int i, Long villageId) {
+		PatientDTO patient = new PatientDTO();
+		patient.setName("Patient " + i);
+		patient.setDob(LocalDate.of(1980, 1, 1).plusDays(i));
+		patient.setGender(i % 2 == 0 ? "Female" : "Male");
+		patient.setPhone("+25078900" + i);
+		patient.setEmail("patient" + i + "@example.com");
+		LocationDTO location = new LocationDTO();
+		location.setVillageId(villageId);
+		patient.setLocation(location);
+		return patient;
+	}
+}
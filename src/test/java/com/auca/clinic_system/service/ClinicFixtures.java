@@ -0,0 +1,90 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.entity.AppointmentStatus;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Doctors and patients committed in their own transaction, for tests that run without the usual test
+ * transaction. Emails are numbered so records never collide within a context.
+ */
+class ClinicFixtures {
+
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * A general practitioner named {@code "Dr. " + name}.
+	 */
+	Doctor doctor(String name) {
+		Doctor doctor = newDoctor("Dr. " + name);
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager.persist(doctor));
+		return doctor;
+	}
+
+	/**
+	 * {@code count} general practitioners named {@code "Dr. " + name + " " + i}, in one transaction.
+	 */
+	List<Doctor> doctors(String name, int count) {
+		List<Doctor> doctors = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			doctors.add(newDoctor("Dr. " + name + " " + i));
+		}
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> doctors.forEach(entityManager::persist));
+		return doctors;
+	}
+
+	/**
+	 * A patient named {@code "Patient " + name}, without a village.
+	 */
+	Patient patient(String name) {
+		int n = sequence.incrementAndGet();
+		Patient patient = new Patient();
+		patient.setName("Patient " + name);
+		patient.setDob(LocalDate.of(1990, 1, 1));
+		patient.setGender("Female");
+		patient.setPhone(String.format("+250789%06d", n));
+		patient.setEmail("patient-" + n + "@example.com");
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager.persist(patient));
+		return patient;
+	}
+
+	static AppointmentDTO appointment(LocalDateTime date, Doctor doctor, Patient patient) {
+		return appointment(date, doctor.getId(), patient.getId());
+	}
+
+	static AppointmentDTO appointment(LocalDateTime date, Long doctorId, Long patientId) {
+		AppointmentDTO appointment = new AppointmentDTO();
+		appointment.setDate(date);
+		appointment.setDoctorId(doctorId);
+		appointment.setPatientId(patientId);
+		appointment.setStatus(AppointmentStatus.SCHEDULED);
+		return appointment;
+	}
+
+	private Doctor newDoctor(String name) {
+		int n = sequence.incrementAndGet();
+		Doctor doctor = new Doctor();
+		doctor.setName(name);
+		doctor.setSpecialization("General");
+		doctor.setPhone(String.format("+250788%06d", n));
+		doctor.setEmail("doctor-" + n + "@clinic.rw");
+		return doctor;
+	}
+}
@@ -0,0 +1,62 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.DoctorMinimalRow;
+import com.auca.clinic_system.event.ChangeType;
+import com.auca.clinic_system.event.DoctorChangedEvent;
+import com.auca.clinic_system.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DoctorSuggestIndexTests {
+
+	private static final String[] SPECIALIZATIONS = {"Cardiology", "Pediatrics", "Dermatology", "Neurology", "Oncology"};
+	private static final int DOCTORS = 30_000;
+
+	private DoctorSuggestIndex index;
+
+	@BeforeEach
+	void setUp() {
+		List<DoctorMinimalRow> rows = new ArrayList<>();
+		for (long id = 1; id <= DOCTORS; id++) {
+			rows.add(new DoctorMinimalRow(id, "Dr. Name" + id, SPECIALIZATIONS[(int) (id % SPECIALIZATIONS.length)], null));
+		}
+		rows.add(new DoctorMinimalRow(DOCTORS + 1L, "Dr. Igizeneza", "Cardiology", null));
+
+		DoctorRepository repository = mock(DoctorRepository.class);
+		when(repository.findAllMinimal()).thenReturn(rows);
+		index = new DoctorSuggestIndex();
+		ReflectionTestUtils.setField(index, "doctorRepository", repository);
+	}
+
+	@Test
+	void matchesPrefixesAndToleratesTypos() {
+		assertThat(index.suggest("igiz", 5)).extracting(DoctorMinimalRow::getId).containsExactly(DOCTORS + 1L);
+		assertThat(index.suggest("Igizenza", 5)).extracting(DoctorMinimalRow::getId).containsExactly(DOCTORS + 1L);
+		assertThat(index.suggest("cardio", 10)).hasSize(10)
+				.allMatch(row -> row.getSpecialization().equals("Cardiology"));
+		assertThat(index.suggest("  ", 10)).isEmpty();
+	}
+
+	@Test
+	void appliesChangesIncrementally() {
+		index.suggest("igiz", 5);
+
+		index.onDoctorChanged(new DoctorChangedEvent(ChangeType.CREATED, 99_999L, "Dr. Uwase", "Pediatrics", null, null));
+		assertThat(index.suggest("uwase", 5)).extracting(DoctorMinimalRow::getId).containsExactly(99_999L);
+
+		index.onDoctorChanged(new DoctorChangedEvent(ChangeType.UPDATED, 99_999L, "Dr. Mugisha", "Pediatrics", null, "Pediatrics"));
+		assertThat(index.suggest("uwase", 5)).isEmpty();
+		assertThat(index.suggest("mugis", 5)).extracting(DoctorMinimalRow::getName).containsExactly("Dr. Mugisha");
+
+		index.onDoctorChanged(new DoctorChangedEvent(ChangeType.DELETED, 99_999L, null, null, null, null));
+		assertThat(index.suggest("mugis", 5)).isEmpty();
+	}
+}
@@ -0,0 +1,101 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.BatchItemResultDTO;
+import com.auca.clinic_system.dto.DoctorWorkloadDTO;
+import com.auca.clinic_system.dto.WorkloadDayDTO;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import com.auca.clinic_system.repository.DoctorDailyWorkloadRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.auca.clinic_system.entity.AppointmentStatus.*;
+import static com.auca.clinic_system.service.ClinicFixtures.appointment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Appointment writes commit their own transactions, so this class runs without the usual test
+ * transaction and checks the aggregate after each kind of write, including a rolled-back batch chunk.
+ */
+@ServiceSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DoctorWorkloadTests {
+
+	private static final LocalDate DAY = LocalDate.now().plusDays(40);
+
+	@Autowired
+	private ClinicFixtures fixtures;
+
+	@Autowired
+	private DoctorService doctorService;
+
+	@Autowired
+	private PatientService patientService;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private DoctorDailyWorkloadRepository workloadRepository;
+
+	@Test
+	void everyAppointmentWriteAdjustsTheDailyAggregate() {
+		Doctor first = fixtures.doctor("Workload 1");
+		Doctor second = fixtures.doctor("Workload 2");
+		Patient patient = fixtures.patient("workload");
+
+		AppointmentDTO morning = appointmentService.createAppointment(appointment(DAY.atTime(9, 0), first, patient));
+		AppointmentDTO later = appointmentService.createAppointment(appointment(DAY.atTime(10, 0), first, patient));
+		AppointmentDTO nextDay = appointmentService.createAppointment(appointment(DAY.plusDays(1).atTime(9, 0), first, patient));
+
+		later.setStatus(COMPLETED);
+		appointmentService.updateAppointment(later.getId(), later);
+		nextDay.setDate(DAY.plusDays(2).atTime(9, 0));
+		appointmentService.updateAppointment(nextDay.getId(), nextDay);
+		appointmentService.deleteAppointment(morning.getId());
+
+		// The unknown patient fails the first chunk, which is then retried row by row
+		List<BatchItemResultDTO> results = appointmentService.createAppointments(List.of(
+				appointment(DAY.atTime(9, 0), second, patient),
+				appointment(DAY.atTime(11, 0), second, patient),
+				appointment(DAY.atTime(13, 0), second.getId(), -1L)));
+		assertThat(results).extracting(BatchItemResultDTO::getStatus)
+				.containsExactly(BatchItemResultDTO.CREATED, BatchItemResultDTO.CREATED, BatchItemResultDTO.FAILED);
+
+		DoctorWorkloadDTO workload = doctorService.getWorkload(first.getId(), DAY, DAY.plusDays(7)).orElseThrow();
+		assertThat(workload.getTotals()).containsOnly(entry(SCHEDULED, 1L), entry(COMPLETED, 1L), entry(CANCELLED, 0L));
+		assertThat(workload.getDays()).extracting(WorkloadDayDTO::getDate, day -> day.getCounts().get(SCHEDULED),
+						day -> day.getCounts().get(COMPLETED))
+				.containsExactly(tuple(DAY, 0L, 1L), tuple(DAY.plusDays(2), 1L, 0L));
+		assertThat(doctorService.getWorkload(second.getId(), DAY, DAY).orElseThrow().getTotals())
+				.containsEntry(SCHEDULED, 2L);
+
+		// Cascaded from the doctor, bypassing AppointmentService
+		doctorService.deleteDoctor(second.getId());
+		assertThat(workloadRepository.findByDoctorBetween(second.getId(), DAY, DAY)).isEmpty();
+
+		// Bulk-deleted with the patient, bypassing Hibernate's events as well
+		patientService.deletePatient(patient.getId());
+		assertThat(doctorService.getWorkload(first.getId(), DAY, DAY.plusDays(7)).orElseThrow().getTotals())
+				.containsOnly(entry(SCHEDULED, 0L), entry(COMPLETED, 0L), entry(CANCELLED, 0L));
+	}
+
+	@Test
+	void rangesAreLimitedAndUnknownDoctorsAreNotFound() {
+		assertThatThrownBy(() -> doctorService.getWorkload(1L, DAY, DAY.plusDays(DoctorService.MAX_WORKLOAD_DAYS)))
+				.isInstanceOf(InvalidRequestException.class);
+		assertThatThrownBy(() -> doctorService.getWorkload(1L, DAY, DAY.minusDays(1)))
+				.isInstanceOf(InvalidRequestException.class);
+		assertThat(doctorService.getWorkload(-1L, null, null)).isEmpty();
+	}
+}
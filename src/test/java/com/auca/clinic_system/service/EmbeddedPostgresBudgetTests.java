@@ -0,0 +1,316 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.repository.AppointmentRepository;
+import com.auca.clinic_system.repository.DoctorRepository;
+import com.auca.clinic_system.repository.PatientRepository;
+import com.auca.clinic_system.repository.VillageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement and latency budgets for the main repositories and endpoints, checked against a real
+ * PostgreSQL started from the embedded binaries. Budgets are enforced with
+ * {@code clinic.query-budget.mode=fail}, so an endpoint over its {@code @QueryBudget} answers 500
+ * and fails here as well.
+ *
+ * <p>The second-level cache is off: the statement budgets have to hold with a cold cache. Latency
+ * budgets are p95 over {@value #MEASURED} sequential requests after a warm-up and leave room for a
+ * slow build machine, doubled on a single CPU; they are there to catch order-of-magnitude regressions,
+ * not to benchmark.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false",
+		"spring.jpa.show-sql=false",
+		"clinic.query-budget.mode=fail"
+})
+@AutoConfigureEmbeddedDatabase(type = DatabaseType.POSTGRES, provider = DatabaseProvider.ZONKY)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EmbeddedPostgresBudgetTests {
+
+	private static final int DOCTORS = 40;
+	private static final int PATIENTS = 400;
+	private static final int WARMUP = 30;
+	private static final int MEASURED = 100;
+	// On a single CPU the client, the server and PostgreSQL take turns, which about doubles each request
+	private static final double LATENCY_SCALE = Runtime.getRuntime().availableProcessors() > 1 ? 1 : 2;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private PatientRepository patientRepository;
+
+	@Autowired
+	private DoctorRepository doctorRepository;
+
+	@Autowired
+	private AppointmentRepository appointmentRepository;
+
+	@Autowired
+	private VillageRepository villageRepository;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+	private final List<Long> doctorIds = new ArrayList<>();
+	private final List<Long> patientIds = new ArrayList<>();
+	private final List<Long> scheduledAppointmentIds = new ArrayList<>();
+	private final LocalDateTime firstSeededSlot = LocalDate.now().plusDays(1).atTime(8, 0);
+	private Statistics statistics;
+
+	@BeforeAll
+	void seed() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Province province = new Province();
+			province.setCode("KGL");
+			province.setName("Kigali");
+			entityManager.persist(province);
+
+			District district = new District();
+			district.setCode("GAS");
+			district.setName("Gasabo");
+			district.setProvince(province);
+			entityManager.persist(district);
+
+			Sector sector = new Sector();
+			sector.setCode("GIS");
+			sector.setName("Gisozi");
+			sector.setDistrict(district);
+			entityManager.persist(sector);
+
+			Cell cell = new Cell();
+			cell.setCode("KAC");
+			cell.setName("Kacyiru");
+			cell.setSector(sector);
+			entityManager.persist(cell);
+
+			List<Village> villages = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				Village village = new Village();
+				village.setCode("V" + i);
+				village.setName("Village " + i);
+				village.setCell(cell);
+				entityManager.persist(village);
+				villages.add(village);
+			}
+
+			List<Doctor> doctors = new ArrayList<>();
+			for (int i = 0; i < DOCTORS; i++) {
+				Person person = new Person();
+				person.setName("Doctor " + i);
+				person.setEmail("doctor" + i + "@clinic.rw");
+				person.setPhone("+25078800" + i);
+				person.setVillage(villages.get(i % villages.size()));
+				entityManager.persist(person);
+
+				Doctor doctor = new Doctor();
+				doctor.setName("Dr. " + i);
+				doctor.setSpecialization(i % 2 == 0 ? "Cardiology" : "Pediatrics");
+				doctor.setPhone(person.getPhone());
+				doctor.setEmail(person.getEmail());
+				doctor.setPerson(person);
+				entityManager.persist(doctor);
+				doctors.add(doctor);
+				doctorIds.add(doctor.getId());
+			}
+
+			for (int i = 0; i < PATIENTS; i++) {
+				Patient patient = new Patient();
+				patient.setName("Patient " + i);
+				patient.setDob(LocalDate.of(1960, 1, 1).plusDays(i * 53L));
+				patient.setGender(i % 2 == 0 ? "Female" : "Male");
+				patient.setPhone("+25078900" + i);
+				patient.setEmail("patient" + i + "@example.com");
+				patient.setVillage(villages.get(i % villages.size()));
+				entityManager.persist(patient);
+				patientIds.add(patient.getId());
+
+				// Three appointments per patient, each in a slot of its own for the doctor
+				for (int j = 0; j < 3; j++) {
+					Appointment appointment = new Appointment();
+					appointment.setAppointmentDate(firstSeededSlot.plusMinutes(30L * (i * 3 + j)));
+					appointment.setStatus(j == 0 ? AppointmentStatus.COMPLETED : AppointmentStatus.SCHEDULED);
+					appointment.setDoctor(doctors.get((i * 3 + j) % DOCTORS));
+					appointment.setPatient(patient);
+					entityManager.persist(appointment);
+					if (j > 0) {
+						scheduledAppointmentIds.add(appointment.getId());
+					}
+				}
+			}
+		});
+	}
+
+	@Test
+	void projectionQueriesRunOneStatement() {
+		LocalDateTime from = firstSeededSlot;
+		LocalDateTime to = firstSeededSlot.plusDays(30);
+
+		assertStatements(1, () -> doctorRepository.findMinimalByNameContaining("dr."));
+		assertStatements(1, () -> doctorRepository.countBySpecialization());
+		assertStatements(1, () -> doctorRepository.findMinimalBySpecialization("Cardiology"));
+		assertStatements(1, () -> villageRepository.findAllLocations());
+		assertStatements(1, () -> villageRepository.findAllNodes());
+		assertStatements(1, () -> patientRepository.findIdsAfter(0L, PageRequest.ofSize(50)));
+		assertStatements(1, () -> appointmentRepository.findDoctorsAppointmentsBetweenDates(doctorIds, from, to));
+	}
+
+	@Test
+	void entityQueriesDoNotGrowWithTheirResults() {
+		assertConstantStatements(size -> patientRepository.findWithAppointmentSummariesByIdIn(patientIds.subList(0, size)));
+		assertConstantStatements(size -> doctorRepository.findWithAppointmentSummariesByIdIn(doctorIds.subList(0, size)));
+		assertConstantStatements(size -> appointmentRepository.findKeysetFirstPage(PageRequest.ofSize(size)));
+	}
+
+	@Test
+	void patientEndpointsStayWithinBudget() throws Exception {
+		assertWithinBudget("/api/patients", i -> get("/api/patients?limit=20"), 10, 100);
+		assertWithinBudget("/api/patients/{id}", i -> get("/api/patients/" + patientIds.get(i % PATIENTS)), 8, 50);
+	}
+
+	@Test
+	void doctorEndpointsStayWithinBudget() throws Exception {
+		assertWithinBudget("/api/doctors", i -> get("/api/doctors?limit=20"), 10, 100);
+		assertWithinBudget("/api/doctors/{id}", i -> get("/api/doctors/" + doctorIds.get(i % DOCTORS)), 8, 50);
+		assertWithinBudget("/api/doctors/search/name", i -> get("/api/doctors/search/name?name=dr.%20" + i % 10), 3, 30);
+		assertWithinBudget("/api/doctors/specializations", i -> get("/api/doctors/specializations"), 3, 20);
+	}
+
+	@Test
+	void appointmentEndpointsStayWithinBudget() throws Exception {
+		assertWithinBudget("/api/appointments", i -> get("/api/appointments?limit=20"), 8, 100);
+		assertWithinBudget("/api/appointments/doctor/{doctorId}",
+				i -> get("/api/appointments/doctor/" + doctorIds.get(i % DOCTORS)), 8, 100);
+		assertWithinBudget("/api/availability", i -> get("/api/availability?specialization=Cardiology&duration=30"), 3, 100);
+
+		// A slot per request, well after the seeded ones, so every booking succeeds
+		LocalDateTime firstFreeSlot = firstSeededSlot.plusYears(1);
+		assertWithinBudget("/api/appointments", i -> {
+			String body = "{\"date\":\"" + firstFreeSlot.plusMinutes(30L * i) + "\",\"doctorId\":"
+					+ doctorIds.get(i % DOCTORS) + ",\"patientId\":" + patientIds.get(i % PATIENTS)
+					+ ",\"status\":\"SCHEDULED\"}";
+			return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/appointments"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(body))
+					.build();
+		}, 10, 100);
+	}
+
+	@Test
+	void partialUpdatesDoNotReadFirst() throws Exception {
+		// Each request patches a record of its own, still at the version it was seeded with. A status change
+		// also upserts the doctor's workload row, the second statement. Latency includes the commit, as for POST.
+		assertWithinBudget("/api/appointments/{id}",
+				i -> patch("/api/appointments/" + scheduledAppointmentIds.get(i), "{\"version\":0,\"status\":\"COMPLETED\"}"),
+				2, 100);
+		assertWithinBudget("/api/patients/{id}",
+				i -> patch("/api/patients/" + patientIds.get(i), "{\"version\":0,\"phone\":\"+25072200" + i + "\"}"),
+				1, 100);
+	}
+
+	@Test
+	void locationListsAreServedFromMemory() throws Exception {
+		assertWithinBudget("/api/locations/villages", i -> get("/api/locations/villages"), 1, 20);
+	}
+
+	private void assertStatements(long expected, Runnable query) {
+		statistics.clear();
+		query.run();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+	}
+
+	private void assertConstantStatements(IntFunction<List<?>> query) {
+		List<Long> counts = new ArrayList<>();
+		for (int size : new int[] {1, 10, 30}) {
+			statistics.clear();
+			query.apply(size);
+			counts.add(statistics.getPrepareStatementCount());
+		}
+		assertThat(counts).containsOnly(counts.get(0));
+	}
+
+	private void assertWithinBudget(String uri, IntFunction<HttpRequest> requests, int maxStatements, double p95Millis)
+			throws Exception {
+		String method = requests.apply(0).method();
+		for (int i = 0; i < WARMUP; i++) {
+			send(requests.apply(i));
+		}
+
+		long[] latencies = new long[MEASURED];
+		for (int i = 0; i < MEASURED; i++) {
+			HttpRequest request = requests.apply(WARMUP + i);
+			long sent = System.nanoTime();
+			send(request);
+			latencies[i] = System.nanoTime() - sent;
+		}
+
+		DistributionSummary statements = registry.get("clinic.request.sql.statements")
+				.tags("method", method, "uri", uri).summary();
+		assertThat(statements.max()).as("statements per %s %s", method, uri).isLessThanOrEqualTo(maxStatements);
+
+		Arrays.sort(latencies);
+		double p95 = latencies[(int) Math.ceil(MEASURED * 0.95) - 1] / 1e6;
+		assertThat(p95).as("p95 ms of %s %s", method, uri).isLessThanOrEqualTo(p95Millis * LATENCY_SCALE);
+	}
+
+	private void send(HttpRequest request) throws Exception {
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		assertThat(response.statusCode()).as("%s %s: %s", request.method(), request.uri(), response.body())
+				.isBetween(200, 299);
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+	}
+
+	private HttpRequest patch(String path, String body) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/json")
+				.method("PATCH", HttpRequest.BodyPublishers.ofString(body))
+				.build();
+	}
+}
@@ -0,0 +1,193 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.SpecializationCountDTO;
+import com.auca.clinic_system.entity.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ServiceSliceTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanQueryCountTests {
+
+	private static final int[] PAGE_SIZES = {5, 10, 25};
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private PatientService patientService;
+
+	@Autowired
+	private DoctorService doctorService;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void seed() {
+		statistics = entityManager.getEntityManager().getEntityManagerFactory()
+				.unwrap(SessionFactory.class).getStatistics();
+
+		Province province = new Province();
+		province.setCode("KGL");
+		province.setName("Kigali");
+		entityManager.persist(province);
+
+		District district = new District();
+		district.setCode("GAS");
+		district.setName("Gasabo");
+		district.setProvince(province);
+		entityManager.persist(district);
+
+		Sector sector = new Sector();
+		sector.setCode("GIS");
+		sector.setName("Gisozi");
+		sector.setDistrict(district);
+		entityManager.persist(sector);
+
+		Cell cell = new Cell();
+		cell.setCode("KAC");
+		cell.setName("Kacyiru");
+		cell.setSector(sector);
+		entityManager.persist(cell);
+
+		Village village = new Village();
+		village.setCode("VA");
+		village.setName("Village A");
+		village.setCell(cell);
+		entityManager.persist(village);
+
+		List<Doctor> doctors = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			Person person = new Person();
+			person.setName("Doctor " + i);
+			person.setEmail("doctor" + i + "@clinic.rw");
+			person.setPhone("+25078800" + i);
+			person.setVillage(village);
+			entityManager.persist(person);
+
+			Doctor doctor = new Doctor();
+			doctor.setName("Dr. " + i);
+			doctor.setSpecialization(i % 2 == 0 ? "Cardiology" : "Pediatrics");
+			doctor.setPhone(person.getPhone());
+			doctor.setEmail(person.getEmail());
+			doctor.setPerson(person);
+			entityManager.persist(doctor);
+			doctors.add(doctor);
+		}
+
+		for (int i = 0; i < 60; i++) {
+			Patient patient = new Patient();
+			patient.setName("Patient " + i);
+			patient.setDob(LocalDate.of(1980, 1, 1).plusDays(i * 100L));
+			patient.setGender(i % 2 == 0 ? "Female" : "Male");
+			patient.setPhone("+25078900" + i);
+			patient.setEmail("patient" + i + "@example.com");
+			patient.setVillage(village);
+			entityManager.persist(patient);
+
+			for (int j = 0; j < 2; j++) {
+				Appointment appointment = new Appointment();
+				appointment.setAppointmentDate(LocalDateTime.of(2025, 11, 10, 8, 0).plusHours(i * 2L + j));
+				appointment.setStatus(AppointmentStatus.SCHEDULED);
+				appointment.setDoctor(doctors.get((i + j) % doctors.size()));
+				appointment.setPatient(patient);
+				entityManager.persist(appointment);
+			}
+		}
+
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void patientListStatementCountDoesNotGrowWithPageSize() {
+		assertConstantStatementCount(size ->
+				patientService.getAllPatients(PageRequest.of(0, size, Sort.by("id"))).getContent());
+	}
+
+	@Test
+	void doctorListStatementCountDoesNotGrowWithPageSize() {
+		assertConstantStatementCount(size ->
+				doctorService.getAllDoctors(PageRequest.of(0, size, Sort.by("id"))).getContent());
+	}
+
+	@Test
+	void appointmentListStatementCountDoesNotGrowWithPageSize() {
+		assertConstantStatementCount(size ->
+				appointmentService.getAllAppointments(PageRequest.of(0, size, Sort.by("appointmentDate"))).getContent());
+	}
+
+	@Test
+	void doctorSearchesRunOneStatementAndLoadNoEntities() {
+		// Warm up the location index
+		doctorService.searchDoctorsByName("Dr. 0");
+
+		entityManager.clear();
+		statistics.clear();
+		assertThat(doctorService.searchDoctorsByName("dr.")).hasSize(30);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void specializationLookupsOnlyQueryOnFirstUse() {
+		// Warm up the location index
+		doctorService.searchDoctorsByName("Dr. 0");
+
+		List<Runnable> lookups = List.of(
+				() -> assertThat(doctorService.searchDoctorsBySpecialization("cardio")).hasSize(15),
+				() -> assertThat(doctorService.getDoctorsBySpecialization("Pediatrics")).hasSize(15),
+				() -> assertThat(doctorService.getSpecializations())
+						.extracting(SpecializationCountDTO::getSpecialization, SpecializationCountDTO::getDoctorCount)
+						.containsExactly(tuple("Cardiology", 15L), tuple("Pediatrics", 15L)));
+
+		for (Runnable lookup : lookups) {
+			entityManager.clear();
+			statistics.clear();
+			lookup.run();
+			assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+			assertThat(statistics.getEntityLoadCount()).isZero();
+
+			statistics.clear();
+			lookup.run();
+			assertThat(statistics.getPrepareStatementCount()).isZero();
+		}
+	}
+
+	private void assertConstantStatementCount(IntFunction<List<?>> listPage) {
+		// First call also loads the location index; keep it out of the measurements
+		listPage.apply(PAGE_SIZES[0]);
+
+		List<Long> counts = new ArrayList<>();
+		for (int size : PAGE_SIZES) {
+			// Measure the fetch plan itself, not what earlier pages left in the second-level cache
+			entityManager.getEntityManager().getEntityManagerFactory().getCache().evictAll();
+			entityManager.clear();
+			statistics.clear();
+			assertThat(listPage.apply(size)).hasSize(size);
+			counts.add(statistics.getPrepareStatementCount());
+		}
+
+		assertThat(counts)
+				.as("statements per page for page sizes %s", Arrays.toString(PAGE_SIZES))
+				.containsOnly(counts.get(0));
+	}
+}
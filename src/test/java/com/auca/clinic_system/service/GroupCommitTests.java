@@ -0,0 +1,151 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.entity.Appointment;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.exception.BookingConflictException;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.auca.clinic_system.service.ClinicFixtures.appointment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Concurrent creates through the group-commit path: they share commits, and each caller still gets
+ * its own result. The throughput against one transaction per create is measured by
+ * {@code GroupCommitBenchmark} in {@code benchmarks/}.
+ */
+@ServiceSliceTest(properties = {
+		"clinic.booking.group-commit.enabled=true",
+		"clinic.booking.group-commit.max-wait=10ms"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GroupCommitTests {
+
+	private static final int CLIENTS = 64;
+	private static final int REQUESTS_PER_CLIENT = 20;
+
+	@Autowired
+	private ClinicFixtures fixtures;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private AppointmentBookingEngine bookingEngine;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void createsAreCommittedInGroups() throws Exception {
+		DistributionSummary groups = meterRegistry.get("clinic.appointments.group.size").summary();
+		long groupsBefore = groups.count();
+		List<Doctor> doctors = fixtures.doctors("grouped", CLIENTS);
+		Patient patient = fixtures.patient("grouped");
+		LocalDateTime firstSlot = LocalDate.now().plusDays(60).atTime(8, 0);
+
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Doctor doctor : doctors) {
+				futures.add(clients.submit(() -> {
+					for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+						assertThat(appointmentService.createAppointment(appointment(firstSlot.plusMinutes(30L * i),
+								doctor.getId(), patient.getId())).getId()).isNotNull();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+
+		long flushed = groups.count() - groupsBefore;
+		assertThat(flushed).isPositive().isLessThan(CLIENTS * REQUESTS_PER_CLIENT);
+	}
+
+	@Test
+	void everyCallerGetsItsOwnResult() throws Exception {
+		Doctor doctor = fixtures.doctor("own");
+		Patient patient = fixtures.patient("own");
+		LocalDateTime slot = LocalDate.now().plusDays(90).atTime(9, 0);
+
+		// Two callers race for the same slot while others book free ones
+		List<Future<Long>> results = new ArrayList<>();
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 8; i++) {
+				LocalDateTime date = i < 2 ? slot : slot.plusHours(i);
+				results.add(callers.submit(() -> appointmentService.createAppointment(
+						appointment(date, doctor, patient)).getId()));
+			}
+		}
+
+		int conflicts = 0;
+		List<Long> ids = new ArrayList<>();
+		for (Future<Long> result : results) {
+			try {
+				ids.add(result.get());
+			} catch (ExecutionException ex) {
+				assertThat(ex.getCause()).isInstanceOf(BookingConflictException.class);
+				conflicts++;
+			}
+		}
+		assertThat(conflicts).isEqualTo(1);
+		assertThat(ids).hasSize(7).doesNotContainNull().doesNotHaveDuplicates();
+	}
+
+	@Test
+	void anInvalidRequestFailsOnlyItself() throws Exception {
+		Doctor doctor = fixtures.doctor("invalid");
+		Patient patient = fixtures.patient("invalid");
+		LocalDateTime slot = LocalDate.now().plusDays(95).atTime(9, 0);
+
+		// Rejected before it is queued, while the others are grouped
+		List<Future<Long>> results = new ArrayList<>();
+		try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 8; i++) {
+				LocalDateTime date = i == 3 ? null : slot.plusHours(i);
+				results.add(callers.submit(() -> appointmentService.createAppointment(
+						appointment(date, doctor, patient)).getId()));
+			}
+		}
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < results.size(); i++) {
+			if (i == 3) {
+				Future<Long> invalid = results.get(i);
+				assertThatThrownBy(invalid::get).hasCauseInstanceOf(InvalidRequestException.class);
+			} else {
+				ids.add(results.get(i).get());
+			}
+		}
+		assertThat(ids).hasSize(7).doesNotHaveDuplicates();
+
+		// A group that holds one anyway books the rest
+		List<Appointment> group = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			group.add(appointmentService.convertToEntity(appointment(slot.plusDays(1).plusHours(i), doctor, patient)));
+		}
+		group.get(1).setAppointmentDate(null);
+		Map<Integer, RuntimeException> failures = bookingEngine.bookGroup(group);
+		assertThat(failures).containsOnlyKeys(1);
+		assertThat(failures.get(1)).isInstanceOf(InvalidRequestException.class);
+		assertThat(List.of(group.get(0), group.get(2), group.get(3))).extracting(Appointment::getId).doesNotContainNull();
+	}
+}
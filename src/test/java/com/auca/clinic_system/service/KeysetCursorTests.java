@@ -0,0 +1,102 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.CursorPageDTO;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static com.auca.clinic_system.service.ClinicFixtures.appointment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Bookings commit their own transactions, so this class runs without the usual test transaction.
+ */
+@ServiceSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KeysetCursorTests {
+
+	private static final LocalDateTime SLOT = LocalDate.now().plusDays(30).atTime(10, 0);
+
+	@Autowired
+	private ClinicFixtures fixtures;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private DoctorService doctorService;
+
+	@Test
+	void tokensRoundTrip() {
+		KeysetCursor byId = KeysetCursor.decode(KeysetCursor.of(42L).encode());
+		assertThat(byId.getDate()).isNull();
+		assertThat(byId.getId()).isEqualTo(42L);
+
+		KeysetCursor byDate = KeysetCursor.decode(KeysetCursor.of(SLOT, 7L).encode());
+		assertThat(byDate.getDate()).isEqualTo(SLOT);
+		assertThat(byDate.getId()).isEqualTo(7L);
+	}
+
+	@Test
+	void garbageTokensAreRejected() {
+		for (String token : List.of("not a cursor!", encoded("abc"), encoded("yesterday|5"), encoded(SLOT + "|x"))) {
+			assertThatThrownBy(() -> KeysetCursor.decode(token))
+					.isInstanceOf(InvalidRequestException.class)
+					.hasMessage("Invalid cursor: " + token);
+			assertThatThrownBy(() -> appointmentService.getAppointmentsAfter(token, 5))
+					.isInstanceOf(InvalidRequestException.class);
+			assertThatThrownBy(() -> doctorService.getDoctorsAfter(token, 5))
+					.isInstanceOf(InvalidRequestException.class);
+		}
+	}
+
+	@Test
+	void idCursorsAreRejectedByDateOrderedListings() {
+		// A cursor handed out by the doctor listing, replayed against the appointment listing
+		String foreign = KeysetCursor.of(3L).encode();
+
+		assertThatThrownBy(() -> KeysetCursor.decode(foreign).requireDate())
+				.isInstanceOf(InvalidRequestException.class)
+				.hasMessage("Cursor does not belong to a date-ordered listing");
+		assertThatThrownBy(() -> appointmentService.getAppointmentsAfter(foreign, 5))
+				.isInstanceOf(InvalidRequestException.class);
+	}
+
+	@Test
+	void pagesSplitBetweenAppointmentsAtTheSameTime() {
+		Patient patient = fixtures.patient("keyset");
+		List<Long> tied = fixtures.doctors("keyset", 3).stream()
+				.map(doctor -> book(SLOT, doctor, patient))
+				.toList();
+		Long earlier = book(SLOT.minusDays(1), fixtures.doctor("keyset earlier"), patient);
+
+		CursorPageDTO<AppointmentDTO> first = appointmentService.getAppointmentsAfter(null, 2);
+		assertThat(first.getItems()).extracting(AppointmentDTO::getId).containsExactly(tied.get(2), tied.get(1));
+		assertThat(KeysetCursor.decode(first.getNextCursor()).getDate()).isEqualTo(SLOT);
+
+		// The boundary falls inside the tie: the rest of it comes next, none of it twice
+		CursorPageDTO<AppointmentDTO> second = appointmentService.getAppointmentsAfter(first.getNextCursor(), 2);
+		assertThat(second.getItems()).extracting(AppointmentDTO::getId).containsExactly(tied.get(0), earlier);
+		assertThat(second.getNextCursor()).isNull();
+	}
+
+	private Long book(LocalDateTime date, Doctor doctor, Patient patient) {
+		return appointmentService.createAppointment(appointment(date, doctor, patient)).getId();
+	}
+
+	private static String encoded(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,70 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.LocationNodeDTO;
+import com.auca.clinic_system.repository.VillageRepository;
+import com.auca.clinic_system.service.LocationJsonCache.Level;
+import com.auca.clinic_system.service.LocationJsonCache.Snapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LocationJsonCacheTests {
+
+	private VillageRepository villageRepository;
+	private LocationJsonCache cache;
+	private List<LocationNodeDTO> villages;
+
+	@BeforeEach
+	void setUp() {
+		villages = new ArrayList<>();
+		for (long id = 1; id <= 15_000; id++) {
+			villages.add(new LocationNodeDTO(id, "V" + id, "Village " + id, 1 + id / 10));
+		}
+		villageRepository = mock(VillageRepository.class);
+		when(villageRepository.findAllNodes()).thenAnswer(invocation -> List.copyOf(villages));
+
+		cache = new LocationJsonCache();
+		ReflectionTestUtils.setField(cache, "villageRepository", villageRepository);
+		ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+	}
+
+	@Test
+	void servesTheSameBytesUntilInvalidated() throws Exception {
+		Snapshot first = cache.get(Level.VILLAGES);
+		assertThat(cache.get(Level.VILLAGES)).isSameAs(first);
+		verify(villageRepository, times(1)).findAllNodes();
+
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first.getGzip()))) {
+			assertThat(in.readAllBytes()).isEqualTo(first.getJson());
+		}
+		assertThat(first.getGzip().length).isLessThan(first.getJson().length / 4);
+		assertThat(first.getEtag()).startsWith("\"").endsWith("\"").isNotEqualTo(first.getGzipEtag());
+
+		// Same data after a reload gives the same tag, so clients keep their 304s
+		cache.invalidate(Level.VILLAGES);
+		assertThat(cache.get(Level.VILLAGES).getEtag()).isEqualTo(first.getEtag());
+
+		villages.add(new LocationNodeDTO(15_001L, "V15001", "Village 15001", 1L));
+		cache.invalidate(Level.VILLAGES);
+		assertThat(cache.get(Level.VILLAGES).getEtag()).isNotEqualTo(first.getEtag());
+	}
+
+	@Test
+	void readsGzipFromAcceptEncoding() {
+		assertThat(LocationJsonCache.acceptsGzip("gzip, deflate, br")).isTrue();
+		assertThat(LocationJsonCache.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+		assertThat(LocationJsonCache.acceptsGzip("*")).isTrue();
+		assertThat(LocationJsonCache.acceptsGzip("gzip;q=0, identity")).isFalse();
+		assertThat(LocationJsonCache.acceptsGzip("identity")).isFalse();
+		assertThat(LocationJsonCache.acceptsGzip(null)).isFalse();
+	}
+}
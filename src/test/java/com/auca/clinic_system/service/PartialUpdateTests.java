@@ -0,0 +1,134 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.AppointmentPatchDTO;
+import com.auca.clinic_system.dto.DoctorDTO;
+import com.auca.clinic_system.dto.DoctorMinimalDTO;
+import com.auca.clinic_system.dto.DoctorPatchDTO;
+import com.auca.clinic_system.dto.DoctorStatusCountsDTO;
+import com.auca.clinic_system.dto.PatchResultDTO;
+import com.auca.clinic_system.dto.PatientDTO;
+import com.auca.clinic_system.dto.PatientPatchDTO;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.exception.BookingConflictException;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static com.auca.clinic_system.entity.AppointmentStatus.*;
+import static com.auca.clinic_system.service.ClinicFixtures.appointment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * PATCH writes commit their own transactions, so this class runs without the usual test transaction and
+ * reads every result back through the services.
+ */
+@ServiceSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PartialUpdateTests {
+
+	private static final LocalDateTime SLOT = LocalDate.now().plusDays(50).atTime(9, 0);
+
+	@Autowired
+	private ClinicFixtures fixtures;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private PatientService patientService;
+
+	@Autowired
+	private DoctorService doctorService;
+
+	@Test
+	void appointmentStatusChangesKeepCountersAndSlotsInStep() {
+		Doctor doctor = fixtures.doctor("status");
+		Patient patient = fixtures.patient("status");
+		AppointmentDTO booked = appointmentService.createAppointment(appointment(SLOT, doctor, patient));
+		assertThat(booked.getVersion()).isZero();
+
+		PatchResultDTO notes = appointmentService.patchAppointment(booked.getId(), new AppointmentPatchDTO(0L, null, null, "Fasting"))
+				.orElseThrow();
+		PatchResultDTO cancelled = appointmentService.patchAppointment(booked.getId(), new AppointmentPatchDTO(1L, null, CANCELLED, null))
+				.orElseThrow();
+		assertThat(notes.getVersion()).isEqualTo(1L);
+		assertThat(cancelled.getVersion()).isEqualTo(2L);
+
+		AppointmentDTO stored = appointmentService.getAppointmentById(booked.getId()).orElseThrow();
+		assertThat(stored.getStatus()).isEqualTo(CANCELLED);
+		assertThat(stored.getNotes()).isEqualTo("Fasting");
+		assertThat(stored.getVersion()).isEqualTo(2L);
+		assertThat(appointmentService.getStats(SLOT.toLocalDate(), doctor.getId()).getDoctors())
+				.singleElement().extracting(DoctorStatusCountsDTO::getCounts)
+				.satisfies(counts -> assertThat(counts).containsEntry(SCHEDULED, 0L).containsEntry(CANCELLED, 1L));
+		assertThat(doctorService.getWorkload(doctor.getId(), SLOT.toLocalDate(), SLOT.toLocalDate()).orElseThrow().getTotals())
+				.containsOnly(entry(SCHEDULED, 0L), entry(COMPLETED, 0L), entry(CANCELLED, 1L));
+
+		// Cancelling freed the slot, so it can be booked again; reactivating the first one now conflicts
+		appointmentService.createAppointment(appointment(SLOT, doctor, patient));
+		assertThatThrownBy(() -> appointmentService.patchAppointment(booked.getId(), new AppointmentPatchDTO(2L, null, SCHEDULED, null)))
+				.isInstanceOf(BookingConflictException.class);
+		assertThat(appointmentService.patchAppointment(booked.getId(), new AppointmentPatchDTO(2L, SLOT.plusHours(1), SCHEDULED, null)))
+				.get().extracting(PatchResultDTO::getVersion).isEqualTo(3L);
+	}
+
+	@Test
+	void staleVersionsAndUnknownIdsAreRejected() {
+		Doctor doctor = fixtures.doctor("stale");
+		Patient patient = fixtures.patient("stale");
+		AppointmentDTO booked = appointmentService.createAppointment(appointment(SLOT.plusDays(1), doctor, patient));
+		appointmentService.patchAppointment(booked.getId(), new AppointmentPatchDTO(0L, null, COMPLETED, null));
+
+		assertThatThrownBy(() -> appointmentService.patchAppointment(booked.getId(), new AppointmentPatchDTO(0L, null, CANCELLED, null)))
+				.isInstanceOf(ObjectOptimisticLockingFailureException.class);
+		assertThatThrownBy(() -> appointmentService.updateAppointment(booked.getId(), booked))
+				.isInstanceOf(ObjectOptimisticLockingFailureException.class);
+		// A PUT replaces the whole appointment, so it needs a date as a create does
+		assertThatThrownBy(() -> appointmentService.updateAppointment(booked.getId(), appointment(null, doctor, patient)))
+				.isInstanceOf(InvalidRequestException.class);
+		assertThat(appointmentService.getAppointmentById(booked.getId()).orElseThrow().getStatus()).isEqualTo(COMPLETED);
+		assertThat(appointmentService.patchAppointment(-1L, new AppointmentPatchDTO(0L, null, CANCELLED, null))).isEmpty();
+
+		assertThatThrownBy(() -> patientService.patchPatient(patient.getId(), new PatientPatchDTO(null, null, null, null, "+250", null)))
+				.isInstanceOf(InvalidRequestException.class);
+		assertThatThrownBy(() -> patientService.patchPatient(patient.getId(), new PatientPatchDTO(0L, null, null, null, null, null)))
+				.isInstanceOf(InvalidRequestException.class);
+		assertThatThrownBy(() -> patientService.patchPatient(patient.getId(), new PatientPatchDTO(5L, null, null, null, "+250", null)))
+				.isInstanceOf(ObjectOptimisticLockingFailureException.class);
+		assertThat(patientService.patchPatient(-1L, new PatientPatchDTO(0L, null, null, null, "+250", null))).isEmpty();
+	}
+
+	@Test
+	void patientAndDoctorPatchesChangeOnlyTheSuppliedFields() {
+		Doctor doctor = fixtures.doctor("fields");
+		Patient patient = fixtures.patient("fields");
+
+		assertThat(patientService.patchPatient(patient.getId(), new PatientPatchDTO(0L, null, null, null, "+250722000001", null)))
+				.get().extracting(PatchResultDTO::getVersion).isEqualTo(1L);
+		PatientDTO storedPatient = patientService.getPatientById(patient.getId()).orElseThrow();
+		assertThat(storedPatient.getPhone()).isEqualTo("+250722000001");
+		assertThat(storedPatient.getName()).isEqualTo(patient.getName());
+		assertThat(storedPatient.getEmail()).isEqualTo(patient.getEmail());
+
+		// Read first so the doctor is in the second-level cache, which the update has to evict
+		doctorService.getDoctorById(doctor.getId());
+		assertThat(doctorService.patchDoctor(doctor.getId(), new DoctorPatchDTO(0L, null, "Oncology", null, null)))
+				.get().extracting(PatchResultDTO::getVersion).isEqualTo(1L);
+		DoctorDTO storedDoctor = doctorService.getDoctorById(doctor.getId()).orElseThrow();
+		assertThat(storedDoctor.getSpecialization()).isEqualTo("Oncology");
+		assertThat(storedDoctor.getName()).isEqualTo(doctor.getName());
+		assertThat(storedDoctor.getVersion()).isEqualTo(1L);
+		assertThat(doctorService.getDoctorsBySpecialization("Oncology"))
+				.extracting(DoctorMinimalDTO::getId).contains(doctor.getId());
+	}
+}
@@ -0,0 +1,133 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AgeBucketDTO;
+import com.auca.clinic_system.dto.CursorPageDTO;
+import com.auca.clinic_system.dto.PatientDTO;
+import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.exception.InvalidRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ServiceSliceTest
+class PatientAgeQueryTests {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private PatientService patientService;
+
+	private Sector sector;
+
+	@BeforeEach
+	void seed() {
+		Province province = new Province();
+		province.setCode("KGL");
+		province.setName("Kigali");
+		entityManager.persist(province);
+
+		District district = new District();
+		district.setCode("GAS");
+		district.setName("Gasabo");
+		district.setProvince(province);
+		entityManager.persist(district);
+
+		sector = new Sector();
+		sector.setCode("GIS");
+		sector.setName("Gisozi");
+		sector.setDistrict(district);
+		entityManager.persist(sector);
+
+		Cell cell = new Cell();
+		cell.setCode("KAC");
+		cell.setName("Kacyiru");
+		cell.setSector(sector);
+		entityManager.persist(cell);
+
+		Village village = new Village();
+		village.setCode("VA");
+		village.setName("Village A");
+		village.setCell(cell);
+		entityManager.persist(village);
+
+		// Birthdays on either side of today, so each bound is hit exactly
+		LocalDate today = LocalDate.now();
+		persistPatient(1, today.minusYears(3).minusDays(10), "Female", village);
+		persistPatient(2, today.minusYears(18).plusDays(1), "Male", village);
+		persistPatient(3, today.minusYears(18), "Female", village);
+		persistPatient(4, today.minusYears(65), "Female", village);
+		persistPatient(5, today.minusYears(66).plusDays(1), "Male", village);
+		persistPatient(6, today.minusYears(66), "Male", null);
+
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void ageBoundsAreInclusiveInEveryListingMode() {
+		assertThat(patientService.getPatientsByAge(18, 65))
+				.extracting(PatientDTO::getName, PatientDTO::getAge)
+				.containsExactlyInAnyOrder(tuple("Patient 3", 18), tuple("Patient 4", 65), tuple("Patient 5", 65));
+		assertThat(patientService.getPatientsByAge(null, 17)).extracting(PatientDTO::getAge).containsExactlyInAnyOrder(3, 17);
+		assertThat(patientService.getPatientsByAge(66, null)).extracting(PatientDTO::getAge).containsExactly(66);
+
+		assertThat(patientService.getPatientsByAge(18, 65, PageRequest.of(0, 2, Sort.by("id"))).getContent())
+				.extracting(PatientDTO::getName).containsExactly("Patient 3", "Patient 4");
+
+		CursorPageDTO<PatientDTO> first = patientService.getPatientsAfter(null, 2, 18, 65);
+		assertThat(first.getItems()).extracting(PatientDTO::getName).containsExactly("Patient 3", "Patient 4");
+		CursorPageDTO<PatientDTO> second = patientService.getPatientsAfter(first.getNextCursor(), 2, 18, 65);
+		assertThat(second.getItems()).extracting(PatientDTO::getName).containsExactly("Patient 5");
+		assertThat(second.getNextCursor()).isNull();
+	}
+
+	@Test
+	void invalidAgeBoundsAreRejected() {
+		assertThatThrownBy(() -> patientService.getPatientsByAge(-1, 10)).isInstanceOf(InvalidRequestException.class);
+		assertThatThrownBy(() -> patientService.getPatientsByAge(40, 30)).isInstanceOf(InvalidRequestException.class);
+		assertThatThrownBy(() -> patientService.getPatientsByAge(null, PatientService.MAX_AGE + 1))
+				.isInstanceOf(InvalidRequestException.class);
+		assertThatThrownBy(() -> patientService.getAgeHistogram(0, null, null, null, null))
+				.isInstanceOf(InvalidRequestException.class);
+	}
+
+	@Test
+	void histogramCountsEveryBucketUpToTheOldestPatient() {
+		assertThat(patientService.getAgeHistogram(10, null, null, null, null))
+				.extracting(AgeBucketDTO::getFromAge, AgeBucketDTO::getToAge, AgeBucketDTO::getPatients)
+				.containsExactly(
+						tuple(0, 9, 1L),
+						tuple(10, 19, 2L),
+						tuple(20, 29, 0L),
+						tuple(30, 39, 0L),
+						tuple(40, 49, 0L),
+						tuple(50, 59, 0L),
+						tuple(60, 69, 3L));
+
+		// The patient without a village drops out of location filters
+		assertThat(patientService.getAgeHistogram(50, null, null, sector.getId(), "Male"))
+				.extracting(AgeBucketDTO::getPatients).containsExactly(1L, 1L);
+		assertThat(patientService.getAgeHistogram(10, null, null, -1L, null)).isEmpty();
+	}
+
+	private void persistPatient(int i, LocalDate dob, String gender, Village village) {
+		Patient patient = new Patient();
+		patient.setName("Patient " + i);
+		patient.setDob(dob);
+		patient.setGender(gender);
+		patient.setPhone("+25078910" + i);
+		patient.setEmail("age" + i + "@example.com");
+		patient.setVillage(village);
+		entityManager.persist(patient);
+	}
+}
@@ -0,0 +1,113 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.LocationDTO;
+import com.auca.clinic_system.dto.LocationNodeDTO;
+import com.auca.clinic_system.dto.LocationPatientCountDTO;
+import com.auca.clinic_system.dto.VillageGenderCountRow;
+import com.auca.clinic_system.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.auca.clinic_system.service.LocationJsonCache.Level.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.*;
+
+class PatientLocationStatsTests {
+
+	private PatientRepository repository;
+	private PatientLocationStats stats;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(PatientRepository.class);
+		when(repository.countByVillageAndGender()).thenReturn(List.of(
+				new VillageGenderCountRow(100L, "Female", 3L),
+				new VillageGenderCountRow(100L, "Male", 2L),
+				new VillageGenderCountRow(200L, null, 1L),
+				new VillageGenderCountRow(300L, "Female", 4L)));
+
+		// Villages 100 and 200 are in sectors 10 and 11 of district 1; 300 is in sector 12 of district 2
+		LocationResolver resolver = mock(LocationResolver.class);
+		when(resolver.resolve(100L)).thenReturn(location(1L, 10L, 100L));
+		when(resolver.resolve(200L)).thenReturn(location(1L, 11L, 200L));
+		when(resolver.resolve(300L)).thenReturn(location(2L, 12L, 300L));
+		when(resolver.nodes(DISTRICTS)).thenReturn(List.of(
+				new LocationNodeDTO(2L, null, "Kicukiro", 1L),
+				new LocationNodeDTO(1L, null, "Gasabo", 1L),
+				new LocationNodeDTO(3L, null, "Nyarugenge", 1L)));
+		when(resolver.nodes(SECTORS)).thenReturn(List.of(
+				new LocationNodeDTO(10L, null, "Gisozi", 1L),
+				new LocationNodeDTO(11L, null, "Kacyiru", 1L),
+				new LocationNodeDTO(12L, null, "Niboye", 2L)));
+
+		stats = new PatientLocationStats(mock(PlatformTransactionManager.class),
+				mock(EntityManager.class, RETURNS_DEEP_STUBS));
+		ReflectionTestUtils.setField(stats, "patientRepository", repository);
+		ReflectionTestUtils.setField(stats, "locationResolver", resolver);
+	}
+
+	@Test
+	void rollsVillagesUpToEveryNodeOfTheLevel() {
+		assertThat(stats.getCounts(DISTRICTS))
+				.extracting(LocationPatientCountDTO::getId, LocationPatientCountDTO::getPatients, LocationPatientCountDTO::getGenders)
+				.containsExactly(
+						tuple(1L, 6L, Map.of("Female", 3L, "Male", 2L, PatientLocationStats.UNKNOWN_GENDER, 1L)),
+						tuple(2L, 4L, Map.of("Female", 4L)),
+						tuple(3L, 0L, Map.of()));
+		assertThat(stats.getCounts(SECTORS)).extracting(LocationPatientCountDTO::getPatients).containsExactly(5L, 1L, 4L);
+		verify(repository, times(1)).countByVillageAndGender();
+	}
+
+	@Test
+	void writesAdjustTheLoadedCounts() {
+		stats.getCounts(SECTORS);
+
+		stats.changedAfterCommit(100L, "Male", 1);
+		stats.changedAfterCommit(300L, "Female", -1);
+		// Patients without a village are not counted
+		stats.changedAfterCommit(null, "Female", 1);
+
+		assertThat(stats.getCounts(SECTORS)).extracting(LocationPatientCountDTO::getPatients).containsExactly(6L, 1L, 3L);
+		verify(repository, times(1)).countByVillageAndGender();
+	}
+
+	@Test
+	void changesReportedWhileLoadingAreAppliedToTheLoadedCounts() {
+		when(repository.countByVillageAndGender()).thenAnswer(invocation -> {
+			// Committed after the load's snapshot, so not in the rows below
+			stats.changedAfterCommit(200L, "Male", 1);
+			return List.of(new VillageGenderCountRow(100L, "Female", 3L));
+		});
+
+		assertThat(stats.getCounts(SECTORS)).extracting(LocationPatientCountDTO::getPatients).containsExactly(3L, 1L, 0L);
+		assertThat(stats.getCounts(SECTORS)).extracting(LocationPatientCountDTO::getPatients).containsExactly(3L, 1L, 0L);
+		verify(repository, times(1)).countByVillageAndGender();
+	}
+
+	@Test
+	void loadThatCannotTakeTheGateIsNotKept() {
+		// The gate cannot be taken exclusively while this thread holds it for a write
+		stats.writeStarted();
+		try {
+			stats.getCounts(SECTORS);
+		} finally {
+			stats.writeFinished();
+		}
+
+		stats.getCounts(SECTORS);
+		stats.getCounts(SECTORS);
+		verify(repository, times(2)).countByVillageAndGender();
+	}
+
+	private static LocationDTO location(Long districtId, Long sectorId, Long villageId) {
+		return new LocationDTO(1L, "Kigali", districtId, "District " + districtId, sectorId, "Sector " + sectorId,
+				villageId, "Cell " + villageId, villageId, "Village " + villageId);
+	}
+}
@@ -0,0 +1,145 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.entity.*;
+import com.auca.clinic_system.repository.DistrictRepository;
+import com.auca.clinic_system.repository.DoctorRepository;
+import com.auca.clinic_system.repository.VillageRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The second-level cache only sees committed data, so this class runs without the test transaction
+ * and every read below is its own short transaction.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTests {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private DistrictRepository districtRepository;
+
+	@Autowired
+	private VillageRepository villageRepository;
+
+	@Autowired
+	private DoctorRepository doctorRepository;
+
+	private Statistics statistics;
+	private Province province;
+	private Village village;
+	private Doctor doctor;
+
+	@BeforeEach
+	void seed() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		inTransaction(() -> {
+			province = new Province();
+			// Every test commits its own seed, and province codes are unique
+			province.setCode("KGL" + System.nanoTime());
+			province.setName("Kigali");
+			entityManager.persist(province);
+
+			District district = new District();
+			district.setCode("GAS");
+			district.setName("Gasabo");
+			district.setProvince(province);
+			entityManager.persist(district);
+
+			Sector sector = new Sector();
+			sector.setCode("GIS");
+			sector.setName("Gisozi");
+			sector.setDistrict(district);
+			entityManager.persist(sector);
+
+			Cell cell = new Cell();
+			cell.setCode("KAC");
+			cell.setName("Kacyiru");
+			cell.setSector(sector);
+			entityManager.persist(cell);
+
+			village = new Village();
+			village.setCode("VA");
+			village.setName("Village A");
+			village.setCell(cell);
+			entityManager.persist(village);
+
+			doctor = new Doctor();
+			doctor.setName("Dr. Igizeneza");
+			doctor.setSpecialization("Cardiology");
+			doctor.setPhone("+250788000001");
+			doctor.setEmail("igizeneza" + System.nanoTime() + "@clinic.rw");
+			entityManager.persist(doctor);
+		});
+		entityManager.getEntityManagerFactory().getCache().evictAll();
+	}
+
+	@Test
+	void locationAndDoctorLookupsByIdAreServedFromCache() {
+		inTransaction(() -> {
+			villageRepository.findById(village.getId());
+			doctorRepository.findById(doctor.getId());
+		});
+
+		statistics.clear();
+		inTransaction(() -> {
+			assertThat(villageRepository.findById(village.getId())).isPresent();
+			assertThat(doctorRepository.findById(doctor.getId())).get()
+					.extracting(Doctor::getName).isEqualTo("Dr. Igizeneza");
+		});
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+	}
+
+	@Test
+	void hierarchyFindersAreServedFromQueryCacheUntilTheTableChanges() {
+		inTransaction(() -> districtRepository.findByProvinceId(province.getId()));
+
+		statistics.clear();
+		inTransaction(() -> assertThat(districtRepository.findByProvinceId(province.getId())).hasSize(1));
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+		inTransaction(() -> {
+			District district = new District();
+			district.setCode("KIC");
+			district.setName("Kicukiro");
+			district.setProvince(entityManager.getReference(Province.class, province.getId()));
+			entityManager.persist(district);
+		});
+		inTransaction(() -> assertThat(districtRepository.findByProvinceId(province.getId())).hasSize(2));
+	}
+
+	@Test
+	void doctorUpdatesReplaceTheCachedEntry() {
+		inTransaction(() -> doctorRepository.findById(doctor.getId()).orElseThrow().setSpecialization("Neurology"));
+
+		statistics.clear();
+		inTransaction(() -> assertThat(doctorRepository.findById(doctor.getId())).get()
+				.extracting(Doctor::getSpecialization).isEqualTo("Neurology"));
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	private void inTransaction(Runnable work) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+	}
+}
@@ -0,0 +1,53 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.config.DoctorWorkloadConfig;
+import com.auca.clinic_system.config.SoftDeleteConfig;
+import com.auca.clinic_system.repository.RowDeletionRepository;
+import com.auca.clinic_system.repository.VersionedUpdateRepository;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A {@link DataJpaTest} on H2 with every service-layer bean and {@link ClinicFixtures}, for tests that
+ * drive the services the way the controllers do. Most of these classes commit what they write, and some
+ * count every row of a table, so each class gets its own context and database instead of sharing one.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@DataJpaTest
+@TestPropertySource(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		"clinic.workload.backfill-on-startup=false"
+})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, MetricsAutoConfiguration.class,
+		SimpleMetricsExportAutoConfiguration.class})
+@Import({DoctorWorkloadConfig.class, SoftDeleteConfig.class, PatientService.class, DoctorService.class,
+		AppointmentService.class, LocationResolver.class, NdjsonExporter.class, AppointmentBookingEngine.class,
+		AppointmentStatusCounters.class, BatchPersister.class, PatientLocationStats.class, DoctorSuggestIndex.class,
+		SpecializationCatalog.class, AppointmentGroupCommitter.class, VersionedUpdateRepository.class,
+		AppointmentCascadeDeleter.class, RowDeletionRepository.class, AppointmentChangeStream.class,
+		ClinicFixtures.class})
+@DirtiesContext
+@interface ServiceSliceTest {
+
+	/**
+	 * Properties on top of the H2 defaults above.
+	 */
+	@AliasFor(annotation = DataJpaTest.class)
+	String[] properties() default {};
+}
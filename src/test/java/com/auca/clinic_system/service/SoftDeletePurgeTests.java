@@ -0,0 +1,155 @@
+package com.auca.clinic_system.service;
+
+import com.auca.clinic_system.dto.AppointmentDTO;
+import com.auca.clinic_system.dto.BatchItemResultDTO;
+import com.auca.clinic_system.entity.Doctor;
+import com.auca.clinic_system.entity.Patient;
+import com.auca.clinic_system.exception.BookingConflictException;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.auca.clinic_system.entity.AppointmentStatus.*;
+import static com.auca.clinic_system.service.ClinicFixtures.appointment;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Soft delete hides a record at once and leaves its appointments to the purge, which is run by hand here
+ * with chunks of two so a record takes several of them.
+ */
+@ServiceSliceTest(properties = {
+		"clinic.delete.soft.enabled=true",
+		"clinic.delete.soft.purge-interval=1h",
+		"clinic.delete.soft.purge-chunk-size=2"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SoftDeletePurgeTests {
+
+	private static final LocalDateTime FIRST_SLOT = LocalDate.now().plusDays(70).atTime(8, 0);
+
+	@Autowired
+	private ClinicFixtures fixtures;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PatientService patientService;
+
+	@Autowired
+	private DoctorService doctorService;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private SoftDeletePurger purger;
+
+	@Test
+	void deletedRecordsAreHiddenAtOnceAndPurgedInChunks() {
+		Doctor doctor = fixtures.doctor("purge");
+		Patient leaving = fixtures.patient("leaving");
+		Patient staying = fixtures.patient("staying");
+		for (int i = 0; i < 5; i++) {
+			appointmentService.createAppointment(appointment(FIRST_SLOT.plusHours(i), doctor, leaving));
+		}
+		appointmentService.createAppointment(appointment(FIRST_SLOT.plusHours(5), doctor, staying));
+
+		assertThat(patientService.deletePatient(leaving.getId())).isTrue();
+		assertThat(patientService.getPatientById(leaving.getId())).isEmpty();
+		assertThat(patientService.deletePatient(leaving.getId())).isFalse();
+		assertThat(rows("patients", leaving.getId())).isEqualTo(1);
+
+		purger.purge();
+		assertThat(rows("patients", leaving.getId())).isZero();
+		assertThat(appointmentService.getAppointmentsByPatientId(leaving.getId())).isEmpty();
+		assertThat(doctorService.getWorkload(doctor.getId(), FIRST_SLOT.toLocalDate(), FIRST_SLOT.toLocalDate())
+				.orElseThrow().getTotals())
+				.containsOnly(entry(SCHEDULED, 1L), entry(COMPLETED, 0L), entry(CANCELLED, 0L));
+		// The purged appointments no longer hold their slots
+		appointmentService.createAppointment(appointment(FIRST_SLOT, doctor, staying));
+
+		assertThat(doctorService.deleteDoctor(doctor.getId())).isTrue();
+		assertThat(doctorService.getDoctorById(doctor.getId())).isEmpty();
+		purger.purge();
+		assertThat(rows("doctors", doctor.getId())).isZero();
+		assertThat(appointmentService.getAppointmentsByPatientId(staying.getId())).isEmpty();
+		assertThat(patientService.getPatientById(staying.getId())).isPresent();
+	}
+
+	@Test
+	void appointmentsOfDeletedRecordsAreHiddenUntilThePurge() throws Exception {
+		Doctor doctor = fixtures.doctor("kept");
+		Doctor leavingDoctor = fixtures.doctor("leaving");
+		Patient patient = fixtures.patient("kept");
+		Patient leavingPatient = fixtures.patient("leaving too");
+		AppointmentDTO ofPatient = appointmentService.createAppointment(appointment(FIRST_SLOT.plusDays(1), doctor, leavingPatient));
+		AppointmentDTO ofDoctor = appointmentService.createAppointment(appointment(FIRST_SLOT.plusDays(1), leavingDoctor, patient));
+		assertThat(patientService.deletePatient(leavingPatient.getId())).isTrue();
+		assertThat(doctorService.deleteDoctor(leavingDoctor.getId())).isTrue();
+
+		// Hidden along with their patient or doctor, from lookups, lists and the export alike
+		assertThat(appointmentService.getAppointmentById(ofPatient.getId())).isEmpty();
+		assertThat(appointmentService.getAppointmentById(ofDoctor.getId())).isEmpty();
+		assertThat(appointmentService.getAppointmentsByIds(List.of(ofPatient.getId(), ofDoctor.getId()))).isEmpty();
+		assertThat(appointmentService.getAllAppointments()).extracting(AppointmentDTO::getId)
+				.doesNotContain(ofPatient.getId(), ofDoctor.getId());
+		assertThat(appointmentService.getAllAppointments(PageRequest.of(0, 100))).extracting(AppointmentDTO::getId)
+				.doesNotContain(ofPatient.getId(), ofDoctor.getId());
+		assertThat(appointmentService.getAppointmentsAfter(null, 100).getItems()).extracting(AppointmentDTO::getId)
+				.doesNotContain(ofPatient.getId(), ofDoctor.getId());
+		assertThat(appointmentService.getAppointmentsByStatus("SCHEDULED", 0, 100)).extracting(AppointmentDTO::getId)
+				.doesNotContain(ofPatient.getId(), ofDoctor.getId());
+		assertThat(appointmentService.getAppointmentsByDoctorId(doctor.getId())).isEmpty();
+		assertThat(appointmentService.getAppointmentsByPatientId(patient.getId())).isEmpty();
+		ByteArrayOutputStream export = new ByteArrayOutputStream();
+		appointmentService.exportAppointments(export);
+		assertThat(export.toString(StandardCharsets.UTF_8))
+				.doesNotContain("\"id\":" + ofPatient.getId() + ",", "\"id\":" + ofDoctor.getId() + ",");
+
+		// Their slots stay taken until the purge
+		assertThatThrownBy(() -> appointmentService.createAppointment(appointment(FIRST_SLOT.plusDays(1), doctor, patient)))
+				.isInstanceOf(BookingConflictException.class);
+		purger.purge();
+		appointmentService.createAppointment(appointment(FIRST_SLOT.plusDays(1), doctor, patient));
+	}
+
+	@Test
+	void batchesCannotBookForDeletedRecords() {
+		Doctor doctor = fixtures.doctor("batch kept");
+		Doctor leavingDoctor = fixtures.doctor("batch leaving");
+		Patient patient = fixtures.patient("batch kept");
+		Patient leavingPatient = fixtures.patient("batch leaving");
+		// Loads the leaving doctor's schedule into the booking engine before the delete
+		appointmentService.createAppointment(appointment(FIRST_SLOT.plusDays(2), leavingDoctor, patient));
+		assertThat(doctorService.deleteDoctor(leavingDoctor.getId())).isTrue();
+		assertThat(patientService.deletePatient(leavingPatient.getId())).isTrue();
+
+		List<BatchItemResultDTO> results = appointmentService.createAppointments(List.of(
+				appointment(FIRST_SLOT.plusDays(2).plusHours(1), leavingDoctor, patient),
+				appointment(FIRST_SLOT.plusDays(2).plusHours(1), doctor, leavingPatient),
+				appointment(FIRST_SLOT.plusDays(2).plusHours(1), doctor, patient)));
+
+		assertThat(results).extracting(BatchItemResultDTO::getStatus)
+				.containsExactly(BatchItemResultDTO.FAILED, BatchItemResultDTO.FAILED, BatchItemResultDTO.CREATED);
+		assertThat(results.get(0).getError()).isEqualTo("Unknown doctor " + leavingDoctor.getId());
+		assertThat(results.get(1).getError()).isEqualTo("Unknown patient " + leavingPatient.getId());
+	}
+
+	private long rows(String table, Long id) {
+		return ((Number) entityManager.createNativeQuery("SELECT count(*) FROM " + table + " WHERE id = :id")
+				.setParameter("id", id)
+				.getSingleResult()).longValue();
+	}
+}